@@ -0,0 +1,84 @@
+package tingeso.planillaservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.service.PlanillaService;
+import tingeso.planillaservice.service.ProgresoCalculo;
+import tingeso.planillaservice.service.ProveedorCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculo completo de una quincena con calcularPagoFinal, con servicios simulados y H2.
+ * calculoCompleto parte sin planillas guardadas ni proveedores en cache;
+ * calculoSinCambios repite el calculo sobre planillas ya guardadas.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CalculoPlanillaBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Servicio {
+        @Param({"10", "1000", "10000", "100000"})
+        int proveedores;
+
+        @Param({"false", "true"})
+        boolean paralelo;
+
+        ContextoPlanilla contexto;
+        PlanillaService planillaService;
+        ProveedorCache proveedorCache;
+
+        @Setup(Level.Trial)
+        public void iniciar() {
+            contexto = new ContextoPlanilla(new DatosSinteticos(proveedores),
+                    "--planilla.calculo.paralelo=" + paralelo);
+            planillaService = contexto.getBean(PlanillaService.class);
+            proveedorCache = contexto.getBean(ProveedorCache.class);
+            ResultadoCalculo resultado = planillaService.calcularPagoFinal(DatosSinteticos.QUINCENA,
+                    ProgresoCalculo.NINGUNO);
+            if (resultado.getFallidos() > 0 || resultado.getRecalculados() != proveedores) {
+                throw new IllegalStateException("Calculo inicial inconsistente: " + resultado);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() {
+            contexto.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SinPlanillas extends Servicio {
+        @Setup(Level.Invocation)
+        public void limpiar() {
+            planillaService.deleteAll();
+            proveedorCache.invalidarTodo();
+        }
+    }
+
+    @Benchmark
+    public ResultadoCalculo calculoCompleto(SinPlanillas servicio) {
+        return servicio.planillaService.calcularPagoFinal(DatosSinteticos.QUINCENA, ProgresoCalculo.NINGUNO);
+    }
+
+    @Benchmark
+    public ResultadoCalculo calculoSinCambios(Servicio servicio) {
+        return servicio.planillaService.calcularPagoFinal(DatosSinteticos.QUINCENA, ProgresoCalculo.NINGUNO);
+    }
+}
@@ -0,0 +1,60 @@
+package tingeso.planillaservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tingeso.planillaservice.model.Laboratorio;
+import tingeso.planillaservice.service.PlanillaService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de calcularPagoQuincena para un proveedor sin datos precargados: consultas
+ * a los servicios simulados, calculo y comparacion con la planilla guardada.
+ * Las primeras invocaciones guardan la planilla de cada proveedor, las siguientes no tienen cambios.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalculoProveedorBenchmark {
+    @Param({"10", "1000", "100000"})
+    int proveedores;
+
+    ContextoPlanilla contexto;
+    PlanillaService planillaService;
+    List<Laboratorio> laboratorios;
+    int siguiente;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        DatosSinteticos datos = new DatosSinteticos(proveedores);
+        contexto = new ContextoPlanilla(datos);
+        planillaService = contexto.getBean(PlanillaService.class);
+        laboratorios = datos.laboratoriosQuincena();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public boolean calcularPagoQuincena() {
+        Laboratorio laboratorio = laboratorios.get(siguiente++ % laboratorios.size());
+        return planillaService.calcularPagoQuincena(laboratorio);
+    }
+}
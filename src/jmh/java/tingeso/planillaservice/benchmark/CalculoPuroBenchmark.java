@@ -0,0 +1,138 @@
+package tingeso.planillaservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import tingeso.planillaservice.model.Acopio;
+import tingeso.planillaservice.service.PlanillaService;
+import tingeso.planillaservice.service.TarifasService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Funciones de calculo de PlanillaService que no consultan otros servicios.
+ * Cada invocacion toma la siguiente entrada de un arreglo aleatorio para recorrer todos los tramos.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CalculoPuroBenchmark {
+    private static final int ENTRADAS = 1024;
+    private static final String[] CATEGORIAS = {"A", "B", "C", "D", "E"};
+
+    PlanillaService planillaService;
+    String[] categorias = new String[ENTRADAS];
+    int[] porcentajes = new int[ENTRADAS];
+    double[] variaciones = new double[ENTRADAS];
+    double[] montos = new double[ENTRADAS];
+    String[] quincenas = new String[ENTRADAS];
+    int siguiente;
+
+    /**
+     * Acopios de un proveedor; 30 es una quincena con entregas en ambos turnos
+     */
+    @State(Scope.Thread)
+    public static class ListaAcopios {
+        @Param({"30", "1000"})
+        int acopios;
+
+        List<Acopio> lista;
+
+        @Setup(Level.Trial)
+        public void iniciar() {
+            Random random = new Random(42);
+            lista = new ArrayList<>(acopios);
+            while (lista.size() < acopios) {
+                lista.addAll(DatosSinteticos.acopios(random, DatosSinteticos.QUINCENA, "10000"));
+            }
+            lista = new ArrayList<>(lista.subList(0, acopios));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        planillaService = new PlanillaService();
+        ReflectionTestUtils.setField(planillaService, "tarifasService", new TarifasService());
+        Random random = new Random(42);
+        for (int i = 0; i < ENTRADAS; i++) {
+            categorias[i] = CATEGORIAS[random.nextInt(CATEGORIAS.length)];
+            porcentajes[i] = random.nextInt(61);
+            variaciones[i] = random.nextInt(600) / 10.0;
+            montos[i] = random.nextInt(2_000_000);
+            int mes = 1 + random.nextInt(12);
+            quincenas[i] = (2000 + random.nextInt(30)) + "/" + (mes < 10 ? "0" + mes : mes)
+                    + "/Q" + (1 + random.nextInt(2));
+        }
+    }
+
+    private int entrada() {
+        return siguiente++ & (ENTRADAS - 1);
+    }
+
+    @Benchmark
+    public double calcularPagoPorCategoria() {
+        int i = entrada();
+        return planillaService.calcularPagoPorCategoria(categorias[i], montos[i]);
+    }
+
+    @Benchmark
+    public double calcularPagoPorGrasas() {
+        int i = entrada();
+        return planillaService.calcularPagoPorGrasas(porcentajes[i], montos[i]);
+    }
+
+    @Benchmark
+    public double calcularPagoPorSolidosTotales() {
+        int i = entrada();
+        return planillaService.calcularPagoPorSolidosTotales(porcentajes[i], montos[i]);
+    }
+
+    @Benchmark
+    public double calcularDescuentoPorVariacionLeche() {
+        int i = entrada();
+        return planillaService.calcularDescuentoPorVariacionLeche(variaciones[i], montos[i]);
+    }
+
+    @Benchmark
+    public double calcularDescuentoPorVariacionGrasa() {
+        int i = entrada();
+        return planillaService.calcularDescuentoPorVariacionGrasa(variaciones[i], montos[i]);
+    }
+
+    @Benchmark
+    public double calcularDescuentoPorVariacionSolidosTotales() {
+        int i = entrada();
+        return planillaService.calcularDescuentoPorVariacionSolidosTotales(variaciones[i], montos[i]);
+    }
+
+    @Benchmark
+    public double calcularRetencion() {
+        return planillaService.calcularRetencion(montos[entrada()]);
+    }
+
+    @Benchmark
+    public double diasEnvioLeche(ListaAcopios acopios) {
+        return planillaService.diasEnvioLeche(acopios.lista);
+    }
+
+    @Benchmark
+    public String getLastQuincena() {
+        return planillaService.getLastQuincena(quincenas[entrada()]);
+    }
+}
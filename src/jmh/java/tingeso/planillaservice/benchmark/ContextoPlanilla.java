@@ -0,0 +1,69 @@
+package tingeso.planillaservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.RestTemplate;
+import tingeso.planillaservice.PlanillaServiceApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Levanta planilla-service sin config server ni Eureka, con H2 en memoria y el RestTemplate
+ * respondido por ServiciosSimulados.
+ */
+public class ContextoPlanilla implements AutoCloseable {
+    private final ConfigurableApplicationContext contexto;
+    private final ServiciosSimulados servicios;
+
+    /**
+     * @param datos Datos que responden los servicios simulados
+     * @param propiedades Propiedades adicionales, por ejemplo --planilla.calculo.paralelo=true
+     */
+    public ContextoPlanilla(DatosSinteticos datos, String... propiedades) {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--spring.cloud.config.enabled=false",
+                "--eureka.client.enabled=false",
+                "--spring.datasource.url=jdbc:h2:mem:planilla;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                // Sin migraciones: Hibernate crea el esquema en H2, con planilla sin particiones
+                "--spring.flyway.enabled=false",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--planilla.periodos.particionado=false",
+                "--planilla.particiones.trabajador=false",
+                "--logging.level.root=WARN"));
+        // Una propiedad indicada reemplaza a la de arriba con el mismo nombre
+        for (String propiedad : propiedades) {
+            String nombre = propiedad.substring(0, propiedad.indexOf('=') + 1);
+            argumentos.removeIf(argumento -> argumento.startsWith(nombre));
+            argumentos.add(propiedad);
+        }
+        contexto = new SpringApplicationBuilder(PlanillaServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(argumentos.toArray(new String[0]));
+
+        servicios = new ServiciosSimulados(datos, contexto.getBean(ObjectMapper.class));
+        RestTemplate restTemplate = contexto.getBean(RestTemplate.class);
+        // Sin Eureka no hay instancias que resolver: se quita el balanceo y se responde en memoria
+        restTemplate.getInterceptors().removeIf(interceptor ->
+                interceptor.getClass().getSimpleName().contains("LoadBalancer"));
+        restTemplate.setRequestFactory(servicios);
+    }
+
+    public <T> T getBean(Class<T> tipo) {
+        return contexto.getBean(tipo);
+    }
+
+    public ServiciosSimulados getServicios() {
+        return servicios;
+    }
+
+    @Override
+    public void close() {
+        contexto.close();
+    }
+}
@@ -0,0 +1,102 @@
+package tingeso.planillaservice.benchmark;
+
+import tingeso.planillaservice.model.Acopio;
+import tingeso.planillaservice.model.Laboratorio;
+import tingeso.planillaservice.model.Proveedor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Genera datos de laboratorio, proveedores y acopios reproducibles para una cantidad
+ * dada de proveedores, en la quincena QUINCENA y su quincena anterior.
+ */
+public class DatosSinteticos {
+    public static final String QUINCENA = "2023/05/Q2";
+    public static final String QUINCENA_ANTERIOR = "2023/05/Q1";
+    private static final String[] CATEGORIAS = {"A", "B", "C", "D"};
+    private static final long SEMILLA = 20230516L;
+
+    private final int proveedores;
+
+    public DatosSinteticos(int proveedores) {
+        this.proveedores = proveedores;
+    }
+
+    public int getProveedores() {
+        return proveedores;
+    }
+
+    public String codigo(int indice) {
+        return String.valueOf(10000 + indice);
+    }
+
+    /**
+     * @return datos de laboratorio de todos los proveedores en QUINCENA_ANTERIOR y QUINCENA
+     */
+    public List<Laboratorio> laboratorios() {
+        Random random = new Random(SEMILLA);
+        List<Laboratorio> laboratorios = new ArrayList<>(proveedores * 2);
+        for (String quincena : new String[]{QUINCENA_ANTERIOR, QUINCENA}) {
+            for (int i = 0; i < proveedores; i++) {
+                laboratorios.add(new Laboratorio(codigo(i), random.nextInt(61), random.nextInt(46), quincena));
+            }
+        }
+        return laboratorios;
+    }
+
+    /**
+     * @return datos de laboratorio de la quincena QUINCENA
+     */
+    public List<Laboratorio> laboratoriosQuincena() {
+        return laboratorios().subList(proveedores, proveedores * 2);
+    }
+
+    public List<Proveedor> proveedores() {
+        List<Proveedor> lista = new ArrayList<>(proveedores);
+        for (int i = 0; i < proveedores; i++) {
+            lista.add(proveedor(codigo(i)));
+        }
+        return lista;
+    }
+
+    public Proveedor proveedor(String codigo) {
+        Random random = new Random(SEMILLA ^ codigo.hashCode());
+        return new Proveedor(codigo, "Proveedor " + codigo, CATEGORIAS[random.nextInt(CATEGORIAS.length)],
+                random.nextBoolean() ? "Si" : "No");
+    }
+
+    /**
+     * @return acopios del proveedor en la quincena, ordenados por fecha y turno
+     */
+    public List<Acopio> acopios(String quincena, String codigo) {
+        return acopios(new Random(SEMILLA ^ ((long) quincena.hashCode() << 32) ^ codigo.hashCode()),
+                quincena, codigo);
+    }
+
+    /**
+     * Genera los acopios de un proveedor: entrega el 80% de los dias, en la manana,
+     * en la tarde o en ambos turnos.
+     */
+    public static List<Acopio> acopios(Random random, String quincena, String codigo) {
+        String[] partes = quincena.split("/");
+        int primerDia = partes[2].equals("Q1") ? 1 : 16;
+        int ultimoDia = partes[2].equals("Q1") ? 15 : 30;
+        List<Acopio> acopios = new ArrayList<>(2 * (ultimoDia - primerDia + 1));
+        for (int dia = primerDia; dia <= ultimoDia; dia++) {
+            if (random.nextInt(10) >= 8) {
+                continue;
+            }
+            String fecha = partes[0] + "/" + partes[1] + "/" + (dia < 10 ? "0" + dia : dia);
+            int turnos = random.nextInt(5);
+            if (turnos != 4) {
+                acopios.add(new Acopio(fecha, "M", codigo, 50 + random.nextInt(450)));
+            }
+            if (turnos >= 2) {
+                acopios.add(new Acopio(fecha, "T", codigo, 50 + random.nextInt(450)));
+            }
+        }
+        return acopios;
+    }
+}
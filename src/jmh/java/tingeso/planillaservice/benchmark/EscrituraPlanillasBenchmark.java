@@ -0,0 +1,116 @@
+package tingeso.planillaservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tingeso.planillaservice.entity.Planilla;
+import tingeso.planillaservice.repository.PlanillaRepository;
+import tingeso.planillaservice.service.EscrituraPlanillasService;
+import tingeso.planillaservice.service.EscrituraPlanillasService.LotePlanillas;
+import tingeso.planillaservice.service.PlanillaService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritura de las planillas de una quincena en H2, en filas por segundo.
+ * deAUna es la escritura anterior a los lotes, un planillaRepository.save por planilla;
+ * porLotes usa EscrituraPlanillasService con planilla.escritura.tamano-lote y el batch_size de Hibernate.
+ * Cada invocacion parte de la tabla vacia.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class EscrituraPlanillasBenchmark {
+    private static final int PLANILLAS = 2000;
+
+    ContextoPlanilla contexto;
+    PlanillaService planillaService;
+    PlanillaRepository planillaRepository;
+    EscrituraPlanillasService escritura;
+    List<Planilla> planillas;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = new ContextoPlanilla(new DatosSinteticos(10));
+        planillaService = contexto.getBean(PlanillaService.class);
+        planillaRepository = contexto.getBean(PlanillaRepository.class);
+        escritura = contexto.getBean(EscrituraPlanillasService.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void limpiar() {
+        planillaService.deleteAll();
+        Random random = new Random(42);
+        planillas = new ArrayList<>(PLANILLAS);
+        for (int i = 0; i < PLANILLAS; i++) {
+            planillas.add(planilla(String.format("%05d", 10000 + i), random));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PLANILLAS)
+    public void deAUna() {
+        for (Planilla planilla : planillas) {
+            planillaRepository.save(planilla);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PLANILLAS)
+    public void porLotes() {
+        LotePlanillas lote = escritura.nuevoLote();
+        for (Planilla planilla : planillas) {
+            lote.agregar(planilla);
+        }
+        lote.cerrar();
+    }
+
+    private static Planilla planilla(String codigo, Random random) {
+        Planilla planilla = new Planilla();
+        planilla.setQuincena(DatosSinteticos.QUINCENA);
+        planilla.setCodigoProveedor(codigo);
+        planilla.setNombreProveedor("Proveedor " + codigo);
+        planilla.setCategoria("A");
+        planilla.setKlsTotalLeche(random.nextInt(5000));
+        planilla.setDiasEnvioLeche(random.nextInt(16));
+        planilla.setPromedioKilosLecheDiario(random.nextDouble() * 300);
+        planilla.setPorcentajeFrecuenciaDiariaEnvioLeche(random.nextDouble());
+        planilla.setPorcentajeGrasa(random.nextInt(60));
+        planilla.setPorcentajeVariacionGrasa(random.nextDouble() * 40);
+        planilla.setPorcentajeSolidoTotal(random.nextInt(50));
+        planilla.setPorcentajeVariacionSolidoTotal(random.nextDouble() * 30);
+        planilla.setPagoPorLeche(random.nextInt(900000));
+        planilla.setPagoPorGrasa(random.nextInt(100000));
+        planilla.setPagoPorSolidosTotales(random.nextInt(100000));
+        planilla.setBonificacionPorFrecuencia(random.nextDouble() * 1000);
+        planilla.setDctoVariacionLeche(random.nextDouble() * 100);
+        planilla.setDctoVariacionGrasa(random.nextDouble() * 100);
+        planilla.setDctoVariacionST(random.nextDouble() * 100);
+        planilla.setPagoTotal(random.nextDouble() * 1e6);
+        planilla.setMontoRetencion(random.nextDouble() * 1e5);
+        planilla.setMontoFinal(random.nextDouble() * 1e6);
+        planilla.setVersionTarifas("benchmark");
+        return planilla;
+    }
+}
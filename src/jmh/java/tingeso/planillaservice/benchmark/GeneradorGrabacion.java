@@ -0,0 +1,46 @@
+package tingeso.planillaservice.benchmark;
+
+import tingeso.planillaservice.config.GrabacionInterceptor;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.service.PlanillaService;
+import tingeso.planillaservice.service.ProgresoCalculo;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Genera una grabacion sintetica: calcula la quincena DatosSinteticos.QUINCENA con N proveedores
+ * simulados en modo grabar, asi el archivo tiene exactamente las consultas que hace el calculo.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=tingeso.planillaservice.benchmark.GeneradorGrabacion \
+ *     -Djmh.args="grabaciones/sintetica-10000.grab 10000"
+ * </pre>
+ */
+public class GeneradorGrabacion {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Uso: GeneradorGrabacion <archivo> <proveedores> [propiedades...]");
+            System.exit(2);
+        }
+        Path archivo = Paths.get(args[0]);
+        int proveedores = Integer.parseInt(args[1]);
+        String[] propiedades = new String[args.length];
+        propiedades[0] = "--planilla.grabacion.modo=grabar";
+        propiedades[1] = "--planilla.grabacion.archivo=" + archivo;
+        System.arraycopy(args, 2, propiedades, 2, args.length - 2);
+        long inicio = System.nanoTime();
+        int entradas;
+        try (ContextoPlanilla contexto = new ContextoPlanilla(new DatosSinteticos(proveedores), propiedades)) {
+            ResultadoCalculo resultado = contexto.getBean(PlanillaService.class)
+                    .calcularPagoFinal(DatosSinteticos.QUINCENA, ProgresoCalculo.NINGUNO);
+            if (resultado.getFallidos() > 0) {
+                throw new IllegalStateException("Calculo con fallidos, grabacion incompleta: " + resultado);
+            }
+            entradas = contexto.getBean(GrabacionInterceptor.class).getEntradas();
+        }
+        System.out.printf("%s: %d proveedores, %d respuestas, %d bytes, %d ms%n", archivo, proveedores, entradas,
+                Files.size(archivo), (System.nanoTime() - inicio) / 1_000_000);
+    }
+}
@@ -0,0 +1,92 @@
+package tingeso.planillaservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tingeso.planillaservice.config.GrabacionInterceptor;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.service.PlanillaService;
+import tingeso.planillaservice.service.ProgresoCalculo;
+import tingeso.planillaservice.service.ProveedorCache;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculo completo de una quincena con las respuestas remotas reproducidas desde una grabacion.
+ * Sin archivo se genera una sintetica en target/grabaciones; con -p archivo=... -p quincena=...
+ * se reproduce una grabacion de produccion.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReproduccionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Servicio {
+        @Param({"1000", "10000"})
+        int proveedores;
+
+        @Param({""})
+        String archivo;
+
+        @Param({DatosSinteticos.QUINCENA})
+        String quincena;
+
+        @Param({"false", "true"})
+        boolean paralelo;
+
+        ContextoPlanilla contexto;
+        PlanillaService planillaService;
+        ProveedorCache proveedorCache;
+
+        @Setup(Level.Trial)
+        public void iniciar() throws Exception {
+            Path grabacion = archivo.isEmpty()
+                    ? Paths.get("target", "grabaciones", "sintetica-" + proveedores + ".grab") : Paths.get(archivo);
+            if (archivo.isEmpty() && !Files.exists(grabacion)) {
+                GeneradorGrabacion.main(new String[]{grabacion.toString(), String.valueOf(proveedores)});
+            }
+            contexto = new ContextoPlanilla(new DatosSinteticos(0),
+                    "--planilla.grabacion.modo=reproducir",
+                    "--planilla.grabacion.archivo=" + grabacion,
+                    "--planilla.calculo.paralelo=" + paralelo);
+            planillaService = contexto.getBean(PlanillaService.class);
+            proveedorCache = contexto.getBean(ProveedorCache.class);
+        }
+
+        @Setup(Level.Invocation)
+        public void limpiar() {
+            planillaService.deleteAll();
+            proveedorCache.invalidarTodo();
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() {
+            long faltantes = contexto.getBean(GrabacionInterceptor.class).getFaltantes();
+            contexto.close();
+            if (faltantes > 0) {
+                System.out.println("Consultas sin respuesta grabada: " + faltantes);
+            }
+        }
+    }
+
+    @Benchmark
+    public ResultadoCalculo calculoReproducido(Servicio servicio) {
+        return servicio.planillaService.calcularPagoFinal(servicio.quincena, ProgresoCalculo.NINGUNO);
+    }
+}
@@ -0,0 +1,111 @@
+package tingeso.planillaservice.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+import tingeso.planillaservice.model.Acopio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Responde en el mismo proceso las consultas a laboratorio-service, proveedor-service y
+ * acopio-service con DatosSinteticos. Las respuestas masivas se serializan una sola vez,
+ * para que el benchmark mida el calculo y no la generacion de datos.
+ */
+public class ServiciosSimulados implements ClientHttpRequestFactory {
+    private final DatosSinteticos datos;
+    private final ObjectMapper objectMapper;
+    private final byte[] laboratorios;
+    private final byte[] proveedores;
+    private final Map<String, byte[]> acopiosPorQuincena = new HashMap<>();
+    private final AtomicLong consultas = new AtomicLong();
+
+    public ServiciosSimulados(DatosSinteticos datos, ObjectMapper objectMapper) {
+        this.datos = datos;
+        this.objectMapper = objectMapper;
+        try {
+            laboratorios = objectMapper.writeValueAsBytes(datos.laboratorios());
+            proveedores = objectMapper.writeValueAsBytes(datos.proveedores());
+            for (String quincena : new String[]{DatosSinteticos.QUINCENA_ANTERIOR, DatosSinteticos.QUINCENA}) {
+                acopiosPorQuincena.put(quincena, serializarAcopios(quincena));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return cantidad de consultas respondidas
+     */
+    public long getConsultas() {
+        return consultas.get();
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        consultas.incrementAndGet();
+        MockClientHttpRequest request = new MockClientHttpRequest(httpMethod, uri);
+        request.setResponse(responder(uri));
+        return request;
+    }
+
+    private MockClientHttpResponse responder(URI uri) throws IOException {
+        String ruta = uri.getHost() + uri.getPath();
+        Map<String, String> parametros = new HashMap<>();
+        UriComponentsBuilder.fromUri(uri).build().getQueryParams().forEach((nombre, valores) ->
+                parametros.put(nombre, URLDecoder.decode(valores.get(0), StandardCharsets.UTF_8)));
+
+        byte[] cuerpo;
+        if (ruta.equals("laboratorio-service/laboratorio")) {
+            cuerpo = laboratorios;
+        } else if (ruta.startsWith("laboratorio-service/laboratorio/getVariacion")) {
+            cuerpo = "0.0".getBytes(StandardCharsets.UTF_8);
+        } else if (ruta.equals("proveedor-service/proveedor")) {
+            cuerpo = proveedores;
+        } else if (ruta.startsWith("proveedor-service/proveedor/")) {
+            cuerpo = objectMapper.writeValueAsBytes(datos.proveedor(ruta.substring(ruta.lastIndexOf('/') + 1)));
+        } else if (ruta.startsWith("acopio-service/acopio/byquincenaproveedor")) {
+            cuerpo = objectMapper.writeValueAsBytes(
+                    datos.acopios(parametros.get("quincena"), parametros.get("proveedor")));
+        } else if (ruta.startsWith("acopio-service/acopio/byquincena")) {
+            cuerpo = acopiosPorQuincena.get(parametros.get("quincena"));
+        } else {
+            cuerpo = null;
+        }
+        if (cuerpo == null) {
+            return new MockClientHttpResponse(new byte[0], HttpStatus.NOT_FOUND);
+        }
+        MockClientHttpResponse response = new MockClientHttpResponse(cuerpo, HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response;
+    }
+
+    private byte[] serializarAcopios(String quincena) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            generador.writeStartArray();
+            for (int i = 0; i < datos.getProveedores(); i++) {
+                for (Acopio acopio : datos.acopios(quincena, datos.codigo(i))) {
+                    objectMapper.writeValue(generador, acopio);
+                }
+            }
+            generador.writeEndArray();
+        }
+        return salida.toByteArray();
+    }
+}
@@ -2,14 +2,23 @@ package tingeso.planillaservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @EnableEurekaClient
 @SpringBootApplication
 public class PlanillaServiceApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(PlanillaServiceApplication.class, args);
+		SpringApplication aplicacion = new SpringApplication(PlanillaServiceApplication.class);
+		// Pasos del arranque en /actuator/startup
+		aplicacion.setApplicationStartup(new BufferingApplicationStartup(4096));
+		ConfigurableApplicationContext contexto = aplicacion.run(args);
+		// Ejecucion de entrenamiento del archivo AppCDS (ver Dockerfile): termina apenas inicia
+		if (contexto.getEnvironment().getProperty("planilla.arranque.entrenamiento-cds", Boolean.class, false)) {
+			System.exit(SpringApplication.exit(contexto));
+		}
 	}
 
 }
@@ -0,0 +1,282 @@
+package tingeso.planillaservice.config;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Archivo con respuestas grabadas de los otros servicios, para reproducir un calculo sin red.
+ * <pre>
+ * cabecera (24 bytes): "PLGRAB01", posicion del indice (long), entradas (int), reservado (int)
+ * respuesta:           largo de la clave (int), clave UTF-8, estado (short), largo del tipo (short),
+ *                      Content-Type ASCII, largo del cuerpo (int), cuerpo
+ * indice:              entradas x (hash de la clave (long), posicion de la respuesta (long)), por hash
+ * </pre>
+ * La clave es el metodo y la URI logica, por ejemplo "GET http://proveedor-service/proveedor/10001".
+ * Para leer se mapea el archivo completo en memoria y se busca en el indice por hash, sin copiar cuerpos.
+ */
+public class ArchivoGrabacion {
+    private static final byte[] FIRMA = "PLGRAB01".getBytes(StandardCharsets.US_ASCII);
+    private static final int CABECERA = 24;
+    private static final int ENTRADA = 16;
+
+    private final MappedByteBuffer mapa;
+    private final int posicionIndice;
+    private final int entradas;
+
+    private ArchivoGrabacion(MappedByteBuffer mapa, int posicionIndice, int entradas) {
+        this.mapa = mapa;
+        this.posicionIndice = posicionIndice;
+        this.entradas = entradas;
+    }
+
+    /**
+     * @param archivo Archivo guardado por un Escritor
+     * @return archivo mapeado en memoria
+     * @throws IOException si no existe, no tiene el formato o supera los 2 GB
+     */
+    public static ArchivoGrabacion abrir(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IOException("Grabacion mayor a 2 GB: " + archivo);
+            }
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            byte[] firma = new byte[FIRMA.length];
+            if (mapa.limit() >= CABECERA) {
+                mapa.get(0, firma);
+            }
+            if (mapa.limit() < CABECERA || !Arrays.equals(firma, FIRMA)) {
+                throw new IOException("No es una grabacion: " + archivo);
+            }
+            long posicionIndice = mapa.getLong(8);
+            int entradas = mapa.getInt(16);
+            if (posicionIndice < CABECERA || posicionIndice + (long) entradas * ENTRADA > mapa.limit()) {
+                throw new IOException("Grabacion incompleta, sin indice: " + archivo);
+            }
+            return new ArchivoGrabacion(mapa, (int) posicionIndice, entradas);
+        }
+    }
+
+    public int getEntradas() {
+        return entradas;
+    }
+
+    /**
+     * @param clave Metodo y URI de la solicitud
+     * @return respuesta grabada, null si no hay
+     */
+    public ClientHttpResponse buscar(String clave) {
+        byte[] bytesClave = clave.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(bytesClave);
+        int bajo = 0;
+        int alto = entradas - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            long actual = hashEntrada(medio);
+            if (actual < hash) {
+                bajo = medio + 1;
+            } else if (actual > hash) {
+                alto = medio - 1;
+            } else {
+                // Primera entrada con el hash y luego las colisiones en orden
+                while (medio > 0 && hashEntrada(medio - 1) == hash) {
+                    medio--;
+                }
+                for (int i = medio; i < entradas && hashEntrada(i) == hash; i++) {
+                    int posicion = (int) mapa.getLong(posicionIndice + i * ENTRADA + 8);
+                    if (mismaClave(posicion, bytesClave)) {
+                        return leer(posicion + 4 + bytesClave.length);
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private long hashEntrada(int i) {
+        return mapa.getLong(posicionIndice + i * ENTRADA);
+    }
+
+    private boolean mismaClave(int posicion, byte[] clave) {
+        if (mapa.getInt(posicion) != clave.length) {
+            return false;
+        }
+        return mapa.slice(posicion + 4, clave.length).equals(ByteBuffer.wrap(clave));
+    }
+
+    private ClientHttpResponse leer(int posicion) {
+        int estado = mapa.getShort(posicion);
+        int largoTipo = mapa.getShort(posicion + 2);
+        byte[] tipo = new byte[largoTipo];
+        mapa.get(posicion + 4, tipo);
+        int largoCuerpo = mapa.getInt(posicion + 4 + largoTipo);
+        ByteBuffer cuerpo = mapa.slice(posicion + 8 + largoTipo, largoCuerpo);
+        return new RespuestaGrabada(estado, new String(tipo, StandardCharsets.US_ASCII), cuerpo);
+    }
+
+    /**
+     * FNV-1a de 64 bits
+     */
+    static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * @param archivo Archivo a crear; si existe se reemplaza
+     * @return escritor de respuestas
+     */
+    public static Escritor escribir(Path archivo) throws IOException {
+        Path directorio = archivo.toAbsolutePath().getParent();
+        Files.createDirectories(directorio);
+        return new Escritor(FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Agrega respuestas al final del archivo. guardar escribe el indice y la cabecera, y se puede
+     * llamar varias veces: las respuestas siguientes van despues del indice anterior y el
+     * siguiente guardar escribe un indice nuevo. Si una clave se graba otra vez vale la ultima.
+     */
+    public static class Escritor implements Closeable {
+        private final FileChannel canal;
+        private final Map<String, Long> posiciones = new HashMap<>();
+        private long posicion = CABECERA;
+
+        private Escritor(FileChannel canal) throws IOException {
+            this.canal = canal;
+            escribirCabecera(0, 0);
+        }
+
+        public synchronized void grabar(String clave, int estado, String tipo, byte[] cuerpo) throws IOException {
+            byte[] bytesClave = clave.getBytes(StandardCharsets.UTF_8);
+            byte[] bytesTipo = tipo == null ? new byte[0] : tipo.getBytes(StandardCharsets.US_ASCII);
+            ByteBuffer registro = ByteBuffer.allocate(12 + bytesClave.length + bytesTipo.length + cuerpo.length);
+            registro.putInt(bytesClave.length).put(bytesClave)
+                    .putShort((short) estado).putShort((short) bytesTipo.length).put(bytesTipo)
+                    .putInt(cuerpo.length).put(cuerpo)
+                    .flip();
+            escribir(registro, posicion);
+            posiciones.put(clave, posicion);
+            posicion += registro.capacity();
+        }
+
+        /**
+         * @return cantidad de respuestas distintas grabadas
+         */
+        public synchronized int getEntradas() {
+            return posiciones.size();
+        }
+
+        /**
+         * Escribe el indice y deja el archivo listo para abrir
+         */
+        public synchronized void guardar() throws IOException {
+            long[][] entradas = new long[posiciones.size()][];
+            int i = 0;
+            for (Map.Entry<String, Long> entrada : posiciones.entrySet()) {
+                entradas[i++] = new long[]{hash(entrada.getKey().getBytes(StandardCharsets.UTF_8)), entrada.getValue()};
+            }
+            Arrays.sort(entradas, (a, b) -> Long.compare(a[0], b[0]));
+            ByteBuffer indice = ByteBuffer.allocate(entradas.length * ENTRADA);
+            for (long[] entrada : entradas) {
+                indice.putLong(entrada[0]).putLong(entrada[1]);
+            }
+            indice.flip();
+            long posicionIndice = posicion;
+            escribir(indice, posicionIndice);
+            posicion += indice.capacity();
+            escribirCabecera(posicionIndice, entradas.length);
+            canal.force(false);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                guardar();
+            } finally {
+                canal.close();
+            }
+        }
+
+        private void escribirCabecera(long posicionIndice, int entradas) throws IOException {
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+            cabecera.put(FIRMA).putLong(posicionIndice).putInt(entradas).putInt(0).flip();
+            escribir(cabecera, 0);
+        }
+
+        private void escribir(ByteBuffer datos, long desde) throws IOException {
+            while (datos.hasRemaining()) {
+                desde += canal.write(datos, desde);
+            }
+        }
+    }
+
+    /**
+     * Respuesta leida de la grabacion, o grabada recien, con el cuerpo en un ByteBuffer
+     */
+    static class RespuestaGrabada implements ClientHttpResponse {
+        private final int estado;
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteBuffer cuerpo;
+
+        RespuestaGrabada(int estado, String tipo, ByteBuffer cuerpo) {
+            this.estado = estado;
+            this.cuerpo = cuerpo;
+            if (!tipo.isEmpty()) {
+                headers.set(HttpHeaders.CONTENT_TYPE, tipo);
+            }
+            headers.setContentLength(cuerpo.remaining());
+        }
+
+        @Override
+        public HttpStatus getStatusCode() {
+            return HttpStatus.valueOf(estado);
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return estado;
+        }
+
+        @Override
+        public String getStatusText() {
+            HttpStatus status = HttpStatus.resolve(estado);
+            return status != null ? status.getReasonPhrase() : "";
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteBufferBackedInputStream(cuerpo.duplicate());
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package tingeso.planillaservice.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import tingeso.planillaservice.service.TarifasService;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.file.Paths;
+
+/**
+ * Ajustes del arranque rapido (perfil rapido, ver bootstrap-rapido.yaml)
+ */
+@Configuration
+public class ArranqueConfig {
+    @Autowired
+    ConfigurableEnvironment environment;
+
+    /**
+     * Con spring.main.lazy-initialization se siguen creando al inicio las tarifas, para que una
+     * tabla invalida detenga el arranque, y el EntityManagerFactory, para que Hibernate se
+     * inicie en paralelo con el resto del contexto y no en la primera solicitud. Con los
+     * repositorios diferidos Spring Boot lo inicia en el hilo del TaskScheduler.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter arranqueAnticipado() {
+        return (nombre, definicion, tipo) -> "entityManagerFactory".equals(nombre) || tipo != null
+                && (TarifasService.class.isAssignableFrom(tipo) || EntityManagerFactory.class.isAssignableFrom(tipo));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void guardarConfiguracion() {
+        if (environment.getProperty(CacheConfigLocal.HABILITADA, Boolean.class, false)) {
+            CacheConfigLocal.guardar(Paths.get(environment.getProperty(CacheConfigLocal.ARCHIVO,
+                    CacheConfigLocal.ARCHIVO_DEFECTO)), environment);
+        }
+    }
+}
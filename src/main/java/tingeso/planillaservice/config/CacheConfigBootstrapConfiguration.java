@@ -0,0 +1,40 @@
+package tingeso.planillaservice.config;
+
+import org.springframework.cloud.bootstrap.config.PropertySourceLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.core.env.PropertySource;
+
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Agrega la copia local de la configuracion en el contexto de bootstrap, con menor precedencia
+ * que el config server: solo decide las propiedades que el config server no entrega, y todas
+ * cuando no responde.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CacheConfigBootstrapConfiguration {
+
+    @Bean
+    public CacheConfigLocator cacheConfigLocator() {
+        return new CacheConfigLocator();
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public static class CacheConfigLocator implements PropertySourceLocator {
+        @Override
+        public PropertySource<?> locate(Environment environment) {
+            if (!environment.getProperty(CacheConfigLocal.HABILITADA, Boolean.class, false)) {
+                return null;
+            }
+            Properties propiedades = CacheConfigLocal.leer(Paths.get(
+                    environment.getProperty(CacheConfigLocal.ARCHIVO, CacheConfigLocal.ARCHIVO_DEFECTO)));
+            return propiedades == null ? null : new PropertiesPropertySource("cacheConfigLocal", propiedades);
+        }
+    }
+}
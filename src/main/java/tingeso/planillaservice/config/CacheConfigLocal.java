@@ -0,0 +1,100 @@
+package tingeso.planillaservice.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.PropertySource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Copia local de las propiedades recibidas del config server. Se escribe cada vez que la
+ * instancia queda lista y se usa en el arranque rapido cuando el config server no responde.
+ */
+public final class CacheConfigLocal {
+    public static final String HABILITADA = "planilla.arranque.cache-config.habilitada";
+    public static final String ARCHIVO = "planilla.arranque.cache-config.archivo";
+    public static final String ARCHIVO_DEFECTO = "config-cache/planilla-service.properties";
+
+    private static final Logger logg = LoggerFactory.getLogger(CacheConfigLocal.class);
+    private static final String PREFIJO_CONFIG_SERVER = "bootstrapProperties-config";
+
+    private CacheConfigLocal() {
+    }
+
+    /**
+     * @param archivo Archivo de la copia
+     * @return propiedades guardadas, null si no hay copia o no se puede leer
+     */
+    public static Properties leer(Path archivo) {
+        if (!Files.isRegularFile(archivo)) {
+            return null;
+        }
+        Properties propiedades = new Properties();
+        try (Reader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            propiedades.load(lector);
+        } catch (IOException e) {
+            logg.warn("No se pudo leer la configuracion guardada en {}: {}", archivo, e.getMessage());
+            return null;
+        }
+        return propiedades;
+    }
+
+    /**
+     * Guarda las propiedades que vinieron del config server. Si no hay ninguna (el config server
+     * no respondio) se conserva la copia anterior.
+     * @param archivo Archivo de la copia
+     * @param environment Environment de la aplicacion ya iniciada
+     */
+    public static void guardar(Path archivo, ConfigurableEnvironment environment) {
+        List<EnumerablePropertySource<?>> fuentes = new ArrayList<>();
+        for (PropertySource<?> fuente : environment.getPropertySources()) {
+            if (fuente.getName().startsWith(PREFIJO_CONFIG_SERVER) && fuente instanceof EnumerablePropertySource) {
+                fuentes.add((EnumerablePropertySource<?>) fuente);
+            }
+        }
+        if (fuentes.isEmpty()) {
+            return;
+        }
+        Properties propiedades = new Properties();
+        // De menor a mayor precedencia, para que gane el mismo valor que en el Environment
+        for (int i = fuentes.size() - 1; i >= 0; i--) {
+            EnumerablePropertySource<?> fuente = fuentes.get(i);
+            for (String nombre : fuente.getPropertyNames()) {
+                Object valor = fuente.getProperty(nombre);
+                if (valor != null) {
+                    propiedades.setProperty(nombre, valor.toString());
+                }
+            }
+        }
+        try {
+            Path directorio = archivo.toAbsolutePath().getParent();
+            Files.createDirectories(directorio);
+            Path temporal = Files.createTempFile(directorio, archivo.getFileName().toString(), ".tmp");
+            try {
+                // Puede contener credenciales
+                Files.setPosixFilePermissions(temporal, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // Sistema de archivos sin permisos POSIX
+            }
+            try (Writer escritor = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+                propiedades.store(escritor, "Copia de la configuracion del config server");
+            }
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logg.info("Configuracion del config server guardada en {} ({} propiedades)", archivo, propiedades.size());
+        } catch (IOException e) {
+            logg.warn("No se pudo guardar la configuracion en {}: {}", archivo, e.getMessage());
+        }
+    }
+}
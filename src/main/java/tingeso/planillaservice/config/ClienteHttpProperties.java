@@ -0,0 +1,83 @@
+package tingeso.planillaservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuracion del cliente HTTP hacia los otros servicios, bajo planilla.http
+ */
+@Data
+@ConfigurationProperties(prefix = "planilla.http")
+public class ClienteHttpProperties {
+    /**
+     * Conexiones abiertas como maximo entre todas las instancias
+     */
+    private int maxConexiones = 200;
+
+    /**
+     * Conexiones abiertas como maximo por instancia (host y puerto)
+     */
+    private int maxConexionesPorHost = 50;
+
+    /**
+     * Tiempo que se mantiene abierta una conexion sin uso si el servidor no indica otro
+     */
+    private Duration keepAlive = Duration.ofSeconds(30);
+
+    private Duration timeoutConexion = Duration.ofSeconds(2);
+
+    /**
+     * Espera maxima por una conexion libre del pool
+     */
+    private Duration timeoutPool = Duration.ofSeconds(5);
+
+    /**
+     * Espera maxima entre paquetes de la respuesta, si la ruta no tiene un timeout propio
+     */
+    private Duration timeoutLectura = Duration.ofSeconds(10);
+
+    /**
+     * Timeout de lectura por prefijo de ruta, por ejemplo "[/acopio/byquincena/]": 60s.
+     * Se usa el prefijo mas largo que coincida.
+     */
+    private Map<String, Duration> timeouts = new LinkedHashMap<>();
+
+    private Reintentos reintentos = new Reintentos();
+
+    private Circuito circuito = new Circuito();
+
+    @Data
+    public static class Reintentos {
+        /**
+         * Intentos por llamada, incluido el primero
+         */
+        private int intentos = 3;
+
+        /**
+         * Espera antes del primer reintento; se duplica en cada reintento
+         */
+        private Duration espera = Duration.ofMillis(200);
+    }
+
+    @Data
+    public static class Circuito {
+        /**
+         * Porcentaje de llamadas fallidas que abre el circuito de un servicio
+         */
+        private float umbralFallos = 50;
+
+        /**
+         * Cantidad de llamadas recientes con que se calcula el porcentaje de fallos
+         */
+        private int ventana = 20;
+
+        /**
+         * Tiempo que el circuito queda abierto antes de dejar pasar llamadas de prueba
+         */
+        private Duration esperaAbierto = Duration.ofSeconds(30);
+    }
+}
@@ -0,0 +1,56 @@
+package tingeso.planillaservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@EnableScheduling
+public class EjecucionConfig {
+
+    /**
+     * Pool acotado que calcula proveedores en paralelo
+     * @param concurrencia Cantidad maxima de proveedores calculados al mismo tiempo
+     * @return executor de proveedores
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService planillaExecutor(@Value("${planilla.calculo.concurrencia:8}") int concurrencia) {
+        return Executors.newFixedThreadPool(concurrencia, hilos("planilla-calculo-"));
+    }
+
+    /**
+     * Pool para las consultas remotas independientes de cada proveedor.
+     * Se separa del pool de proveedores para que una tarea nunca espere a otra del mismo pool.
+     * @param concurrencia Cantidad maxima de consultas remotas simultaneas
+     * @return executor de consultas
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService consultasExecutor(@Value("${planilla.calculo.consultas-concurrentes:32}") int concurrencia) {
+        return Executors.newFixedThreadPool(concurrencia, hilos("planilla-consulta-"));
+    }
+
+    /**
+     * Pool de las ejecuciones asincronas de planillas
+     * @param concurrencia Cantidad maxima de ejecuciones simultaneas en esta instancia
+     * @return executor de ejecuciones
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService ejecucionesExecutor(@Value("${planilla.ejecuciones.concurrencia:2}") int concurrencia) {
+        return Executors.newFixedThreadPool(concurrencia, hilos("planilla-ejecucion-"));
+    }
+
+    private ThreadFactory hilos(String prefijo) {
+        AtomicInteger contador = new AtomicInteger();
+        return runnable -> {
+            Thread hilo = new Thread(runnable, prefijo + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+}
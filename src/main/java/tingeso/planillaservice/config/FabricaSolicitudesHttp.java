@@ -0,0 +1,67 @@
+package tingeso.planillaservice.config;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import tingeso.planillaservice.service.PresupuestoLatencia;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fabrica de solicitudes sobre un HttpClient con pool de conexiones. Cada solicitud usa el timeout
+ * de lectura de su ruta, acotado junto con el timeout de conexion al presupuesto restante del proveedor.
+ */
+public class FabricaSolicitudesHttp extends HttpComponentsClientHttpRequestFactory {
+    private final RequestConfig configuracionBase;
+    private final List<Map.Entry<String, Duration>> timeoutsPorRuta;
+
+    public FabricaSolicitudesHttp(HttpClient httpClient, RequestConfig configuracionBase,
+                                  Map<String, Duration> timeoutsPorRuta) {
+        super(httpClient);
+        this.configuracionBase = configuracionBase;
+        this.timeoutsPorRuta = new ArrayList<>(timeoutsPorRuta.entrySet());
+        // Prefijo mas largo primero
+        this.timeoutsPorRuta.sort(Comparator.comparingInt((Map.Entry<String, Duration> e) -> e.getKey().length()).reversed());
+    }
+
+    @Override
+    protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+        long restante = PresupuestoLatencia.restanteMillis();
+        int lectura = acotar(timeoutLectura(uri.getPath()), restante);
+        int conexion = acotar(configuracionBase.getConnectTimeout(), restante);
+        HttpClientContext contexto = HttpClientContext.create();
+        contexto.setRequestConfig(RequestConfig.copy(configuracionBase)
+                .setSocketTimeout(lectura)
+                .setConnectTimeout(conexion)
+                .build());
+        return contexto;
+    }
+
+    private int timeoutLectura(String ruta) {
+        if (ruta != null) {
+            for (Map.Entry<String, Duration> timeout : timeoutsPorRuta) {
+                if (ruta.startsWith(timeout.getKey())) {
+                    return (int) timeout.getValue().toMillis();
+                }
+            }
+        }
+        return configuracionBase.getSocketTimeout();
+    }
+
+    private static int acotar(int timeout, long restante) {
+        if (restante == Long.MAX_VALUE) {
+            return timeout;
+        }
+        // 0 es sin timeout para HttpClient: con el presupuesto casi agotado se deja 1 ms
+        int acotado = (int) Math.max(1, Math.min(restante, Integer.MAX_VALUE));
+        return timeout <= 0 ? acotado : Math.min(timeout, acotado);
+    }
+}
@@ -0,0 +1,129 @@
+package tingeso.planillaservice.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import tingeso.planillaservice.config.ArchivoGrabacion.RespuestaGrabada;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Graba las respuestas de los otros servicios en un ArchivoGrabacion, o las responde desde uno.
+ * Va antes del balanceo de carga: la clave usa el nombre logico del servicio y al reproducir
+ * no se consulta Eureka ni se abre ninguna conexion.
+ */
+public class GrabacionInterceptor implements ClientHttpRequestInterceptor, DisposableBean {
+    private static final int FALTANTES_EN_LOG = 10;
+    private final Logger logg = LoggerFactory.getLogger(GrabacionInterceptor.class);
+
+    public enum Modo {NINGUNO, GRABAR, REPRODUCIR}
+
+    private final Modo modo;
+    private final Path archivo;
+    private final ArchivoGrabacion.Escritor escritor;
+    private final ArchivoGrabacion grabacion;
+    private final AtomicLong respondidas = new AtomicLong();
+    private final AtomicLong faltantes = new AtomicLong();
+
+    /**
+     * @param modo GRABAR crea el archivo, REPRODUCIR lo abre
+     * @param archivo Archivo de la grabacion
+     */
+    public GrabacionInterceptor(Modo modo, Path archivo) throws IOException {
+        this.modo = modo;
+        this.archivo = archivo;
+        this.escritor = modo == Modo.GRABAR ? ArchivoGrabacion.escribir(archivo) : null;
+        this.grabacion = modo == Modo.REPRODUCIR ? ArchivoGrabacion.abrir(archivo) : null;
+        logg.info("Modo {} de respuestas remotas con {}", modo, archivo.toAbsolutePath());
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String clave = request.getMethodValue() + " " + request.getURI();
+        if (modo == Modo.REPRODUCIR) {
+            ClientHttpResponse respuesta = grabacion.buscar(clave);
+            if (respuesta != null) {
+                respondidas.incrementAndGet();
+                return respuesta;
+            }
+            // Sin grabacion se responde 404, como un servicio sin datos: el calculo sigue con sus alternativas
+            if (faltantes.incrementAndGet() <= FALTANTES_EN_LOG) {
+                logg.warn("Sin respuesta grabada para {}", clave);
+            }
+            return new RespuestaGrabada(HttpStatus.NOT_FOUND.value(), "", ByteBuffer.allocate(0));
+        }
+        ClientHttpResponse respuesta = execution.execute(request, body);
+        if (modo != Modo.GRABAR) {
+            return respuesta;
+        }
+        int estado;
+        String tipo;
+        byte[] cuerpo;
+        try (respuesta) {
+            estado = respuesta.getRawStatusCode();
+            tipo = respuesta.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+            cuerpo = StreamUtils.copyToByteArray(respuesta.getBody());
+        }
+        escritor.grabar(clave, estado, tipo, cuerpo);
+        respondidas.incrementAndGet();
+        return new RespuestaGrabada(estado, tipo == null ? "" : tipo, ByteBuffer.wrap(cuerpo));
+    }
+
+    /**
+     * Con GRABAR escribe el indice, asi el archivo ya se puede reproducir; se sigue grabando
+     */
+    public void guardar() throws IOException {
+        if (escritor != null) {
+            escritor.guardar();
+            logg.info("Grabacion guardada en {}: {} respuestas", archivo.toAbsolutePath(), escritor.getEntradas());
+        }
+    }
+
+    public Modo getModo() {
+        return modo;
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    /**
+     * @return respuestas distintas en el archivo
+     */
+    public int getEntradas() {
+        return escritor != null ? escritor.getEntradas() : grabacion.getEntradas();
+    }
+
+    /**
+     * @return solicitudes grabadas o respondidas desde la grabacion
+     */
+    public long getRespondidas() {
+        return respondidas.get();
+    }
+
+    /**
+     * @return solicitudes sin respuesta grabada al reproducir
+     */
+    public long getFaltantes() {
+        return faltantes.get();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (escritor != null) {
+            escritor.close();
+            logg.info("Grabacion cerrada en {}: {} respuestas", archivo.toAbsolutePath(), escritor.getEntradas());
+        }
+    }
+}
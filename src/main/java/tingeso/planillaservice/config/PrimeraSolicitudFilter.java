@@ -0,0 +1,55 @@
+package tingeso.planillaservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el tiempo desde el inicio de la JVM hasta que se responde la primera solicitud que no es
+ * de actuator (las sondas de Kubernetes no cuentan). Se publica en planilla.arranque.primera.solicitud.
+ */
+@Component
+public class PrimeraSolicitudFilter extends OncePerRequestFilter {
+    private final Logger logg = LoggerFactory.getLogger(PrimeraSolicitudFilter.class);
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private volatile boolean atendida;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (!atendida && !request.getRequestURI().startsWith("/actuator")) {
+                registrar(request.getRequestURI());
+            }
+        }
+    }
+
+    private synchronized void registrar(String uri) {
+        if (atendida) {
+            return;
+        }
+        atendida = true;
+        long milisegundos = ManagementFactory.getRuntimeMXBean().getUptime();
+        TimeGauge.builder("planilla.arranque.primera.solicitud", () -> milisegundos, TimeUnit.MILLISECONDS)
+                .description("Tiempo desde el inicio de la JVM hasta la primera solicitud respondida")
+                .register(meterRegistry);
+        logg.info("Primera solicitud ({}) respondida a los {} ms del inicio de la JVM", uri, milisegundos);
+    }
+}
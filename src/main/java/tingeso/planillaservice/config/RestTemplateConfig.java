@@ -1,16 +1,129 @@
 package tingeso.planillaservice.config;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import tingeso.planillaservice.service.PresupuestoLatencia.PresupuestoAgotadoException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
+@EnableConfigurationProperties(ClienteHttpProperties.class)
 public class RestTemplateConfig {
 
+    /**
+     * Pool de conexiones HTTP reutilizables hacia las instancias de los otros servicios
+     */
+    @Bean
+    public PoolingHttpClientConnectionManager conexionesHttp(ClienteHttpProperties http, MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager conexiones = new PoolingHttpClientConnectionManager();
+        conexiones.setMaxTotal(http.getMaxConexiones());
+        conexiones.setDefaultMaxPerRoute(http.getMaxConexionesPorHost());
+        conexiones.setValidateAfterInactivity(2000);
+        new PoolingHttpClientConnectionManagerMetricsBinder(conexiones, "planilla").bindTo(meterRegistry);
+        return conexiones;
+    }
+
+    @Bean
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager conexionesHttp, ClienteHttpProperties http) {
+        long keepAlive = http.getKeepAlive().toMillis();
+        return HttpClients.custom()
+                .setConnectionManager(conexionesHttp)
+                .setDefaultRequestConfig(configuracionBase(http))
+                // Respeta el Keep-Alive del servidor; si no lo indica, usa el configurado
+                .setKeepAliveStrategy((response, context) -> {
+                    long servidor = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return servidor > 0 ? Math.min(servidor, keepAlive) : keepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
+                // Los reintentos los hace RestTemplateResiliente, con circuit breaker
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    /**
+     * Circuit breaker por servicio: cuenta como fallo los errores de conexion, timeouts y respuestas 5xx.
+     * Una llamada cortada por el presupuesto de latencia del proveedor no se cuenta: el servicio no fallo.
+     */
+    @Bean
+    public CircuitBreakerRegistry circuitosHttp(ClienteHttpProperties http, MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry circuitos = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(http.getCircuito().getUmbralFallos())
+                .slidingWindowSize(http.getCircuito().getVentana())
+                .minimumNumberOfCalls(Math.min(10, http.getCircuito().getVentana()))
+                .waitDurationInOpenState(http.getCircuito().getEsperaAbierto())
+                .recordException(e -> (e instanceof ResourceAccessException && !(e instanceof PresupuestoAgotadoException))
+                        || e instanceof HttpServerErrorException)
+                .ignoreExceptions(PresupuestoAgotadoException.class)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitos).bindTo(meterRegistry);
+        return circuitos;
+    }
+
+    @Bean
+    public RetryRegistry reintentosHttp(ClienteHttpProperties http, MeterRegistry meterRegistry) {
+        RetryRegistry reintentos = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(http.getReintentos().getIntentos())
+                .intervalFunction(IntervalFunction.ofExponentialBackoff(http.getReintentos().getEspera(), 2))
+                .retryOnException(e -> (e instanceof ResourceAccessException && !(e instanceof PresupuestoAgotadoException))
+                        || e instanceof HttpServerErrorException)
+                .build());
+        TaggedRetryMetrics.ofRetryRegistry(reintentos).bindTo(meterRegistry);
+        return reintentos;
+    }
+
+    /**
+     * Grabacion o reproduccion de las respuestas remotas, segun planilla.grabacion.modo (grabar, reproducir)
+     */
+    @Bean
+    @ConditionalOnExpression("!'${planilla.grabacion.modo:ninguno}'.equalsIgnoreCase('ninguno')")
+    public GrabacionInterceptor grabacionHttp(@Value("${planilla.grabacion.modo}") GrabacionInterceptor.Modo modo,
+                                              @Value("${planilla.grabacion.archivo:grabaciones/planilla.grab}") Path archivo)
+            throws IOException {
+        return new GrabacionInterceptor(modo, archivo);
+    }
+
     @Bean
     @LoadBalanced
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient httpClient, ClienteHttpProperties http,
+                                     CircuitBreakerRegistry circuitosHttp, RetryRegistry reintentosHttp,
+                                     ObjectProvider<GrabacionInterceptor> grabacionHttp) {
+        RestTemplate restTemplate = new RestTemplateResiliente(circuitosHttp, reintentosHttp);
+        restTemplate.setRequestFactory(new FabricaSolicitudesHttp(httpClient, configuracionBase(http), http.getTimeouts()));
+        // Antes del interceptor de balanceo, que se agrega despues de crear el RestTemplate
+        grabacionHttp.ifAvailable(restTemplate.getInterceptors()::add);
+        return restTemplate;
+    }
+
+    private static RequestConfig configuracionBase(ClienteHttpProperties http) {
+        return RequestConfig.custom()
+                .setConnectTimeout((int) http.getTimeoutConexion().toMillis())
+                .setConnectionRequestTimeout((int) http.getTimeoutPool().toMillis())
+                .setSocketTimeout((int) http.getTimeoutLectura().toMillis())
+                .build();
     }
 }
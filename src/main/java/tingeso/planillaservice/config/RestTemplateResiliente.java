@@ -0,0 +1,51 @@
+package tingeso.planillaservice.config;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import tingeso.planillaservice.service.PresupuestoLatencia;
+
+import java.net.URI;
+import java.util.function.Supplier;
+
+/**
+ * RestTemplate que ejecuta cada llamada con un circuit breaker y reintentos acotados por servicio.
+ * Envuelve la ejecucion completa, antes del balanceo de carga, asi que cada reintento
+ * puede ir a otra instancia del servicio.
+ */
+public class RestTemplateResiliente extends RestTemplate {
+    private final CircuitBreakerRegistry circuitos;
+    private final RetryRegistry reintentos;
+
+    public RestTemplateResiliente(CircuitBreakerRegistry circuitos, RetryRegistry reintentos) {
+        this.circuitos = circuitos;
+        this.reintentos = reintentos;
+    }
+
+    @Override
+    @Nullable
+    protected <T> T doExecute(URI url, @Nullable HttpMethod method, @Nullable RequestCallback requestCallback,
+                              @Nullable ResponseExtractor<T> responseExtractor) throws RestClientException {
+        String servicio = url.getHost() != null ? url.getHost() : "desconocido";
+        CircuitBreaker circuito = circuitos.circuitBreaker(servicio);
+        Retry reintento = reintentos.retry(servicio);
+        Supplier<T> llamada = () -> {
+            PresupuestoLatencia.verificar(servicio);
+            return circuito.executeSupplier(() -> super.doExecute(url, method, requestCallback, responseExtractor));
+        };
+        try {
+            return reintento.executeSupplier(llamada);
+        } catch (CallNotPermittedException e) {
+            throw new ResourceAccessException("Circuito abierto para " + servicio + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package tingeso.planillaservice.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tarifas de pago configuradas bajo planilla.tarifas. Los valores por defecto son las tarifas
+ * originales, asi que sin configuracion el calculo no cambia.
+ */
+@Data
+public class TarifasProperties {
+    /**
+     * Version de las tarifas; si esta vacia se usa un hash de su contenido
+     */
+    private String version;
+
+    /**
+     * Pago por kilo de leche segun la categoria del proveedor
+     */
+    private Map<String, Double> categorias = new LinkedHashMap<>(Map.of("A", 700.0, "B", 550.0, "C", 400.0, "D", 250.0));
+
+    /**
+     * Pago por kilo de leche segun el porcentaje de grasa
+     */
+    private List<Tramo> grasa = new ArrayList<>(List.of(
+            new Tramo(0, true, 20.0, 30),
+            new Tramo(21, true, 45.0, 80),
+            new Tramo(46, true, null, 120)));
+
+    /**
+     * Pago por kilo de leche segun el porcentaje de solidos totales
+     */
+    private List<Tramo> solidos = new ArrayList<>(List.of(
+            new Tramo(0, true, 7.0, -130),
+            new Tramo(8, true, 18.0, -90),
+            new Tramo(19, true, 35.0, 95),
+            new Tramo(36, true, null, 150)));
+
+    /**
+     * Porcentaje de descuento segun la variacion de leche
+     */
+    private List<Tramo> descuentoVariacionLeche = new ArrayList<>(List.of(
+            new Tramo(0, true, 8.0, 0),
+            new Tramo(9, false, 25.0, 7),
+            new Tramo(25, false, 45.0, 15),
+            new Tramo(46, false, null, 30)));
+
+    /**
+     * Porcentaje de descuento segun la variacion de grasa
+     */
+    private List<Tramo> descuentoVariacionGrasa = new ArrayList<>(List.of(
+            new Tramo(0, true, 15.0, 0),
+            new Tramo(15, false, 25.0, 12),
+            new Tramo(25, false, 40.0, 20),
+            new Tramo(40, false, null, 30)));
+
+    /**
+     * Porcentaje de descuento segun la variacion de solidos totales
+     */
+    private List<Tramo> descuentoVariacionSolidos = new ArrayList<>(List.of(
+            new Tramo(0, true, 6.0, 0),
+            new Tramo(6, false, 12.0, 18),
+            new Tramo(12, false, 35.0, 27),
+            new Tramo(35, false, null, 45)));
+
+    private Retencion retencion = new Retencion();
+
+    /**
+     * Tramo de valores con su tarifa. Los valores fuera de todos los tramos tienen tarifa 0.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Tramo {
+        private double desde;
+        /**
+         * false si el tramo empieza en los valores mayores que desde
+         */
+        private boolean incluyeDesde = true;
+        /**
+         * Limite superior incluido, null si el tramo no tiene limite
+         */
+        private Double hasta;
+        private double valor;
+    }
+
+    @Data
+    public static class Retencion {
+        /**
+         * Se retiene a los pagos mayores que este limite
+         */
+        private double limite = 950000;
+        private double porcentaje = 13;
+    }
+}
@@ -0,0 +1,72 @@
+package tingeso.planillaservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import tingeso.planillaservice.entity.CuarentenaProveedor;
+import tingeso.planillaservice.entity.EjecucionPlanilla;
+import tingeso.planillaservice.entity.Planilla;
+import tingeso.planillaservice.model.ProgresoEjecucion;
+import tingeso.planillaservice.model.Quincena;
+import tingeso.planillaservice.service.EjecucionService;
+
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/planilla/ejecuciones")
+public class EjecucionController {
+    @Autowired
+    EjecucionService ejecucionService;
+
+    @PostMapping
+    public ResponseEntity<ProgresoEjecucion> iniciar(@RequestParam String quincena,
+                                                     @RequestParam(required = false) String hasta,
+                                                     @RequestParam(defaultValue = "false") boolean distribuida){
+        EjecucionPlanilla ejecucion;
+        if(hasta != null){
+            Quincena desde = Quincena.tryParse(quincena);
+            Quincena ultima = Quincena.tryParse(hasta);
+            if(desde == null || ultima == null || ultima.compareTo(desde) < 0 || distribuida)
+                return ResponseEntity.badRequest().build();
+            ejecucion = ejecucionService.iniciarHistorico(desde, ultima);
+        } else {
+            Quincena leida = Quincena.tryParse(quincena);
+            if(leida == null)
+                return ResponseEntity.badRequest().build();
+            ejecucion = ejecucionService.iniciar(leida.toString(), distribuida);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ProgresoEjecucion.of(ejecucion));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ProgresoEjecucion> getProgreso(@PathVariable Integer id){
+        return ResponseEntity.of(ejecucionService.getEjecucion(id).map(ProgresoEjecucion::of));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ProgresoEjecucion> cancelar(@PathVariable Integer id){
+        return ResponseEntity.of(ejecucionService.cancelar(id).map(ProgresoEjecucion::of));
+    }
+
+    @GetMapping("/{id}/cuarentena")
+    public ResponseEntity<List<CuarentenaProveedor>> getCuarentena(@PathVariable Integer id){
+        if(ejecucionService.getEjecucion(id).isEmpty())
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(ejecucionService.getCuarentena(id));
+    }
+
+    @GetMapping("/{id}/resultados")
+    public ResponseEntity<List<Planilla>> getResultados(@PathVariable Integer id){
+        Optional<EjecucionPlanilla> ejecucion = ejecucionService.getEjecucion(id);
+        if(ejecucion.isEmpty())
+            return ResponseEntity.notFound().build();
+        if(ejecucion.get().getEstado() != EjecucionPlanilla.Estado.COMPLETADA)
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        List<Planilla> planillas = ejecucionService.getResultados(ejecucion.get());
+        if(planillas.isEmpty())
+            return ResponseEntity.noContent().build();
+        return ResponseEntity.ok(planillas);
+    }
+}
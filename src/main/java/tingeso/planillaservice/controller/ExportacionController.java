@@ -0,0 +1,58 @@
+package tingeso.planillaservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tingeso.planillaservice.model.Quincena;
+import tingeso.planillaservice.model.ResultadoExportacion;
+import tingeso.planillaservice.service.ExportacionPlanillaService;
+import tingeso.planillaservice.service.ExportacionPlanillaService.Formato;
+
+@RestController
+@RequestMapping("/planilla/exportacion")
+public class ExportacionController {
+    @Autowired
+    ExportacionPlanillaService exportacionService;
+
+    @GetMapping
+    public ResponseEntity<?> exportar(@RequestParam String quincena,
+                                      @RequestParam(defaultValue = "csv") String formato,
+                                      @RequestParam(defaultValue = "false") boolean gzip){
+        Formato tipo = Formato.desde(formato);
+        Quincena leida = Quincena.tryParse(quincena);
+        if(tipo == null || leida == null)
+            return ResponseEntity.badRequest().build();
+        String canonica = leida.toString();
+        try{
+            exportacionService.verificar(canonica, tipo);
+        }catch(IllegalArgumentException e){
+            return ResponseEntity.unprocessableEntity().body(e.getMessage());
+        }
+        StreamingResponseBody cuerpo = salida -> exportacionService.exportar(canonica, tipo, gzip, salida);
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.parseMediaType(tipo.getTipo()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(exportacionService.nombreArchivo(canonica, tipo, gzip)).build().toString())
+                .body(cuerpo);
+    }
+
+    @PostMapping("/archivo")
+    public ResponseEntity<?> exportarArchivo(@RequestParam String quincena,
+                                             @RequestParam(defaultValue = "csv") String formato,
+                                             @RequestParam(defaultValue = "false") boolean gzip){
+        Formato tipo = Formato.desde(formato);
+        Quincena leida = Quincena.tryParse(quincena);
+        if(tipo == null || leida == null)
+            return ResponseEntity.badRequest().build();
+        try{
+            ResultadoExportacion resultado = exportacionService.exportarArchivo(leida.toString(), tipo, gzip);
+            return ResponseEntity.ok(resultado);
+        }catch(IllegalArgumentException e){
+            return ResponseEntity.unprocessableEntity().body(e.getMessage());
+        }
+    }
+}
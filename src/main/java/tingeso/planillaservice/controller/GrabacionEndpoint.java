@@ -0,0 +1,39 @@
+package tingeso.planillaservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import tingeso.planillaservice.config.GrabacionInterceptor;
+import tingeso.planillaservice.model.EstadoGrabacion;
+
+import java.io.IOException;
+
+/**
+ * Endpoint de actuator /actuator/grabacion: estado de la grabacion de respuestas remotas,
+ * y POST para escribir el indice sin detener el servicio
+ */
+@Component
+@Endpoint(id = "grabacion")
+public class GrabacionEndpoint {
+    @Autowired(required = false)
+    GrabacionInterceptor grabacion;
+
+    @ReadOperation
+    public EstadoGrabacion estado() {
+        if (grabacion == null) {
+            return new EstadoGrabacion("ninguno", null, 0, 0, 0);
+        }
+        return new EstadoGrabacion(grabacion.getModo().name().toLowerCase(), grabacion.getArchivo().toAbsolutePath().toString(),
+                grabacion.getEntradas(), grabacion.getRespondidas(), grabacion.getFaltantes());
+    }
+
+    @WriteOperation
+    public EstadoGrabacion guardar() throws IOException {
+        if (grabacion != null) {
+            grabacion.guardar();
+        }
+        return estado();
+    }
+}
@@ -1,25 +1,156 @@
 package tingeso.planillaservice.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import tingeso.planillaservice.entity.Planilla;
+import tingeso.planillaservice.model.FiltroPlanilla;
+import tingeso.planillaservice.model.PaginaPlanillas;
+import tingeso.planillaservice.model.Quincena;
+import tingeso.planillaservice.model.RespuestaSerializada;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.service.ConsultaPlanillaService;
+import tingeso.planillaservice.service.CoordinadorCalculo;
 import tingeso.planillaservice.service.PlanillaService;
+import tingeso.planillaservice.service.ProgresoCalculo;
+import tingeso.planillaservice.service.RespuestasPlanillaCache;
 import java.util.List;
 
 @RestController
 @RequestMapping("/planilla")
 public class PlanillaController {
+    static final int LIMITE_PAGINA = 1000;
+    static final String VERSION = "X-Version-Planilla";
+
     @Autowired
     PlanillaService planillaService;
 
+    @Autowired
+    ConsultaPlanillaService consultaPlanillaService;
+
+    @Autowired
+    CoordinadorCalculo coordinadorCalculo;
+
+    @Autowired
+    RespuestasPlanillaCache respuestasCache;
+
+    /**
+     * Todas las planillas, o las de un rango de quincenas con desde y hasta. Con quincena responde getQuincena.
+     */
     @GetMapping
-    public ResponseEntity<List<Planilla>> getAll(){
-        planillaService.deleteAll();
-        planillaService.calcularPagoFinal();
-        List<Planilla> planillas = planillaService.getAllPlanillas();
+    public ResponseEntity<List<Planilla>> getAll(@RequestParam(required = false) String desde,
+                                                 @RequestParam(required = false) String hasta){
+        List<Planilla> planillas;
+        if(desde != null && hasta != null){
+            Quincena primera = Quincena.tryParse(desde);
+            Quincena ultima = Quincena.tryParse(hasta);
+            if(primera == null || ultima == null || ultima.compareTo(primera) < 0)
+                return ResponseEntity.badRequest().build();
+            planillas = planillaService.getPlanillasEntreQuincenas(primera.toString(), ultima.toString());
+        }
+        else
+            planillas = planillaService.getAllPlanillas();
         if(planillas.isEmpty())
             return ResponseEntity.noContent().build();
         return ResponseEntity.ok(planillas);
     }
+
+    /**
+     * Planillas de una quincena, ya serializadas. Con If-None-Match de la version vigente responde 304
+     * sin leer las planillas. La quincena no se combina con un rango: desde o hasta responden 400.
+     */
+    @GetMapping(params = "quincena")
+    public ResponseEntity<?> getQuincena(@RequestParam String quincena,
+                                         @RequestParam(required = false) String desde,
+                                         @RequestParam(required = false) String hasta,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String aceptaCodificacion,
+                                         WebRequest solicitud){
+        Quincena leida = Quincena.tryParse(quincena);
+        if(leida == null || desde != null || hasta != null)
+            return ResponseEntity.badRequest().build();
+        quincena = leida.toString();
+        if(solicitud.checkNotModified(respuestasCache.etagVigente(quincena)))
+            return null;
+        RespuestaSerializada respuesta = respuestasCache.get(quincena);
+        if(respuesta.getPlanillas() == 0)
+            return ResponseEntity.noContent().build();
+        boolean gzip = respuesta.tieneGzip() && aceptaCodificacion != null && aceptaCodificacion.contains("gzip");
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(respuesta.getEtag())
+                .header(VERSION, String.valueOf(respuesta.getVersion()))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(respuesta.largo(gzip));
+        if(gzip)
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return builder.body(respuesta.cuerpo(gzip));
+    }
+
+    @GetMapping("/pagina")
+    public ResponseEntity<PaginaPlanillas> getPagina(FiltroPlanilla filtro,
+                                                     @RequestParam(required = false) Integer despuesDe,
+                                                     @RequestParam(defaultValue = "100") int limite){
+        if(!canonica(filtro))
+            return ResponseEntity.badRequest().build();
+        int limiteValido = Math.max(1, Math.min(limite, LIMITE_PAGINA));
+        return ResponseEntity.ok(consultaPlanillaService.getPagina(filtro, despuesDe, limiteValido));
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> getStream(FiltroPlanilla filtro,
+                                                           @RequestParam(defaultValue = "ndjson") String formato){
+        if(!canonica(filtro))
+            return ResponseEntity.badRequest().build();
+        boolean ndjson = !formato.equalsIgnoreCase("json");
+        StreamingResponseBody cuerpo = salida -> consultaPlanillaService.escribir(filtro, salida, ndjson);
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.parseMediaType("application/x-ndjson") : MediaType.APPLICATION_JSON)
+                .body(cuerpo);
+    }
+
+    /**
+     * Deja la quincena del filtro en su forma canonica, como la guardan las planillas
+     * @return false si la quincena no es valida
+     */
+    private static boolean canonica(FiltroPlanilla filtro){
+        if(filtro.getQuincena() == null)
+            return true;
+        Quincena leida = Quincena.tryParse(filtro.getQuincena());
+        if(leida == null)
+            return false;
+        filtro.setQuincena(leida.toString());
+        return true;
+    }
+
+    @PostMapping("/calcular")
+    public ResponseEntity<ResultadoCalculo> calcular(@RequestParam(required = false) String quincena){
+        if(quincena == null)
+            return ResponseEntity.ok(coordinadorCalculo.calcular(null, ProgresoCalculo.NINGUNO));
+        Quincena leida = Quincena.tryParse(quincena);
+        if(leida == null)
+            return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(coordinadorCalculo.calcular(leida.toString(), ProgresoCalculo.NINGUNO));
+    }
+
+    @PostMapping("/periodos/reemplazar")
+    public ResponseEntity<ResultadoCalculo> reemplazar(@RequestParam String quincena){
+        Quincena leida = Quincena.tryParse(quincena);
+        if(leida == null)
+            return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(coordinadorCalculo.reemplazar(leida.toString(), ProgresoCalculo.NINGUNO));
+    }
+
+    @DeleteMapping("/periodos")
+    public ResponseEntity<Void> eliminar(@RequestParam String quincena){
+        Quincena leida = Quincena.tryParse(quincena);
+        if(leida == null)
+            return ResponseEntity.badRequest().build();
+        coordinadorCalculo.eliminar(leida.toString());
+        return ResponseEntity.noContent().build();
+    }
 }
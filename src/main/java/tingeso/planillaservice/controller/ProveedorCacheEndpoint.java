@@ -0,0 +1,36 @@
+package tingeso.planillaservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+import tingeso.planillaservice.service.ProveedorCache;
+
+import java.util.Map;
+
+/**
+ * Endpoint de actuator /actuator/proveedorcache para revisar y vaciar la cache de proveedores
+ */
+@Component
+@Endpoint(id = "proveedorcache")
+public class ProveedorCacheEndpoint {
+    @Autowired
+    ProveedorCache proveedorCache;
+
+    @ReadOperation
+    public Map<String, Object> estadisticas() {
+        return proveedorCache.estadisticas();
+    }
+
+    @DeleteOperation
+    public void vaciar() {
+        proveedorCache.invalidarTodo();
+    }
+
+    @DeleteOperation
+    public void invalidar(@Selector String codigoProveedor) {
+        proveedorCache.invalidar(codigoProveedor);
+    }
+}
@@ -0,0 +1,40 @@
+package tingeso.planillaservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import tingeso.planillaservice.model.HistorialProveedor;
+import tingeso.planillaservice.model.Quincena;
+import tingeso.planillaservice.model.ResumenQuincena;
+import tingeso.planillaservice.service.ResumenesPlanillaService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/planilla/resumenes")
+public class ResumenController {
+    @Autowired
+    ResumenesPlanillaService resumenesService;
+
+    @GetMapping(params = "quincena")
+    public ResponseEntity<ResumenQuincena> getQuincena(@RequestParam String quincena){
+        Quincena leida = Quincena.tryParse(quincena);
+        if(leida == null)
+            return ResponseEntity.badRequest().build();
+        return ResponseEntity.of(resumenesService.getResumen(leida.toString()));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ResumenQuincena>> getRango(@RequestParam String desde, @RequestParam String hasta){
+        Quincena primera = Quincena.tryParse(desde);
+        Quincena ultima = Quincena.tryParse(hasta);
+        if(primera == null || ultima == null || ultima.compareTo(primera) < 0)
+            return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(resumenesService.getResumenes(primera.toString(), ultima.toString()));
+    }
+
+    @GetMapping("/proveedores/{codigoProveedor}")
+    public ResponseEntity<HistorialProveedor> getProveedor(@PathVariable String codigoProveedor){
+        return ResponseEntity.of(resumenesService.getHistorial(codigoProveedor));
+    }
+}
@@ -0,0 +1,24 @@
+package tingeso.planillaservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import tingeso.planillaservice.service.TarifasService;
+
+import java.util.Map;
+
+/**
+ * Endpoint de actuator /actuator/tarifas con la version de las tarifas vigentes
+ */
+@Component
+@Endpoint(id = "tarifas")
+public class TarifasEndpoint {
+    @Autowired
+    TarifasService tarifasService;
+
+    @ReadOperation
+    public Map<String, Object> version() {
+        return Map.of("version", tarifasService.getTabla().getVersion());
+    }
+}
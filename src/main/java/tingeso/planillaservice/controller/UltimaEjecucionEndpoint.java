@@ -0,0 +1,23 @@
+package tingeso.planillaservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import tingeso.planillaservice.model.ResumenUltimaEjecucion;
+import tingeso.planillaservice.service.MetricasPlanilla;
+
+/**
+ * Endpoint de actuator /actuator/ultimaejecucion con el tiempo por etapa del ultimo calculo de planillas
+ */
+@Component
+@Endpoint(id = "ultimaejecucion")
+public class UltimaEjecucionEndpoint {
+    @Autowired
+    MetricasPlanilla metricas;
+
+    @ReadOperation
+    public ResumenUltimaEjecucion ultimaEjecucion() {
+        return metricas.getUltimaEjecucion();
+    }
+}
@@ -0,0 +1,36 @@
+package tingeso.planillaservice.entity;
+
+import javax.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Punto de control de una ejecucion: proveedores ya terminados, que no se vuelven a calcular si la
+ * ejecucion se reanuda. Los recalculados se registran en la misma transaccion que guarda sus planillas.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_avance_ejecucion_ejecucion", columnList = "ejecucion_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvanceEjecucion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "ejecucion_id")
+    private Integer ejecucionId;
+    /**
+     * Codigos de proveedor separados por coma
+     */
+    @Column(columnDefinition = "text")
+    private String proveedores;
+    /**
+     * true si las planillas de los proveedores se recalcularon y guardaron, false si no tenian cambios
+     */
+    private boolean recalculados;
+    private LocalDateTime creado;
+}
@@ -0,0 +1,31 @@
+package tingeso.planillaservice.entity;
+
+import javax.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proveedor cuyo calculo fallo en una ejecucion, con el error. La ejecucion sigue con el resto y,
+ * si se reanuda, no lo vuelve a intentar; una ejecucion nueva si lo calcula.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_cuarentena_proveedor_ejecucion", columnList = "ejecucion_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CuarentenaProveedor {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "ejecucion_id")
+    private Integer ejecucionId;
+    private String quincena;
+    private String codigoProveedor;
+    @Column(length = 2000)
+    private String error;
+    private LocalDateTime fecha;
+}
@@ -0,0 +1,53 @@
+package tingeso.planillaservice.entity;
+
+import javax.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EjecucionPlanilla {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    private String quincena;
+    /**
+     * Ultima quincena de un recalculo historico, null si se calcula solo quincena
+     */
+    private String quincenaHasta;
+    @Enumerated(EnumType.STRING)
+    private Estado estado;
+    private int totalProveedores;
+    private int procesados;
+    private int recalculados;
+    private int sinCambios;
+    private int fallidos;
+    private LocalDateTime inicio;
+    private LocalDateTime actualizado;
+    private LocalDateTime fin;
+    private String instancia;
+    /**
+     * true si los proveedores se reparten en particiones entre las instancias
+     */
+    private boolean distribuida;
+    /**
+     * Veces que otra instancia retomo la ejecucion porque la instancia que la calculaba dejo de actualizarla
+     */
+    private int reanudaciones;
+    @Column(length = 2000)
+    private String error;
+
+    public enum Estado {
+        PENDIENTE, EN_EJECUCION, CANCELANDO, CANCELADA, COMPLETADA, FALLIDA;
+
+        public boolean terminado() {
+            return this == CANCELADA || this == COMPLETADA || this == FALLIDA;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package tingeso.planillaservice.entity;
+
+import javax.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Parte de los proveedores de una ejecucion distribuida. Una instancia la toma con un arriendo
+ * hasta vencimiento; si no la completa antes, otra instancia puede volver a tomarla.
+ * intentos aumenta en cada toma y se usa para que solo el ultimo arriendo pueda completarla.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"ejecucion_id", "numero"}),
+        indexes = @Index(name = "idx_particion_planilla_ejecucion_estado", columnList = "ejecucion_id, estado"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParticionPlanilla {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "ejecucion_id")
+    private Integer ejecucionId;
+    private int numero;
+    private String quincena;
+    /**
+     * Codigos de proveedor separados por coma
+     */
+    @Column(columnDefinition = "text")
+    private String proveedores;
+    private int cantidad;
+    @Enumerated(EnumType.STRING)
+    private Estado estado;
+    private String instancia;
+    private int intentos;
+    private LocalDateTime vencimiento;
+    private int recalculados;
+    private int sinCambios;
+    private int fallidos;
+
+    public enum Estado {
+        PENDIENTE, TOMADA, COMPLETADA, FALLIDA
+    }
+}
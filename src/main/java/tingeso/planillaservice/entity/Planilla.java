@@ -1,38 +1,79 @@
 package tingeso.planillaservice.entity;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import javax.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * Planilla de pago de un proveedor en una quincena.
+ * Los montos, kilos y porcentajes se guardan como columnas numericas y se
+ * serializan como texto para mantener el formato JSON original.
+ */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"quincena", "codigo_proveedor"}),
+        indexes = {
+                @Index(name = "idx_planilla_codigo_proveedor", columnList = "codigo_proveedor, id"),
+                @Index(name = "idx_planilla_quincena_id", columnList = "quincena, id")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Planilla {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "planilla_seq")
+    @SequenceGenerator(name = "planilla_seq", sequenceName = "planilla_seq", allocationSize = 50)
     private Integer id;
 
     private String quincena;
+    @Column(name = "codigo_proveedor")
     private String codigoProveedor;
     private String nombreProveedor;
-    private String klsTotalLeche;
-    private String diasEnvioLeche;
-    private String promedioKilosLecheDiario;
-    private String porcentajeFrecuenciaDiariaEnvioLeche;
-    private String porcentajeGrasa;
-    private String porcentajeVariacionGrasa;
-    private String porcentajeSolidoTotal;
-    private String porcentajeVariacionSolidoTotal;
-    private String pagoPorLeche;
-    private String pagoPorGrasa;
-    private String pagoPorSolidosTotales;
-    private String bonificacionPorFrecuencia;
-    private String dctoVariacionLeche;
-    private String dctoVariacionGrasa;
-    private String dctoVariacionST;
-    private String pagoTotal;
-    private String montoRetencion;
-    private String montoFinal;
+    /**
+     * Categoria del proveedor con la que se calculo, para los resumenes por categoria
+     */
+    @JsonIgnore
+    private String categoria;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double klsTotalLeche;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double diasEnvioLeche;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double promedioKilosLecheDiario;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double porcentajeFrecuenciaDiariaEnvioLeche;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private int porcentajeGrasa;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double porcentajeVariacionGrasa;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private int porcentajeSolidoTotal;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double porcentajeVariacionSolidoTotal;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double pagoPorLeche;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double pagoPorGrasa;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double pagoPorSolidosTotales;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double bonificacionPorFrecuencia;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double dctoVariacionLeche;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double dctoVariacionGrasa;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double dctoVariacionST;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double pagoTotal;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private double montoRetencion;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    @Column(name = "monto_final")
+    private double montoFinal;
+    private String versionTarifas;
+    @JsonIgnore
+    private String huella;
 }
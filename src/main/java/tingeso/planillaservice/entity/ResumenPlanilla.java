@@ -0,0 +1,43 @@
+package tingeso.planillaservice.entity;
+
+import javax.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Totales de las planillas guardadas de una quincena y categoria de proveedor. Se actualizan con la
+ * diferencia de cada planilla en la misma transaccion que la guarda, sin volver a sumar la quincena.
+ * Los montos son decimales con 4 digitos para que sumar y restar la misma planilla no acumule error.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"quincena", "categoria"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenPlanilla {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false)
+    private String quincena;
+    /**
+     * Categoria del proveedor; vacia para planillas guardadas antes de registrar la categoria
+     */
+    @Column(nullable = false)
+    private String categoria;
+    private int proveedores;
+    @Column(precision = 20, scale = 4)
+    private BigDecimal klsTotalLeche;
+    @Column(precision = 20, scale = 4)
+    private BigDecimal pagoTotal;
+    @Column(precision = 20, scale = 4)
+    private BigDecimal montoRetencion;
+    @Column(precision = 20, scale = 4)
+    private BigDecimal montoFinal;
+    private LocalDateTime actualizado;
+}
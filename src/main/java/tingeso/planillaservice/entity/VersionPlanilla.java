@@ -0,0 +1,23 @@
+package tingeso.planillaservice.entity;
+
+import javax.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version de las planillas de una quincena. Aumenta cada vez que termina un calculo de la quincena
+ * en cualquier instancia, y asi cada instancia sabe si su copia en memoria sigue vigente.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionPlanilla {
+    @Id
+    private String quincena;
+    private long version;
+    private LocalDateTime actualizado;
+}
@@ -13,5 +13,5 @@ public class Acopio {
     private String turno;
     private String proveedor;
     @Column(name = "kls_leche")
-    private String klsLeche;
+    private int klsLeche;
 }
@@ -0,0 +1,52 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tingeso.planillaservice.repository.PlanillaRepository.HuellaPlanilla;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Datos precargados para una ejecucion de planillas, agrupados en memoria por codigo de proveedor.
+ * Los acopios y proveedores que no se precargaron se consultan proveedor por proveedor.
+ */
+@Getter
+@AllArgsConstructor
+public class DatosQuincena {
+    private final Map<String, Map<String, ResumenAcopios>> acopiosPorQuincena;
+    private final Map<String, Proveedor> proveedores;
+    private final Map<String, Map<String, HuellaPlanilla>> planillasGuardadas;
+    private final IndiceLaboratorio laboratorios;
+    private final int llamadasRealizadas;
+    private final int llamadasEvitadas;
+
+    /**
+     * Obtiene el resumen de los acopios precargados de un proveedor
+     * @param quincena Quincena de los acopios
+     * @param codigoProveedor Codigo del proveedor
+     * @return resumen de acopios del proveedor, null si sus acopios de la quincena no fueron precargados
+     */
+    public ResumenAcopios getResumenAcopios(String quincena, String codigoProveedor) {
+        return acopiosPorQuincena.getOrDefault(quincena, Collections.emptyMap()).get(codigoProveedor);
+    }
+
+    /**
+     * Obtiene un proveedor precargado
+     * @param codigoProveedor Codigo del proveedor
+     * @return proveedor, null si no fue precargado
+     */
+    public Proveedor getProveedor(String codigoProveedor) {
+        return proveedores.get(codigoProveedor);
+    }
+
+    /**
+     * Obtiene la huella de la planilla ya guardada de un proveedor
+     * @param quincena Quincena de la planilla
+     * @param codigoProveedor Codigo del proveedor
+     * @return huella guardada, null si el proveedor no tiene planilla en la quincena
+     */
+    public HuellaPlanilla getPlanillaGuardada(String quincena, String codigoProveedor) {
+        return planillasGuardadas.getOrDefault(quincena, Collections.emptyMap()).get(codigoProveedor);
+    }
+}
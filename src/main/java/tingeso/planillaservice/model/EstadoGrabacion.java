@@ -0,0 +1,19 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estado de la grabacion o reproduccion de respuestas remotas
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EstadoGrabacion {
+    private String modo;
+    private String archivo;
+    private int entradas;
+    private long respondidas;
+    private long faltantes;
+}
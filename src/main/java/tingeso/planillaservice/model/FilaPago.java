@@ -0,0 +1,20 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Datos de una planilla que van al archivo de pagos
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FilaPago {
+    private String quincena;
+    private String codigoProveedor;
+    private String nombreProveedor;
+    private double pagoTotal;
+    private double montoRetencion;
+    private double montoFinal;
+}
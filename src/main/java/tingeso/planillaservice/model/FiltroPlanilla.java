@@ -0,0 +1,18 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filtros opcionales de las consultas de planillas. Un filtro null no se aplica.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FiltroPlanilla {
+    private String quincena;
+    private String codigoProveedor;
+    private Double montoMinimo;
+    private Double montoMaximo;
+}
@@ -0,0 +1,37 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Planillas guardadas de un proveedor en todas las quincenas, ordenadas por quincena, con sus totales
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistorialProveedor {
+    private String codigoProveedor;
+    private String nombreProveedor;
+    private int quincenas;
+    private BigDecimal klsTotalLeche;
+    private BigDecimal pagoTotal;
+    private BigDecimal montoRetencion;
+    private BigDecimal montoFinal;
+    private List<PlanillaQuincena> historial;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class PlanillaQuincena {
+        private String quincena;
+        private String categoria;
+        private BigDecimal klsTotalLeche;
+        private BigDecimal pagoTotal;
+        private BigDecimal montoRetencion;
+        private BigDecimal montoFinal;
+    }
+}
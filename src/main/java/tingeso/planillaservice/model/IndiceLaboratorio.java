@@ -0,0 +1,63 @@
+package tingeso.planillaservice.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Datos de laboratorio indexados por proveedor y quincena, para calcular en memoria
+ * las variaciones de grasa y solidos totales respecto de la quincena anterior.
+ */
+public class IndiceLaboratorio {
+    private final Map<String, Map<String, Laboratorio>> porProveedor = new HashMap<>();
+
+    public IndiceLaboratorio(List<Laboratorio> laboratorios) {
+        for (Laboratorio laboratorio : laboratorios) {
+            porProveedor.computeIfAbsent(laboratorio.getProveedor(), p -> new HashMap<>())
+                    .put(laboratorio.getQuincena(), laboratorio);
+        }
+    }
+
+    /**
+     * @param quincena Quincena del laboratorio
+     * @param codigoProveedor Codigo del proveedor
+     * @return datos de laboratorio, null si el proveedor no tiene datos en la quincena
+     */
+    public Laboratorio get(String quincena, String codigoProveedor) {
+        Map<String, Laboratorio> laboratorios = porProveedor.get(codigoProveedor);
+        return laboratorios == null ? null : laboratorios.get(quincena);
+    }
+
+    /**
+     * Calcula la variacion de grasa respecto de la quincena anterior
+     * @param quincenaAnterior Quincena anterior, vacia si no hay quincena anterior
+     * @param codigoProveedor Codigo del proveedor
+     * @param porcentajeGrasa Porcentaje de grasa de la quincena actual
+     * @return variacion Porcentaje de disminucion de grasa, 0 si no disminuyo o no hay datos anteriores
+     */
+    public double variacionGrasa(String quincenaAnterior, String codigoProveedor, int porcentajeGrasa) {
+        Laboratorio anterior = get(quincenaAnterior, codigoProveedor);
+        return variacion(anterior == null ? porcentajeGrasa : anterior.getPorcentajeGrasa(), porcentajeGrasa);
+    }
+
+    /**
+     * Calcula la variacion de solidos totales respecto de la quincena anterior
+     * @param quincenaAnterior Quincena anterior, vacia si no hay quincena anterior
+     * @param codigoProveedor Codigo del proveedor
+     * @param porcentajeSolidoTotal Porcentaje de solidos totales de la quincena actual
+     * @return variacion Porcentaje de disminucion de solidos totales, 0 si no disminuyo o no hay datos anteriores
+     */
+    public double variacionSolidoTotal(String quincenaAnterior, String codigoProveedor, int porcentajeSolidoTotal) {
+        Laboratorio anterior = get(quincenaAnterior, codigoProveedor);
+        return variacion(anterior == null ? porcentajeSolidoTotal : anterior.getPorcentajeSolidoTotal(),
+                porcentajeSolidoTotal);
+    }
+
+    private static double variacion(double anterior, double actual) {
+        if (anterior == 0) {
+            return 0;
+        }
+        double variacion = Math.round((((anterior - actual) * 100) / anterior) * 10000) / 10000.0;
+        return variacion <= 0 ? 0 : variacion;
+    }
+}
@@ -0,0 +1,21 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import tingeso.planillaservice.entity.Planilla;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Planillas de una quincena en una version publicada. La lista no se modifica: un calculo nuevo
+ * publica otra instantanea y reemplaza a esta.
+ */
+@Data
+@AllArgsConstructor
+public class InstantaneaPlanilla {
+    private final String quincena;
+    private final long version;
+    private final LocalDateTime publicada;
+    private final List<Planilla> planillas;
+}
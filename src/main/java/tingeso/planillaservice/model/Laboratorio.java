@@ -11,8 +11,8 @@ import lombok.NoArgsConstructor;
 public class Laboratorio {
     private String proveedor;
     @Column(name = "porcentaje_grasa")
-    private String porcentajeGrasa;
+    private int porcentajeGrasa;
     @Column(name = "porcentaje_solido_total")
-    private String porcentajeSolidoTotal;
+    private int porcentajeSolidoTotal;
     private String quincena;
 }
@@ -0,0 +1,19 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tingeso.planillaservice.entity.Planilla;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaginaPlanillas {
+    private List<Planilla> planillas;
+    /**
+     * Valor de despuesDe para pedir la pagina siguiente, null si no hay mas planillas
+     */
+    private Integer siguiente;
+}
@@ -0,0 +1,15 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Evento de aplicacion: hay una version nueva de las planillas de estas quincenas
+ */
+@Data
+@AllArgsConstructor
+public class PlanillasPublicadas {
+    private final List<String> quincenas;
+}
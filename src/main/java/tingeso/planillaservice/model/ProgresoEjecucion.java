@@ -0,0 +1,64 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tingeso.planillaservice.entity.EjecucionPlanilla;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProgresoEjecucion {
+    private Integer id;
+    private String quincena;
+    private String quincenaHasta;
+    private String estado;
+    private boolean distribuida;
+    private int reanudaciones;
+    private int totalProveedores;
+    private int procesados;
+    private int recalculados;
+    private int sinCambios;
+    private int fallidos;
+    private double proveedoresPorSegundo;
+    private Long segundosRestantes;
+    private LocalDateTime inicio;
+    private LocalDateTime fin;
+    private String error;
+
+    /**
+     * Arma el progreso de una ejecucion, con su rendimiento y tiempo restante estimado
+     * @param ejecucion Ejecucion guardada
+     * @return progreso de la ejecucion
+     */
+    public static ProgresoEjecucion of(EjecucionPlanilla ejecucion) {
+        ProgresoEjecucion progreso = new ProgresoEjecucion();
+        progreso.setId(ejecucion.getId());
+        progreso.setQuincena(ejecucion.getQuincena());
+        progreso.setQuincenaHasta(ejecucion.getQuincenaHasta());
+        progreso.setEstado(ejecucion.getEstado().name());
+        progreso.setDistribuida(ejecucion.isDistribuida());
+        progreso.setReanudaciones(ejecucion.getReanudaciones());
+        progreso.setTotalProveedores(ejecucion.getTotalProveedores());
+        progreso.setProcesados(ejecucion.getProcesados());
+        progreso.setRecalculados(ejecucion.getRecalculados());
+        progreso.setSinCambios(ejecucion.getSinCambios());
+        progreso.setFallidos(ejecucion.getFallidos());
+        progreso.setInicio(ejecucion.getInicio());
+        progreso.setFin(ejecucion.getFin());
+        progreso.setError(ejecucion.getError());
+        LocalDateTime hasta = ejecucion.getFin() != null ? ejecucion.getFin() : LocalDateTime.now();
+        double segundos = Duration.between(ejecucion.getInicio(), hasta).toMillis() / 1000.0;
+        if (segundos > 0 && ejecucion.getProcesados() > 0) {
+            progreso.setProveedoresPorSegundo(ejecucion.getProcesados() / segundos);
+            if (!ejecucion.getEstado().terminado()) {
+                int pendientes = ejecucion.getTotalProveedores() - ejecucion.getProcesados();
+                progreso.setSegundosRestantes(Math.round(pendientes / progreso.getProveedoresPorSegundo()));
+            }
+        }
+        return progreso;
+    }
+}
@@ -11,6 +11,7 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 public class Proveedor {
+    private String codigo;
     private String nombre;
     private String categoria;
     private String retencion;
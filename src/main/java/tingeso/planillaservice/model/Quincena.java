@@ -0,0 +1,145 @@
+package tingeso.planillaservice.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Quincena como un entero: anio * 24 + (mes - 1) * 2 + (numero - 1).
+ * Se ordena cronologicamente y se escribe como "YYYY/MM/Qn", el formato que usan los otros servicios.
+ */
+public final class Quincena implements Comparable<Quincena> {
+    private final int codigo;
+
+    private Quincena(int codigo) {
+        this.codigo = codigo;
+    }
+
+    /**
+     * @param anio Anio, de 0 a 9999
+     * @param mes Mes, de 1 a 12
+     * @param numero 1 para los dias 1 a 15, 2 para el resto del mes
+     * @return quincena indicada
+     */
+    public static Quincena of(int anio, int mes, int numero) {
+        if (anio < 0 || anio > 9999 || mes < 1 || mes > 12 || numero < 1 || numero > 2) {
+            throw new IllegalArgumentException("Quincena invalida: " + anio + "/" + mes + "/Q" + numero);
+        }
+        return new Quincena(anio * 24 + (mes - 1) * 2 + (numero - 1));
+    }
+
+    /**
+     * @param quincena Quincena con formato "YYYY/MM/Qn"; se acepta el mes sin cero inicial
+     * @return quincena leida
+     * @throws IllegalArgumentException si el formato no es valido
+     */
+    public static Quincena parse(String quincena) {
+        Quincena leida = tryParse(quincena);
+        if (leida == null) {
+            throw new IllegalArgumentException("Quincena invalida: " + quincena);
+        }
+        return leida;
+    }
+
+    /**
+     * Igual que parse, para que Spring convierta parametros de solicitudes
+     */
+    public static Quincena valueOf(String quincena) {
+        return parse(quincena);
+    }
+
+    /**
+     * @param quincena Quincena con formato "YYYY/MM/Qn"
+     * @return quincena leida, null si el formato no es valido
+     */
+    public static Quincena tryParse(String quincena) {
+        if (quincena == null) {
+            return null;
+        }
+        int largo = quincena.length();
+        int i = 0;
+        int anio = 0;
+        int inicio = i;
+        while (i < largo && i - inicio < 4 && esDigito(quincena.charAt(i))) {
+            anio = anio * 10 + (quincena.charAt(i++) - '0');
+        }
+        if (i == inicio || i >= largo || quincena.charAt(i++) != '/') {
+            return null;
+        }
+        int mes = 0;
+        inicio = i;
+        while (i < largo && i - inicio < 2 && esDigito(quincena.charAt(i))) {
+            mes = mes * 10 + (quincena.charAt(i++) - '0');
+        }
+        if (i == inicio || i + 3 != largo || quincena.charAt(i) != '/' || quincena.charAt(i + 1) != 'Q') {
+            return null;
+        }
+        int numero = quincena.charAt(i + 2) - '0';
+        if (mes < 1 || mes > 12 || numero < 1 || numero > 2) {
+            return null;
+        }
+        return new Quincena(anio * 24 + (mes - 1) * 2 + (numero - 1));
+    }
+
+    private static boolean esDigito(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    public int getAnio() {
+        return codigo / 24;
+    }
+
+    public int getMes() {
+        return codigo % 24 / 2 + 1;
+    }
+
+    public int getNumero() {
+        return codigo % 2 + 1;
+    }
+
+    public Quincena anterior() {
+        return new Quincena(codigo - 1);
+    }
+
+    public Quincena siguiente() {
+        return new Quincena(codigo + 1);
+    }
+
+    /**
+     * @param hasta Ultima quincena, incluida
+     * @return quincenas desde esta hasta la indicada, en orden; vacia si hasta es anterior
+     */
+    public List<Quincena> hasta(Quincena hasta) {
+        List<Quincena> quincenas = new ArrayList<>(Math.max(0, hasta.codigo - codigo + 1));
+        for (int c = codigo; c <= hasta.codigo; c++) {
+            quincenas.add(new Quincena(c));
+        }
+        return quincenas;
+    }
+
+    @Override
+    public int compareTo(Quincena otra) {
+        return Integer.compare(codigo, otra.codigo);
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        return otro instanceof Quincena && ((Quincena) otro).codigo == codigo;
+    }
+
+    @Override
+    public int hashCode() {
+        return codigo;
+    }
+
+    @Override
+    public String toString() {
+        int anio = getAnio();
+        int mes = getMes();
+        char[] texto = {
+                (char) ('0' + anio / 1000), (char) ('0' + anio / 100 % 10), (char) ('0' + anio / 10 % 10),
+                (char) ('0' + anio % 10), '/', (char) ('0' + mes / 10), (char) ('0' + mes % 10), '/', 'Q',
+                (char) ('0' + getNumero())
+        };
+        return new String(texto);
+    }
+}
@@ -0,0 +1,69 @@
+package tingeso.planillaservice.model;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * JSON ya serializado de las planillas de una quincena en una version, y su version comprimida con gzip.
+ * Los arreglos no se modifican despues de crearse y se comparten entre todas las respuestas.
+ */
+public final class RespuestaSerializada {
+    private final String quincena;
+    private final long version;
+    private final String etag;
+    private final int planillas;
+    private final byte[] json;
+    private final byte[] gzip;
+
+    public RespuestaSerializada(String quincena, long version, String etag, int planillas, byte[] json, byte[] gzip) {
+        this.quincena = quincena;
+        this.version = version;
+        this.etag = etag;
+        this.planillas = planillas;
+        this.json = json;
+        this.gzip = gzip;
+    }
+
+    public String getQuincena() {
+        return quincena;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public int getPlanillas() {
+        return planillas;
+    }
+
+    public boolean tieneGzip() {
+        return gzip != null;
+    }
+
+    /**
+     * @param comprimida true para el largo de la version gzip
+     * @return largo en bytes
+     */
+    public int largo(boolean comprimida) {
+        return comprimida ? gzip.length : json.length;
+    }
+
+    /**
+     * @return bytes que ocupa en memoria
+     */
+    public int getPeso() {
+        return json.length + (gzip == null ? 0 : gzip.length);
+    }
+
+    /**
+     * @param comprimida true para la version gzip
+     * @return cuerpo de la respuesta, sin copiar los bytes
+     */
+    public Resource cuerpo(boolean comprimida) {
+        return new ByteArrayResource(comprimida ? gzip : json);
+    }
+}
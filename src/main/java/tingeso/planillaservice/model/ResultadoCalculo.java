@@ -0,0 +1,16 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultadoCalculo {
+    private int proveedores;
+    private int recalculados;
+    private int sinCambios;
+    private int fallidos;
+    private boolean cancelado;
+}
@@ -0,0 +1,15 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultadoExportacion {
+    private String archivo;
+    private long filas;
+    private long bytes;
+    private long milisegundos;
+}
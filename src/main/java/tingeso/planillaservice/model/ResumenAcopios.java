@@ -0,0 +1,107 @@
+package tingeso.planillaservice.model;
+
+import lombok.Getter;
+
+import java.util.Objects;
+
+/**
+ * Resumen de los acopios de un proveedor en una quincena, calculado en una sola pasada
+ * y sin guardar los acopios. Los acopios deben agregarse en el orden en que los entrega acopio-service.
+ */
+@Getter
+public class ResumenAcopios {
+    private int acopios;
+    private double klsTotalLeche;
+    private double diasEnvioLeche;
+    private int turnosManana;
+    private int turnosTarde;
+
+    // Estado del recorrido para contar los dias de envio igual que PlanillaService.diasEnvioLeche
+    private boolean hayPendiente;
+    private String fechaPendiente;
+    private String turnoPendiente;
+    private String fechaAnterior;
+    private String turnoAnterior;
+    private String fechaUltimo;
+    private String turnoUltimo;
+    private boolean cerrado;
+    /**
+     * Primer acopio invalido, null si todos son validos. Un resumen invalido no debe usarse en un calculo.
+     */
+    private String error;
+
+    /**
+     * @return resumen de una quincena sin acopios
+     */
+    public static ResumenAcopios vacio() {
+        return new ResumenAcopios().cerrar();
+    }
+
+    /**
+     * Agrega el siguiente acopio del proveedor
+     * @param fecha Fecha del acopio
+     * @param turno Turno del acopio, M o T
+     * @param klsLeche Kilos de leche del acopio
+     */
+    public void agregar(String fecha, String turno, int klsLeche) {
+        acopios++;
+        klsTotalLeche += klsLeche;
+        if ("M".equals(turno)) {
+            turnosManana++;
+        } else if ("T".equals(turno)) {
+            turnosTarde++;
+        }
+        if (hayPendiente) {
+            if (Objects.equals(fechaPendiente, fecha) && !Objects.equals(turnoPendiente, turno)) {
+                // Manana y tarde del mismo dia: un dia de envio, y el acopio actual no se vuelve a comparar
+                diasEnvioLeche++;
+                hayPendiente = false;
+            } else {
+                if (!Objects.equals(fechaPendiente, fecha)) {
+                    diasEnvioLeche++;
+                }
+                fechaAnterior = fechaPendiente;
+                turnoAnterior = turnoPendiente;
+                fechaPendiente = fecha;
+                turnoPendiente = turno;
+            }
+        } else {
+            hayPendiente = true;
+            fechaAnterior = fechaUltimo;
+            turnoAnterior = turnoUltimo;
+            fechaPendiente = fecha;
+            turnoPendiente = turno;
+        }
+        fechaUltimo = fecha;
+        turnoUltimo = turno;
+    }
+
+    /**
+     * Marca el resumen como invalido; se conserva el primer error
+     * @param error Motivo por el que un acopio no es valido
+     */
+    public void invalidar(String error) {
+        if (this.error == null) {
+            this.error = error;
+        }
+    }
+
+    /**
+     * Cuenta el ultimo acopio pendiente. Debe llamarse una vez agregados todos los acopios.
+     * @return este resumen
+     */
+    public ResumenAcopios cerrar() {
+        if (cerrado) {
+            return this;
+        }
+        cerrado = true;
+        if (hayPendiente) {
+            if (acopios == 1 || !Objects.equals(fechaPendiente, fechaAnterior)
+                    || !Objects.equals(turnoPendiente, turnoAnterior)) {
+                diasEnvioLeche++;
+            }
+            hayPendiente = false;
+        }
+        return this;
+    }
+}
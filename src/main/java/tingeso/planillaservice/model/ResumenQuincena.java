@@ -0,0 +1,41 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Totales de las planillas guardadas de una quincena y de cada categoria de proveedor
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResumenQuincena {
+    private String quincena;
+    private int proveedores;
+    private BigDecimal klsTotalLeche;
+    private BigDecimal pagoTotal;
+    private BigDecimal montoRetencion;
+    private BigDecimal montoFinal;
+    private LocalDateTime actualizado;
+    private List<Categoria> categorias;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Categoria {
+        /**
+         * Vacia para planillas guardadas antes de registrar la categoria
+         */
+        private String categoria;
+        private int proveedores;
+        private BigDecimal klsTotalLeche;
+        private BigDecimal pagoTotal;
+        private BigDecimal montoRetencion;
+        private BigDecimal montoFinal;
+    }
+}
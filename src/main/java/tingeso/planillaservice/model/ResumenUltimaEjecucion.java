@@ -0,0 +1,48 @@
+package tingeso.planillaservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Resumen de un calculo de planillas: duracion total, proveedores por resultado
+ * y tiempo acumulado en cada etapa.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResumenUltimaEjecucion {
+    private String quincena;
+    private LocalDateTime inicio;
+    private LocalDateTime fin;
+    private long duracionMs;
+    private int proveedores;
+    private int recalculados;
+    private int sinCambios;
+    private int fallidos;
+    private double proveedoresPorSegundo;
+    private List<TiempoEtapa> etapas;
+
+    /**
+     * Tiempo acumulado de una etapa. La precarga incluye las consultas masivas que hace, y con calculo
+     * paralelo las etapas se superponen, asi que la suma puede ser mayor que la duracion total.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TiempoEtapa {
+        private String etapa;
+        private String servicio;
+        private String operacion;
+        private long llamadas;
+        private double totalMs;
+        private double promedioMs;
+        /**
+         * Porcentaje del tiempo de todas las etapas
+         */
+        private double porcentaje;
+    }
+}
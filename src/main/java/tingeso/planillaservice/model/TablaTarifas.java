@@ -0,0 +1,170 @@
+package tingeso.planillaservice.model;
+
+import tingeso.planillaservice.config.TarifasProperties;
+import tingeso.planillaservice.config.TarifasProperties.Tramo;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tarifas compiladas e inmutables. Cada lista de tramos se convierte en un arreglo ordenado de
+ * inicios de intervalo que se busca en O(log n); los huecos entre tramos tienen tarifa 0.
+ * Puede usarse desde varios hilos.
+ */
+public final class TablaTarifas {
+    private final String version;
+    private final Map<String, Double> categorias;
+    private final Tramos grasa;
+    private final Tramos solidos;
+    private final Tramos descuentoVariacionLeche;
+    private final Tramos descuentoVariacionGrasa;
+    private final Tramos descuentoVariacionSolidos;
+    private final double limiteRetencion;
+    private final double porcentajeRetencion;
+
+    private TablaTarifas(TarifasProperties tarifas) {
+        categorias = Collections.unmodifiableMap(new HashMap<>(tarifas.getCategorias()));
+        grasa = new Tramos("grasa", tarifas.getGrasa());
+        solidos = new Tramos("solidos", tarifas.getSolidos());
+        descuentoVariacionLeche = new Tramos("descuento-variacion-leche", tarifas.getDescuentoVariacionLeche());
+        descuentoVariacionGrasa = new Tramos("descuento-variacion-grasa", tarifas.getDescuentoVariacionGrasa());
+        descuentoVariacionSolidos = new Tramos("descuento-variacion-solidos", tarifas.getDescuentoVariacionSolidos());
+        limiteRetencion = tarifas.getRetencion().getLimite();
+        porcentajeRetencion = tarifas.getRetencion().getPorcentaje();
+        version = tarifas.getVersion() != null && !tarifas.getVersion().isBlank()
+                ? tarifas.getVersion()
+                : calcularVersion();
+    }
+
+    /**
+     * Compila las tarifas configuradas
+     * @param tarifas Tarifas configuradas
+     * @return tabla de tarifas
+     * @throws IllegalArgumentException si algun tramo esta vacio o se superpone con otro
+     */
+    public static TablaTarifas compilar(TarifasProperties tarifas) {
+        return new TablaTarifas(tarifas);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public double pagoPorCategoria(String categoria, double klsLeche) {
+        Double tarifa = categoria == null ? null : categorias.get(categoria);
+        return tarifa == null ? 0 : klsLeche * tarifa;
+    }
+
+    public double pagoPorGrasa(int grasa, double klsLeche) {
+        return this.grasa.valor(grasa) * klsLeche;
+    }
+
+    public double pagoPorSolidosTotales(int solidos, double klsLeche) {
+        return this.solidos.valor(solidos) * klsLeche;
+    }
+
+    public double descuentoPorVariacionLeche(double variacion, double pagoAcopioLeche) {
+        return pagoAcopioLeche * descuentoVariacionLeche.valor(variacion) / 100;
+    }
+
+    public double descuentoPorVariacionGrasa(double variacion, double pagoAcopioLeche) {
+        return pagoAcopioLeche * descuentoVariacionGrasa.valor(variacion) / 100;
+    }
+
+    public double descuentoPorVariacionSolidosTotales(double variacion, double pagoAcopioLeche) {
+        return pagoAcopioLeche * descuentoVariacionSolidos.valor(variacion) / 100;
+    }
+
+    public double retencion(double pago) {
+        return pago > limiteRetencion ? pago * porcentajeRetencion / 100 : 0;
+    }
+
+    private String calcularVersion() {
+        StringBuilder contenido = new StringBuilder().append(new TreeMap<>(categorias));
+        for (Tramos tramos : List.of(grasa, solidos, descuentoVariacionLeche, descuentoVariacionGrasa,
+                descuentoVariacionSolidos)) {
+            contenido.append('|').append(tramos);
+        }
+        contenido.append('|').append(limiteRetencion).append(',').append(porcentajeRetencion);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(contenido.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Tramos compilados como intervalos [inicios[i], inicios[i + 1]) con tarifa valores[i].
+     * Los limites incluidos o excluidos se llevan al siguiente double con Math.nextUp.
+     */
+    private static final class Tramos {
+        private final double[] inicios;
+        private final double[] valores;
+
+        Tramos(String nombre, List<Tramo> tramos) {
+            List<double[]> intervalos = new ArrayList<>();
+            for (Tramo tramo : tramos) {
+                double inicio = tramo.isIncluyeDesde() ? tramo.getDesde() : Math.nextUp(tramo.getDesde());
+                double fin = tramo.getHasta() == null ? Double.POSITIVE_INFINITY : Math.nextUp(tramo.getHasta());
+                if (!(inicio < fin)) {
+                    throw new IllegalArgumentException("Tramo vacio en " + nombre + ": " + tramo);
+                }
+                intervalos.add(new double[]{inicio, fin, tramo.getValor()});
+            }
+            intervalos.sort(Comparator.comparingDouble(intervalo -> intervalo[0]));
+
+            double[] inicios = new double[intervalos.size() * 2];
+            double[] valores = new double[intervalos.size() * 2];
+            int n = 0;
+            double finAnterior = Double.NEGATIVE_INFINITY;
+            for (double[] intervalo : intervalos) {
+                if (intervalo[0] < finAnterior) {
+                    throw new IllegalArgumentException("Tramos superpuestos en " + nombre + " desde " + intervalo[0]);
+                }
+                if (n > 0 && intervalo[0] > finAnterior) {
+                    // Hueco entre tramos: tarifa 0
+                    inicios[n] = finAnterior;
+                    valores[n++] = 0;
+                }
+                inicios[n] = intervalo[0];
+                valores[n++] = intervalo[2];
+                finAnterior = intervalo[1];
+            }
+            if (n > 0 && finAnterior != Double.POSITIVE_INFINITY) {
+                inicios[n] = finAnterior;
+                valores[n++] = 0;
+            }
+            this.inicios = Arrays.copyOf(inicios, n);
+            this.valores = Arrays.copyOf(valores, n);
+        }
+
+        double valor(double x) {
+            if (Double.isNaN(x)) {
+                return 0;
+            }
+            // x + 0.0 convierte -0.0 en 0.0, que binarySearch ordena distinto
+            int i = Arrays.binarySearch(inicios, x + 0.0);
+            if (i < 0) {
+                i = -i - 2;
+            }
+            return i < 0 ? 0 : valores[i];
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(inicios) + Arrays.toString(valores);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package tingeso.planillaservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tingeso.planillaservice.entity.AvanceEjecucion;
+
+import java.util.List;
+
+@Repository
+public interface AvanceEjecucionRepository extends JpaRepository<AvanceEjecucion, Integer> {
+    List<AvanceEjecucion> findByEjecucionId(Integer ejecucionId);
+}
@@ -0,0 +1,12 @@
+package tingeso.planillaservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tingeso.planillaservice.entity.CuarentenaProveedor;
+
+import java.util.List;
+
+@Repository
+public interface CuarentenaProveedorRepository extends JpaRepository<CuarentenaProveedor, Integer> {
+    List<CuarentenaProveedor> findByEjecucionIdOrderByIdAsc(Integer ejecucionId);
+}
@@ -0,0 +1,94 @@
+package tingeso.planillaservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import tingeso.planillaservice.entity.EjecucionPlanilla;
+import tingeso.planillaservice.entity.EjecucionPlanilla.Estado;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Ejecuciones del calculo de planillas. La hora de actualizacion, que indica si una ejecucion fue abandonada,
+ * se toma de la base de datos, asi que no depende del reloj de cada instancia.
+ */
+@Repository
+public interface EjecucionPlanillaRepository extends JpaRepository<EjecucionPlanilla, Integer> {
+
+    @Query("select e.estado from EjecucionPlanilla e where e.id = :id")
+    Estado findEstadoById(@Param("id") Integer id);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update ejecucion_planilla set total_proveedores = :total, procesados = :procesados, " +
+            "recalculados = :recalculados, sin_cambios = :sinCambios, fallidos = :fallidos, " +
+            "actualizado = localtimestamp where id = :id", nativeQuery = true)
+    int actualizarProgreso(@Param("id") Integer id, @Param("total") int total, @Param("procesados") int procesados,
+                           @Param("recalculados") int recalculados, @Param("sinCambios") int sinCambios,
+                           @Param("fallidos") int fallidos);
+
+    @Transactional
+    @Modifying
+    @Query("update EjecucionPlanilla e set e.estado = :nuevo where e.id = :id and e.estado in :actuales")
+    int cambiarEstado(@Param("id") Integer id, @Param("actuales") Collection<Estado> actuales,
+                      @Param("nuevo") Estado nuevo);
+
+    /**
+     * Suma al avance de una ejecucion distribuida el resultado de una particion
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "update ejecucion_planilla set procesados = procesados + :procesados, " +
+            "recalculados = recalculados + :recalculados, sin_cambios = sin_cambios + :sinCambios, " +
+            "fallidos = fallidos + :fallidos, actualizado = localtimestamp where id = :id", nativeQuery = true)
+    int sumarProgreso(@Param("id") Integer id, @Param("procesados") int procesados,
+                      @Param("recalculados") int recalculados, @Param("sinCambios") int sinCambios,
+                      @Param("fallidos") int fallidos);
+
+    @Transactional
+    @Modifying
+    @Query("update EjecucionPlanilla e set e.estado = :nuevo, e.fin = :fin where e.id = :id and e.estado in :actuales")
+    int finalizar(@Param("id") Integer id, @Param("actuales") Collection<Estado> actuales,
+                  @Param("nuevo") Estado nuevo, @Param("fin") LocalDateTime fin);
+
+    Optional<EjecucionPlanilla> findFirstByQuincenaAndQuincenaHastaIsNullAndEstadoIn(String quincena,
+                                                                                      Collection<Estado> estados);
+
+    @Query("select e.id from EjecucionPlanilla e where e.distribuida = true and e.estado = :estado")
+    List<Integer> findIdsDistribuidas(@Param("estado") Estado estado);
+
+    /**
+     * Registra que la ejecucion sigue en curso en esta instancia
+     * @return 1 si se registro, 0 si otra instancia retomo la ejecucion
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "update ejecucion_planilla set actualizado = localtimestamp " +
+            "where id = :id and instancia = :instancia", nativeQuery = true)
+    int latido(@Param("id") Integer id, @Param("instancia") String instancia);
+
+    /**
+     * Ejecuciones no distribuidas en curso o cancelandose que no se actualizan desde hace mas de abandono
+     * @param segundos Segundos de planilla.ejecuciones.abandono
+     */
+    @Query(value = "select * from ejecucion_planilla where distribuida = false " +
+            "and estado in ('EN_EJECUCION', 'CANCELANDO') " +
+            "and actualizado < localtimestamp - :segundos * interval '1 second'", nativeQuery = true)
+    List<EjecucionPlanilla> findAbandonadas(@Param("segundos") long segundos);
+
+    /**
+     * Toma una ejecucion abandonada, solo si nadie la actualizo despues de leerla
+     * @return 1 si esta instancia la tomo, 0 si otra se adelanto o la ejecucion siguio avanzando
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "update ejecucion_planilla set instancia = :instancia, actualizado = localtimestamp, " +
+            "reanudaciones = reanudaciones + 1 where id = :id and actualizado = :visto", nativeQuery = true)
+    int reclamar(@Param("id") Integer id, @Param("visto") LocalDateTime visto, @Param("instancia") String instancia);
+}
@@ -0,0 +1,68 @@
+package tingeso.planillaservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tingeso.planillaservice.entity.ParticionPlanilla;
+import tingeso.planillaservice.entity.ParticionPlanilla.Estado;
+
+import java.util.Collection;
+
+/**
+ * Particiones de las ejecuciones distribuidas. Los arriendos usan la hora de la base de datos,
+ * asi que no dependen del reloj de cada instancia. Las consultas de toma deben llamarse en una transaccion.
+ */
+@Repository
+public interface ParticionPlanillaRepository extends JpaRepository<ParticionPlanilla, Integer> {
+
+    /**
+     * Bloquea una particion pendiente o con el arriendo vencido de una ejecucion en curso.
+     * Las particiones bloqueadas por otra instancia se saltan en vez de esperarlas.
+     * @return id de la particion bloqueada, null si no hay particiones disponibles
+     */
+    @Query(value = "select p.id from particion_planilla p join ejecucion_planilla e on e.id = p.ejecucion_id " +
+            "where e.estado = 'EN_EJECUCION' and (p.estado = 'PENDIENTE' " +
+            "or (p.estado = 'TOMADA' and p.vencimiento < localtimestamp)) " +
+            "order by p.ejecucion_id, p.numero limit 1 for update of p skip locked", nativeQuery = true)
+    Integer bloquearDisponible();
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "update particion_planilla set estado = 'TOMADA', instancia = :instancia, intentos = intentos + 1, " +
+            "vencimiento = localtimestamp + :segundos * interval '1 second' where id = :id", nativeQuery = true)
+    int tomar(@Param("id") Integer id, @Param("instancia") String instancia, @Param("segundos") long segundos);
+
+    /**
+     * Extiende el arriendo si la particion sigue tomada con el mismo intento
+     * @return 1 si se renovo, 0 si el arriendo se perdio
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "update particion_planilla set vencimiento = localtimestamp + :segundos * interval '1 second' " +
+            "where id = :id and intentos = :intento and estado = 'TOMADA'", nativeQuery = true)
+    int renovar(@Param("id") Integer id, @Param("intento") int intento, @Param("segundos") long segundos);
+
+    /**
+     * Guarda el resultado de una particion tomada con el intento indicado
+     * @param nuevo COMPLETADA o FALLIDA
+     * @return 1 si se guardo, 0 si el arriendo se perdio
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "update particion_planilla set estado = :#{#nuevo.name()}, vencimiento = null, " +
+            "recalculados = :recalculados, sin_cambios = :sinCambios, fallidos = :fallidos " +
+            "where id = :id and intentos = :intento and estado = 'TOMADA'", nativeQuery = true)
+    int terminar(@Param("id") Integer id, @Param("intento") int intento, @Param("nuevo") Estado nuevo,
+                 @Param("recalculados") int recalculados, @Param("sinCambios") int sinCambios,
+                 @Param("fallidos") int fallidos);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "update particion_planilla set estado = 'PENDIENTE', vencimiento = null " +
+            "where id = :id and intentos = :intento and estado = 'TOMADA'", nativeQuery = true)
+    int liberar(@Param("id") Integer id, @Param("intento") int intento);
+
+    long countByEjecucionIdAndEstadoIn(Integer ejecucionId, Collection<Estado> estados);
+
+    @Query(value = "select count(*) from particion_planilla where ejecucion_id = :ejecucionId " +
+            "and estado = 'TOMADA' and vencimiento >= localtimestamp", nativeQuery = true)
+    long contarArriendosVigentes(@Param("ejecucionId") Integer ejecucionId);
+}
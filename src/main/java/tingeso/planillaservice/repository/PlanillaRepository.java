@@ -3,7 +3,56 @@ package tingeso.planillaservice.repository;
 import org.springframework.stereotype.Repository;
 import tingeso.planillaservice.entity.Planilla;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PlanillaRepository extends JpaRepository<Planilla, Integer>{
+    List<Planilla> findByQuincena(String quincena);
+
+    /**
+     * Las quincenas "YYYY/MM/Qn" se ordenan como texto en orden cronologico, asi que el rango
+     * usa el indice unico (quincena, codigo_proveedor)
+     */
+    List<Planilla> findByQuincenaBetweenOrderByQuincenaAscIdAsc(String desde, String hasta);
+
+    @Query("select distinct p.quincena from Planilla p")
+    List<String> findQuincenas();
+
+    Optional<HuellaPlanilla> findHuellaByQuincenaAndCodigoProveedor(String quincena, String codigoProveedor);
+
+    List<HuellaPlanilla> findHuellasByQuincenaIn(Collection<String> quincenas);
+
+    List<HuellaPlanilla> findHuellasByQuincenaAndCodigoProveedorIn(String quincena, Collection<String> codigosProveedor);
+
+    /**
+     * Usa el indice (codigo_proveedor, id) de cada particion, sin recorrer las quincenas
+     */
+    List<TotalesPlanilla> findTotalesByCodigoProveedorOrderByQuincenaAsc(String codigoProveedor);
+
+    /**
+     * Identificacion y huella de entradas de una planilla guardada
+     */
+    interface HuellaPlanilla {
+        Integer getId();
+        String getQuincena();
+        String getCodigoProveedor();
+        String getHuella();
+    }
+
+    /**
+     * Montos de una planilla guardada, para el historial de un proveedor
+     */
+    interface TotalesPlanilla {
+        String getQuincena();
+        String getNombreProveedor();
+        String getCategoria();
+        double getKlsTotalLeche();
+        double getPagoTotal();
+        double getMontoRetencion();
+        double getMontoFinal();
+    }
 }
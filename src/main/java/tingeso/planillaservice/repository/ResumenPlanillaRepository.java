@@ -0,0 +1,14 @@
+package tingeso.planillaservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tingeso.planillaservice.entity.ResumenPlanilla;
+
+import java.util.List;
+
+@Repository
+public interface ResumenPlanillaRepository extends JpaRepository<ResumenPlanilla, Integer> {
+    List<ResumenPlanilla> findByQuincenaOrderByCategoriaAsc(String quincena);
+
+    List<ResumenPlanilla> findByQuincenaBetweenOrderByQuincenaAscCategoriaAsc(String desde, String hasta);
+}
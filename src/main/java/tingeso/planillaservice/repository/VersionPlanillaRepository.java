@@ -0,0 +1,24 @@
+package tingeso.planillaservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import tingeso.planillaservice.entity.VersionPlanilla;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface VersionPlanillaRepository extends JpaRepository<VersionPlanilla, String> {
+
+    @Query("select v.version from VersionPlanilla v where v.quincena = :quincena")
+    Long findVersion(@Param("quincena") String quincena);
+
+    @Transactional
+    @Modifying
+    @Query("update VersionPlanilla v set v.version = v.version + 1, v.actualizado = :actualizado " +
+            "where v.quincena = :quincena")
+    int incrementar(@Param("quincena") String quincena, @Param("actualizado") LocalDateTime actualizado);
+}
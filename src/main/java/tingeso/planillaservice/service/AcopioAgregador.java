@@ -0,0 +1,101 @@
+package tingeso.planillaservice.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tingeso.planillaservice.model.ResumenAcopios;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lee respuestas JSON de acopio-service con el parser de streaming de Jackson y las resume
+ * en una sola pasada, sin crear la lista de acopios. Un acopio con kilos de leche que no son
+ * un numero invalida solo el resumen de su proveedor.
+ */
+@Component
+public class AcopioAgregador {
+    @Autowired
+    ObjectMapper objectMapper;
+
+    /**
+     * Resume un arreglo JSON con los acopios de un proveedor
+     * @param json Respuesta de acopio-service
+     * @return resumen de los acopios
+     */
+    public ResumenAcopios resumir(InputStream json) throws IOException {
+        ResumenAcopios resumen = new ResumenAcopios();
+        leer(json, (proveedor, fecha, turno, klsLeche, error) -> agregar(resumen, fecha, turno, klsLeche, error));
+        return resumen.cerrar();
+    }
+
+    /**
+     * Resume un arreglo JSON con acopios de varios proveedores, agrupados por codigo de proveedor
+     * @param json Respuesta de acopio-service
+     * @return resumen de los acopios de cada proveedor
+     */
+    public Map<String, ResumenAcopios> resumirPorProveedor(InputStream json) throws IOException {
+        Map<String, ResumenAcopios> resumenes = new HashMap<>();
+        leer(json, (proveedor, fecha, turno, klsLeche, error) ->
+                agregar(resumenes.computeIfAbsent(proveedor, p -> new ResumenAcopios()), fecha, turno, klsLeche, error));
+        resumenes.values().forEach(ResumenAcopios::cerrar);
+        return resumenes;
+    }
+
+    private static void agregar(ResumenAcopios resumen, String fecha, String turno, int klsLeche, String error) {
+        if (error != null) {
+            resumen.invalidar(error);
+        } else {
+            resumen.agregar(fecha, turno, klsLeche);
+        }
+    }
+
+    private void leer(InputStream json, Visitante visitante) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String proveedor = null;
+                String fecha = null;
+                String turno = null;
+                int klsLeche = 0;
+                String error = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String campo = parser.getCurrentName();
+                    JsonToken valor = parser.nextToken();
+                    switch (campo) {
+                        case "proveedor" -> proveedor = parser.getValueAsString();
+                        case "fecha" -> fecha = parser.getValueAsString();
+                        case "turno" -> turno = parser.getValueAsString();
+                        case "klsLeche", "kls_leche" -> {
+                            if (valor == JsonToken.VALUE_STRING) {
+                                try {
+                                    klsLeche = Integer.parseInt(parser.getText().trim());
+                                } catch (NumberFormatException e) {
+                                    error = "kilos de leche invalidos '" + parser.getText() + "'";
+                                }
+                            } else {
+                                klsLeche = parser.getValueAsInt();
+                            }
+                        }
+                        default -> parser.skipChildren();
+                    }
+                }
+                visitante.acopio(proveedor, fecha, turno, klsLeche, error);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Visitante {
+        /**
+         * @param error Motivo por el que el acopio no es valido, null si es valido
+         */
+        void acopio(String proveedor, String fecha, String turno, int klsLeche, String error);
+    }
+}
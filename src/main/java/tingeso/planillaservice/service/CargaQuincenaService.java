@@ -0,0 +1,297 @@
+package tingeso.planillaservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import tingeso.planillaservice.model.DatosQuincena;
+import tingeso.planillaservice.model.IndiceLaboratorio;
+import tingeso.planillaservice.model.Laboratorio;
+import tingeso.planillaservice.model.Proveedor;
+import tingeso.planillaservice.model.Quincena;
+import tingeso.planillaservice.model.ResumenAcopios;
+import tingeso.planillaservice.repository.PlanillaRepository;
+import tingeso.planillaservice.repository.PlanillaRepository.HuellaPlanilla;
+import tingeso.planillaservice.service.MetricasPlanilla.Etapa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Precarga los acopios de cada quincena (y de su quincena anterior), los proveedores
+ * y las huellas de las planillas ya guardadas antes de calcular las planillas,
+ * para no consultar proveedor por proveedor.
+ */
+@Service
+public class CargaQuincenaService {
+    private final Logger logg = LoggerFactory.getLogger(CargaQuincenaService.class);
+
+    @Autowired
+    RestTemplate restTemplate;
+
+    @Autowired
+    ExecutorService consultasExecutor;
+
+    @Autowired
+    ProveedorCache proveedorCache;
+
+    @Autowired
+    PlanillaRepository planillaRepository;
+
+    @Autowired
+    AcopioAgregador acopioAgregador;
+
+    @Autowired
+    MetricasPlanilla metricas;
+
+    @Lazy
+    @Autowired
+    PlanillaService planillaService;
+
+    @Value("${planilla.carga.url-acopios-quincena:http://acopio-service/acopio/byquincena/?quincena={quincena}}")
+    String urlAcopiosQuincena;
+
+    @Value("${planilla.carga.url-proveedores:http://proveedor-service/proveedor}")
+    String urlProveedores;
+
+    @Value("${planilla.carga.tamano-lote:50}")
+    int tamanoLote;
+
+    @Value("${planilla.carga.precarga:true}")
+    boolean precarga;
+
+    /**
+     * Precarga los datos que necesitan los laboratorios indicados.
+     * Si planilla.carga.precarga esta activo tambien precarga los acopios y proveedores;
+     * los acopios se resumen por proveedor en el orden de la respuesta del servicio de acopio.
+     * Si el servicio no tiene consulta masiva se consulta proveedor por proveedor en lotes paralelos.
+     * @param laboratorios Datos de laboratorio de los proveedores a calcular
+     * @param todosLaboratorios Todos los datos de laboratorio, incluidas las quincenas anteriores
+     * @return datos precargados
+     */
+    public DatosQuincena cargar(List<Laboratorio> laboratorios, List<Laboratorio> todosLaboratorios) {
+        return cargar(laboratorios, todosLaboratorios, false);
+    }
+
+    /**
+     * Precarga solo lo que necesitan los proveedores de una particion: de la consulta masiva de acopios se
+     * conservan los de esos proveedores, y se leen solo sus huellas guardadas
+     * @param laboratorios Datos de laboratorio de los proveedores de la particion
+     * @param todosLaboratorios Todos los datos de laboratorio, incluidas las quincenas anteriores
+     * @return datos precargados de los proveedores de la particion
+     */
+    public DatosQuincena cargarParticion(List<Laboratorio> laboratorios, List<Laboratorio> todosLaboratorios) {
+        return cargar(laboratorios, todosLaboratorios, true);
+    }
+
+    private DatosQuincena cargar(List<Laboratorio> laboratorios, List<Laboratorio> todosLaboratorios,
+                                 boolean soloProveedores) {
+        AtomicInteger llamadas = new AtomicInteger();
+        Set<String> codigos = new LinkedHashSet<>();
+        Map<String, Set<String>> proveedoresPorQuincena = new HashMap<>();
+        int llamadasEsperadas = 0;
+        for (Laboratorio laboratorio : laboratorios) {
+            String quincenaAnterior = planillaService.getLastQuincena(laboratorio.getQuincena());
+            codigos.add(laboratorio.getProveedor());
+            proveedoresPorQuincena.computeIfAbsent(laboratorio.getQuincena(), q -> new LinkedHashSet<>())
+                    .add(laboratorio.getProveedor());
+            llamadasEsperadas += 3;
+            if (!quincenaAnterior.isEmpty()) {
+                proveedoresPorQuincena.computeIfAbsent(quincenaAnterior, q -> new LinkedHashSet<>())
+                        .add(laboratorio.getProveedor());
+                llamadasEsperadas++;
+            }
+        }
+
+        Map<String, Map<String, ResumenAcopios>> acopiosPorQuincena = new HashMap<>();
+        Map<String, Proveedor> proveedores = new HashMap<>();
+        if (precarga && !laboratorios.isEmpty()) {
+            proveedoresPorQuincena.forEach((quincena, codigosQuincena) -> {
+                Map<String, ResumenAcopios> acopios = cargarAcopios(quincena, codigosQuincena, llamadas);
+                if (soloProveedores) {
+                    acopios.keySet().retainAll(codigosQuincena);
+                }
+                acopiosPorQuincena.put(quincena, acopios);
+            });
+            proveedores = cargarProveedores(codigos, llamadas);
+        }
+        Map<String, Map<String, HuellaPlanilla>> planillasGuardadas = new HashMap<>();
+        Set<String> quincenas = new LinkedHashSet<>();
+        laboratorios.forEach(laboratorio -> quincenas.add(laboratorio.getQuincena()));
+        List<HuellaPlanilla> huellas = new ArrayList<>();
+        if (soloProveedores) {
+            for (String quincena : quincenas) {
+                huellas.addAll(planillaRepository.findHuellasByQuincenaAndCodigoProveedorIn(quincena,
+                        proveedoresPorQuincena.get(quincena)));
+            }
+        } else {
+            huellas = planillaRepository.findHuellasByQuincenaIn(quincenas);
+        }
+        for (HuellaPlanilla huella : huellas) {
+            planillasGuardadas.computeIfAbsent(huella.getQuincena(), q -> new HashMap<>())
+                    .put(huella.getCodigoProveedor(), huella);
+        }
+
+        int llamadasEvitadas = precarga ? llamadasEsperadas - llamadas.get() : 0;
+        logg.info("Precarga de {} quincenas y {} proveedores: {} llamadas remotas, {} evitadas",
+                acopiosPorQuincena.size(), proveedores.size(), llamadas.get(), llamadasEvitadas);
+        return new DatosQuincena(acopiosPorQuincena, proveedores, planillasGuardadas,
+                new IndiceLaboratorio(todosLaboratorios), llamadas.get(), llamadasEvitadas);
+    }
+
+    /**
+     * Precarga una quincena de un recalculo historico. Los acopios de la quincena anterior se toman de la
+     * carga anterior, asi que recorriendo un rango en orden los acopios de cada quincena se consultan una vez.
+     * @param quincena Quincena a cargar
+     * @param laboratorios Datos de laboratorio de la quincena
+     * @param codigosRango Proveedores con datos de laboratorio en todo el rango, para consultar
+     *                     acopios proveedor por proveedor si no hay consulta masiva
+     * @param anterior Datos cargados de la quincena anterior, null al comenzar el rango
+     * @param indice Datos de laboratorio de todas las quincenas
+     * @return datos con los acopios de la quincena y de la anterior
+     */
+    public DatosQuincena cargarVentana(Quincena quincena, List<Laboratorio> laboratorios, Set<String> codigosRango,
+                                       DatosQuincena anterior, IndiceLaboratorio indice) {
+        AtomicInteger llamadas = new AtomicInteger();
+        String actual = quincena.toString();
+        String quincenaAnterior = quincena.anterior().toString();
+        Map<String, ResumenAcopios> acopiosAnterior = anterior == null ? null
+                : anterior.getAcopiosPorQuincena().get(quincenaAnterior);
+        if (acopiosAnterior == null) {
+            acopiosAnterior = cargarAcopios(quincenaAnterior, codigosRango, llamadas);
+        }
+        Map<String, Map<String, ResumenAcopios>> acopiosPorQuincena = new HashMap<>();
+        acopiosPorQuincena.put(quincenaAnterior, acopiosAnterior);
+        acopiosPorQuincena.put(actual, cargarAcopios(actual, codigosRango, llamadas));
+
+        Set<String> codigos = new LinkedHashSet<>();
+        laboratorios.forEach(laboratorio -> codigos.add(laboratorio.getProveedor()));
+        Map<String, Proveedor> proveedores = codigos.isEmpty() ? new HashMap<>() : cargarProveedores(codigos, llamadas);
+        Map<String, HuellaPlanilla> huellas = new HashMap<>();
+        if (!codigos.isEmpty()) {
+            for (HuellaPlanilla huella : planillaRepository.findHuellasByQuincenaIn(List.of(actual))) {
+                huellas.put(huella.getCodigoProveedor(), huella);
+            }
+        }
+        logg.info("Carga de {} con {} proveedores: {} llamadas remotas", actual, codigos.size(), llamadas.get());
+        return new DatosQuincena(acopiosPorQuincena, proveedores, Map.of(actual, huellas), indice,
+                llamadas.get(), 0);
+    }
+
+    private Map<String, ResumenAcopios> cargarAcopios(String quincena, Set<String> codigos, AtomicInteger llamadas) {
+        long inicio = System.nanoTime();
+        try {
+            llamadas.incrementAndGet();
+            Map<String, ResumenAcopios> acopios = restTemplate.execute(
+                    urlAcopiosQuincena,
+                    HttpMethod.GET,
+                    null,
+                    response -> acopioAgregador.resumirPorProveedor(response.getBody()),
+                    quincena
+            );
+            if (acopios == null) {
+                acopios = new HashMap<>();
+            }
+            // La consulta masiva incluye a todos los proveedores con acopios: los demas no tienen
+            for (String codigo : codigos) {
+                acopios.putIfAbsent(codigo, ResumenAcopios.vacio());
+            }
+            return acopios;
+        } catch (RestClientException e) {
+            logg.warn("Consulta masiva de acopios de {} no disponible, se consulta por proveedor: {}",
+                    quincena, e.getMessage());
+        } finally {
+            metricas.registrar(Etapa.ACOPIOS_QUINCENA, inicio);
+        }
+        Map<String, ResumenAcopios> acopios = new ConcurrentHashMap<>();
+        enLotes(codigos, codigo -> {
+            llamadas.incrementAndGet();
+            acopios.put(codigo, planillaService.getResumenAcopios(quincena, codigo));
+        });
+        return acopios;
+    }
+
+    private Map<String, Proveedor> cargarProveedores(Set<String> codigos, AtomicInteger llamadas) {
+        Map<String, Proveedor> proveedores = new ConcurrentHashMap<>();
+        for (String codigo : codigos) {
+            Proveedor proveedor = proveedorCache.getIfPresent(codigo);
+            if (proveedor != null) {
+                proveedores.put(codigo, proveedor);
+            }
+        }
+        if (proveedores.size() == codigos.size()) {
+            return proveedores;
+        }
+        long inicio = System.nanoTime();
+        try {
+            llamadas.incrementAndGet();
+            ResponseEntity<List<Proveedor>> response = restTemplate.exchange(
+                    urlProveedores,
+                    HttpMethod.GET,
+                    null,
+                    new ParameterizedTypeReference<List<Proveedor>>() {}
+            );
+            if (response.getBody() != null) {
+                for (Proveedor proveedor : response.getBody()) {
+                    if (proveedor.getCodigo() != null && codigos.contains(proveedor.getCodigo())) {
+                        proveedores.put(proveedor.getCodigo(), proveedor);
+                        proveedorCache.put(proveedor.getCodigo(), proveedor);
+                    }
+                }
+            }
+        } catch (RestClientException e) {
+            logg.warn("Consulta masiva de proveedores no disponible, se consulta por proveedor: {}", e.getMessage());
+        } finally {
+            metricas.registrar(Etapa.PROVEEDORES, inicio);
+        }
+        Set<String> faltantes = new LinkedHashSet<>(codigos);
+        faltantes.removeAll(proveedores.keySet());
+        enLotes(faltantes, codigo -> {
+            llamadas.incrementAndGet();
+            Proveedor proveedor = planillaService.getProveedorModel(codigo);
+            if (proveedor != null) {
+                proveedores.put(codigo, proveedor);
+            }
+        });
+        return proveedores;
+    }
+
+    /**
+     * Ejecuta una consulta por codigo en consultasExecutor, de a tamanoLote consultas simultaneas.
+     * Si la consulta de un codigo falla, ese codigo queda sin datos precargados y se consulta
+     * al calcular su planilla; las demas consultas continuan.
+     */
+    private void enLotes(Set<String> codigos, Consumer<String> consulta) {
+        List<String> pendientes = new ArrayList<>(codigos);
+        for (int inicio = 0; inicio < pendientes.size(); inicio += tamanoLote) {
+            List<String> lote = pendientes.subList(inicio, Math.min(inicio + tamanoLote, pendientes.size()));
+            CompletableFuture.allOf(lote.stream()
+                    .map(codigo -> CompletableFuture.runAsync(() -> consultar(codigo, consulta), consultasExecutor))
+                    .toArray(CompletableFuture[]::new)).join();
+        }
+    }
+
+    private void consultar(String codigo, Consumer<String> consulta) {
+        try {
+            consulta.accept(codigo);
+        } catch (RuntimeException e) {
+            logg.warn("Precarga del proveedor {} no disponible, se consultara al calcular: {}", codigo, e.getMessage());
+        }
+    }
+}
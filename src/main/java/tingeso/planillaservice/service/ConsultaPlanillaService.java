@@ -0,0 +1,125 @@
+package tingeso.planillaservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tingeso.planillaservice.entity.Planilla;
+import tingeso.planillaservice.model.FiltroPlanilla;
+import tingeso.planillaservice.model.PaginaPlanillas;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Consultas de planillas paginadas por id (keyset) y lectura en streaming
+ * para no cargar la tabla completa en memoria.
+ */
+@Service
+public class ConsultaPlanillaService {
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${planilla.consulta.tamano-fetch:500}")
+    int tamanoFetch;
+
+    /**
+     * Obtiene una pagina de planillas ordenadas por id
+     * @param filtro Filtros de la consulta
+     * @param despuesDe Id de la ultima planilla de la pagina anterior, null para la primera pagina
+     * @param limite Cantidad maxima de planillas de la pagina
+     * @return pagina de planillas y el id desde el que continua la siguiente
+     */
+    @Transactional(readOnly = true)
+    public PaginaPlanillas getPagina(FiltroPlanilla filtro, Integer despuesDe, int limite) {
+        List<Planilla> planillas = consulta(filtro, despuesDe).setMaxResults(limite).getResultList();
+        Integer siguiente = planillas.size() == limite ? planillas.get(planillas.size() - 1).getId() : null;
+        return new PaginaPlanillas(planillas, siguiente);
+    }
+
+    /**
+     * Escribe las planillas filtradas a medida que se leen desde la base de datos
+     * @param filtro Filtros de la consulta
+     * @param salida Salida de la respuesta
+     * @param ndjson true para escribir una planilla JSON por linea, false para un arreglo JSON
+     */
+    public void escribir(FiltroPlanilla filtro, OutputStream salida, boolean ndjson) {
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        lectura.executeWithoutResult(status -> {
+            try (Stream<Planilla> planillas = consulta(filtro, null)
+                    .setHint(QueryHints.HINT_FETCH_SIZE, tamanoFetch)
+                    .getResultStream();
+                 JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+                generador.setRootValueSeparator(null);
+                if (!ndjson) {
+                    generador.writeStartArray();
+                }
+                int escritas = 0;
+                for (Planilla planilla : (Iterable<Planilla>) planillas::iterator) {
+                    writer.writeValue(generador, planilla);
+                    if (ndjson) {
+                        generador.writeRaw('\n');
+                    }
+                    if (++escritas % tamanoFetch == 0) {
+                        generador.flush();
+                        entityManager.clear();
+                    }
+                }
+                if (!ndjson) {
+                    generador.writeEndArray();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    TypedQuery<Planilla> consulta(FiltroPlanilla filtro, Integer despuesDe) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Planilla> query = cb.createQuery(Planilla.class);
+        Root<Planilla> planilla = query.from(Planilla.class);
+        List<Predicate> condiciones = new ArrayList<>();
+        if (filtro.getQuincena() != null) {
+            condiciones.add(cb.equal(planilla.get("quincena"), filtro.getQuincena()));
+        }
+        if (filtro.getCodigoProveedor() != null) {
+            condiciones.add(cb.equal(planilla.get("codigoProveedor"), filtro.getCodigoProveedor()));
+        }
+        if (filtro.getMontoMinimo() != null) {
+            condiciones.add(cb.ge(planilla.get("montoFinal"), filtro.getMontoMinimo()));
+        }
+        if (filtro.getMontoMaximo() != null) {
+            condiciones.add(cb.le(planilla.get("montoFinal"), filtro.getMontoMaximo()));
+        }
+        if (despuesDe != null) {
+            condiciones.add(cb.gt(planilla.get("id"), despuesDe));
+        }
+        query.where(condiciones.toArray(new Predicate[0])).orderBy(cb.asc(planilla.get("id")));
+        return entityManager.createQuery(query);
+    }
+}
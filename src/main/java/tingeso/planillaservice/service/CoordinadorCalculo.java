@@ -0,0 +1,282 @@
+package tingeso.planillaservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import tingeso.planillaservice.entity.VersionPlanilla;
+import tingeso.planillaservice.model.InstantaneaPlanilla;
+import tingeso.planillaservice.model.PlanillasPublicadas;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.repository.PlanillaRepository;
+import tingeso.planillaservice.repository.VersionPlanillaRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Un solo calculo a la vez por quincena en esta instancia, y planillas publicadas por version.
+ * <ul>
+ *     <li>Una solicitud de calculo de una quincena que ya se esta calculando en esta instancia espera ese
+ *     calculo y recibe su resultado. Un calculo de todas las quincenas cubre a los de cada quincena, y
+ *     espera a los que ya estaban en curso antes de empezar. No hay coordinacion entre instancias: dos
+ *     instancias pueden calcular la misma quincena a la vez, y la segunda en guardar deja sus planillas.</li>
+ *     <li>Al terminar un calculo se incrementa la version de cada quincena calculada en la base
+ *     de datos y se publica el evento PlanillasPublicadas. Las lecturas de una quincena usan una instantanea
+ *     inmutable, que se reemplaza completa cuando cambia la version. Una lectura no ve un calculo a medio
+ *     guardar de esta instancia, porque lo espera; un calculo de otra instancia guarda sus planillas por
+ *     lotes en la misma tabla, asi que una lectura durante ese calculo puede ver una parte y la conserva
+ *     hasta que la otra instancia publique su version. Solo reemplazar una quincena la cambia completa de
+ *     una vez para todas las instancias.</li>
+ *     <li>Reemplazar o eliminar una quincena espera los calculos en curso que la cubren, y los calculos de
+ *     la quincena que se piden mientras tanto esperan y reciben el resultado del reemplazo.</li>
+ * </ul>
+ */
+@Service
+public class CoordinadorCalculo {
+    private static final String TODAS = "*";
+    private final Logger logg = LoggerFactory.getLogger(CoordinadorCalculo.class);
+
+    @Autowired
+    PlanillaService planillaService;
+
+    @Autowired
+    PlanillaRepository planillaRepository;
+
+    @Autowired
+    VersionPlanillaRepository versionRepository;
+
+    @Autowired
+    PeriodosPlanillaService periodosPlanilla;
+
+    @Autowired
+    ApplicationEventPublisher eventos;
+
+    private final Map<String, CompletableFuture<ResultadoCalculo>> enCurso = new ConcurrentHashMap<>();
+    /**
+     * Decidir si un calculo espera a otro o se registra en enCurso es atomico: un calculo de todas las
+     * quincenas espera solo a los registrados antes que el, y los que llegan despues lo esperan a el
+     */
+    private final Object registro = new Object();
+    private final Cache<String, InstantaneaPlanilla> instantaneas;
+    private final Cache<String, Long> versiones;
+    private final Counter unidos;
+
+    /**
+     * @param maxQuincenas Quincenas con instantanea en memoria
+     * @param verificacionVersion Tiempo que se usa una version leida de la base de datos antes de volver a
+     *                            consultarla; es lo que tarda esta instancia en ver un calculo de otra
+     */
+    public CoordinadorCalculo(MeterRegistry meterRegistry,
+                              @Value("${planilla.instantaneas.max-quincenas:4}") long maxQuincenas,
+                              @Value("${planilla.instantaneas.verificacion-version:2s}") Duration verificacionVersion) {
+        instantaneas = Caffeine.newBuilder().maximumSize(maxQuincenas).build();
+        versiones = Caffeine.newBuilder().maximumSize(10000).expireAfterWrite(verificacionVersion).build();
+        unidos = Counter.builder("planilla.calculo.unidos")
+                .description("Solicitudes de calculo que esperaron un calculo ya en curso")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Calcula la quincena, o espera el calculo en curso que la cubre
+     * @param quincena Quincena a calcular, null para todas las quincenas con datos de laboratorio
+     * @param progreso Recibe el avance si esta solicitud hace el calculo
+     * @return resultado del calculo hecho o esperado
+     */
+    public ResultadoCalculo calcular(String quincena, ProgresoCalculo progreso) {
+        String clave = quincena == null ? TODAS : quincena;
+        CompletableFuture<ResultadoCalculo> propio = new CompletableFuture<>();
+        CompletableFuture<ResultadoCalculo> actual;
+        List<CompletableFuture<ResultadoCalculo>> anteriores = List.of();
+        synchronized (registro) {
+            // Un calculo de todas las quincenas en curso cubre a este; si empieza despues, espera a este
+            actual = enCurso.get(clave);
+            if (actual == null && quincena != null) {
+                actual = enCurso.get(TODAS);
+            }
+            if (actual == null) {
+                if (quincena == null) {
+                    anteriores = List.copyOf(enCurso.values());
+                }
+                enCurso.put(clave, propio);
+            }
+        }
+        if (actual != null) {
+            unidos.increment();
+            logg.info("Calculo de {} ya en curso, se espera su resultado", quincena == null ? "todas las quincenas" : quincena);
+            return esperar(actual);
+        }
+        ResultadoCalculo resultado;
+        List<String> calculadas;
+        try {
+            anteriores.forEach(CoordinadorCalculo::esperarSinError);
+            resultado = planillaService.calcularPagoFinal(quincena, progreso);
+            calculadas = quincena == null ? planillaRepository.findQuincenas() : List.of(quincena);
+            incrementarVersiones(calculadas);
+            propio.complete(resultado);
+        } catch (RuntimeException e) {
+            propio.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(clave, propio);
+        }
+        // Despues de terminar el calculo, porque quienes reciben el evento leen las planillas
+        eventos.publishEvent(new PlanillasPublicadas(List.copyOf(calculadas)));
+        return resultado;
+    }
+
+    /**
+     * Recalcula la quincena completa en una tabla temporal y la cambia por las planillas guardadas
+     * @param quincena Quincena a reemplazar
+     * @param progreso Recibe el avance del calculo
+     * @return resultado del reemplazo
+     */
+    public ResultadoCalculo reemplazar(String quincena, ProgresoCalculo progreso) {
+        return exclusivo(quincena, () -> planillaService.reemplazarQuincena(quincena, progreso));
+    }
+
+    /**
+     * Elimina las planillas de la quincena y publica la quincena vacia
+     * @param quincena Quincena a eliminar
+     */
+    public void eliminar(String quincena) {
+        exclusivo(quincena, () -> {
+            periodosPlanilla.eliminar(quincena);
+            return new ResultadoCalculo();
+        });
+    }
+
+    /**
+     * Ejecuta la operacion como el unico calculo en curso de la quincena, esperando los que ya estaban
+     * en curso, y publica la version nueva de la quincena
+     */
+    private ResultadoCalculo exclusivo(String quincena, Supplier<ResultadoCalculo> operacion) {
+        CompletableFuture<ResultadoCalculo> propio = new CompletableFuture<>();
+        while (true) {
+            // Se espera el calculo de todas las quincenas sin registrarse, porque ese calculo espera a este
+            CompletableFuture<ResultadoCalculo> actual;
+            synchronized (registro) {
+                actual = enCurso.get(TODAS);
+                if (actual == null) {
+                    actual = enCurso.putIfAbsent(quincena, propio);
+                    if (actual == null) {
+                        break;
+                    }
+                }
+            }
+            esperarSinError(actual);
+        }
+        ResultadoCalculo resultado;
+        try {
+            resultado = operacion.get();
+            incrementarVersiones(List.of(quincena));
+            propio.complete(resultado);
+        } catch (RuntimeException e) {
+            propio.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(quincena, propio);
+        }
+        eventos.publishEvent(new PlanillasPublicadas(List.of(quincena)));
+        return resultado;
+    }
+
+    private static void esperarSinError(CompletableFuture<ResultadoCalculo> calculo) {
+        try {
+            calculo.join();
+        } catch (CompletionException e) {
+            // El error ya lo recibio quien hizo ese calculo
+        }
+    }
+
+    private static ResultadoCalculo esperar(CompletableFuture<ResultadoCalculo> calculo) {
+        try {
+            return calculo.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Publica una version nueva de las quincenas, despues de un calculo que las modifico
+     * @param quincenas Quincenas calculadas
+     */
+    public void publicar(Collection<String> quincenas) {
+        incrementarVersiones(quincenas);
+        eventos.publishEvent(new PlanillasPublicadas(List.copyOf(quincenas)));
+    }
+
+    private void incrementarVersiones(Collection<String> quincenas) {
+        LocalDateTime ahora = LocalDateTime.now();
+        for (String quincena : quincenas) {
+            if (versionRepository.incrementar(quincena, ahora) == 0) {
+                try {
+                    versionRepository.save(new VersionPlanilla(quincena, 1, ahora));
+                } catch (DataIntegrityViolationException e) {
+                    // Otra instancia creo la version al mismo tiempo
+                    versionRepository.incrementar(quincena, ahora);
+                }
+            }
+            versiones.invalidate(quincena);
+            instantaneas.invalidate(quincena);
+        }
+    }
+
+    /**
+     * Planillas guardadas de la quincena, con la ultima version publicada. Si esta instancia esta calculando
+     * la quincena y no tiene una instantanea vigente, espera a que termine el calculo; un calculo en curso de
+     * otra instancia no se espera y sus planillas ya guardadas se incluyen.
+     * @param quincena Quincena de las planillas
+     * @return instantanea de la quincena, con version 0 si nunca se publico un calculo
+     */
+    public InstantaneaPlanilla getInstantanea(String quincena) {
+        long version = getVersion(quincena);
+        InstantaneaPlanilla instantanea = instantaneas.getIfPresent(quincena);
+        if (instantanea != null && instantanea.getVersion() == version) {
+            return instantanea;
+        }
+        CompletableFuture<ResultadoCalculo> calculo = enCurso.getOrDefault(quincena, enCurso.get(TODAS));
+        if (calculo != null) {
+            try {
+                calculo.join();
+            } catch (CompletionException e) {
+                // Se publican las planillas que quedaron guardadas
+            }
+            version = getVersion(quincena);
+        }
+        instantanea = new InstantaneaPlanilla(quincena, version, LocalDateTime.now(),
+                Collections.unmodifiableList(planillaRepository.findByQuincena(quincena)));
+        // Si mientras se leia otra lectura guardo una version igual o mas nueva, se conserva esa
+        return instantaneas.asMap().merge(quincena, instantanea,
+                (anterior, nueva) -> anterior.getVersion() >= nueva.getVersion() ? anterior : nueva);
+    }
+
+    /**
+     * @param quincena Quincena de las planillas
+     * @return ultima version publicada, 0 si nunca se publico un calculo
+     */
+    public long getVersion(String quincena) {
+        return versiones.get(quincena, q -> {
+            Long version = versionRepository.findVersion(q);
+            return version == null ? 0L : version;
+        });
+    }
+}
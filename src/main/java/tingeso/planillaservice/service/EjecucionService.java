@@ -0,0 +1,462 @@
+package tingeso.planillaservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tingeso.planillaservice.entity.AvanceEjecucion;
+import tingeso.planillaservice.entity.CuarentenaProveedor;
+import tingeso.planillaservice.entity.EjecucionPlanilla;
+import tingeso.planillaservice.entity.EjecucionPlanilla.Estado;
+import tingeso.planillaservice.entity.Planilla;
+import tingeso.planillaservice.model.Quincena;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.repository.AvanceEjecucionRepository;
+import tingeso.planillaservice.repository.CuarentenaProveedorRepository;
+import tingeso.planillaservice.repository.EjecucionPlanillaRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Ejecuciones asincronas del calculo de planillas.
+ * El estado y el avance de cada ejecucion se guardan en la base de datos,
+ * por lo que cualquier instancia puede consultarla o cancelarla.
+ * Una ejecucion de una quincena guarda puntos de control con los proveedores terminados y deja en
+ * cuarentena, con su error, a los proveedores que fallan. Si la instancia que calcula una ejecucion deja
+ * de actualizarla durante planilla.ejecuciones.abandono, otra instancia la retoma sin calcular de nuevo
+ * los proveedores terminados ni los que estan en cuarentena.
+ */
+@Service
+public class EjecucionService {
+    private final Logger logg = LoggerFactory.getLogger(EjecucionService.class);
+
+    @Autowired
+    EjecucionPlanillaRepository ejecucionRepository;
+
+    @Autowired
+    PlanillaService planillaService;
+
+    @Autowired
+    ParticionService particionService;
+
+    @Autowired
+    HistoricoService historicoService;
+
+    @Autowired
+    CoordinadorCalculo coordinadorCalculo;
+
+    @Autowired
+    AvanceEjecucionRepository avanceRepository;
+
+    @Autowired
+    CuarentenaProveedorRepository cuarentenaRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ExecutorService ejecucionesExecutor;
+
+    @Value("${planilla.ejecuciones.intervalo-progreso:2s}")
+    Duration intervaloProgreso;
+
+    @Value("${planilla.ejecuciones.abandono:60s}")
+    Duration abandono;
+
+    @Value("${spring.cloud.client.hostname:localhost}:${server.port:8080}")
+    String instancia;
+
+    /**
+     * Ejecuciones que se estan calculando en esta instancia
+     */
+    private final Map<Integer, Seguimiento> activas = new ConcurrentHashMap<>();
+
+    public EjecucionPlanilla iniciar(String quincena) {
+        return iniciar(quincena, false);
+    }
+
+    /**
+     * Registra una ejecucion para la quincena y la inicia en segundo plano.
+     * Una ejecucion distribuida reparte los proveedores en particiones que calculan todas las instancias.
+     * Si la quincena ya tiene una ejecucion pendiente o en curso se devuelve esa.
+     * @param quincena Quincena a calcular
+     * @param distribuida true para repartir el calculo entre las instancias
+     * @return ejecucion registrada
+     */
+    public synchronized EjecucionPlanilla iniciar(String quincena, boolean distribuida) {
+        Optional<EjecucionPlanilla> activa = ejecucionRepository.findFirstByQuincenaAndQuincenaHastaIsNullAndEstadoIn(
+                quincena, List.of(Estado.PENDIENTE, Estado.EN_EJECUCION));
+        if (activa.isPresent()) {
+            logg.info("Quincena {} ya en calculo en la ejecucion {}", quincena, activa.get().getId());
+            return activa.get();
+        }
+        EjecucionPlanilla ejecucion = new EjecucionPlanilla();
+        ejecucion.setDistribuida(distribuida);
+        ejecucion.setQuincena(quincena);
+        ejecucion.setEstado(Estado.PENDIENTE);
+        ejecucion.setInicio(LocalDateTime.now());
+        ejecucion.setActualizado(ejecucion.getInicio());
+        ejecucion.setInstancia(instancia);
+        EjecucionPlanilla guardada = ejecucionRepository.save(ejecucion);
+        if (distribuida) {
+            ejecucionesExecutor.submit(() -> particionar(guardada.getId(), quincena));
+        } else {
+            ejecucionesExecutor.submit(() -> ejecutar(guardada.getId(), quincena));
+        }
+        return guardada;
+    }
+
+    /**
+     * Registra un recalculo de un rango de quincenas y lo inicia en segundo plano
+     * @param desde Primera quincena, incluida
+     * @param hasta Ultima quincena, incluida
+     * @return ejecucion registrada
+     */
+    public EjecucionPlanilla iniciarHistorico(Quincena desde, Quincena hasta) {
+        EjecucionPlanilla ejecucion = new EjecucionPlanilla();
+        ejecucion.setQuincena(desde.toString());
+        ejecucion.setQuincenaHasta(hasta.toString());
+        ejecucion.setEstado(Estado.PENDIENTE);
+        ejecucion.setInicio(LocalDateTime.now());
+        ejecucion.setActualizado(ejecucion.getInicio());
+        ejecucion.setInstancia(instancia);
+        EjecucionPlanilla guardada = ejecucionRepository.save(ejecucion);
+        ejecucionesExecutor.submit(() -> ejecutarHistorico(guardada.getId(), desde, hasta));
+        return guardada;
+    }
+
+    public Optional<EjecucionPlanilla> getEjecucion(Integer id) {
+        return ejecucionRepository.findById(id);
+    }
+
+    /**
+     * @param id Identificador de la ejecucion
+     * @return proveedores que fallaron en la ejecucion, con su error
+     */
+    public List<CuarentenaProveedor> getCuarentena(Integer id) {
+        return cuarentenaRepository.findByEjecucionIdOrderByIdAsc(id);
+    }
+
+    /**
+     * Solicita la cancelacion de una ejecucion. Una ejecucion pendiente se cancela de inmediato;
+     * una en curso deja de calcular proveedores nuevos en su siguiente actualizacion de progreso.
+     * @param id Identificador de la ejecucion
+     * @return ejecucion actualizada
+     */
+    public Optional<EjecucionPlanilla> cancelar(Integer id) {
+        if (ejecucionRepository.cambiarEstado(id, List.of(Estado.PENDIENTE), Estado.CANCELADA) == 0) {
+            ejecucionRepository.cambiarEstado(id, List.of(Estado.EN_EJECUCION), Estado.CANCELANDO);
+        }
+        return ejecucionRepository.findById(id);
+    }
+
+    /**
+     * Obtiene las planillas calculadas por una ejecucion terminada
+     * @param ejecucion Ejecucion completada
+     * @return pagos Lista de pagos de la quincena (o del rango de quincenas) de la ejecucion
+     */
+    public List<Planilla> getResultados(EjecucionPlanilla ejecucion) {
+        if (ejecucion.getQuincenaHasta() != null) {
+            return planillaService.getPlanillasEntreQuincenas(ejecucion.getQuincena(), ejecucion.getQuincenaHasta());
+        }
+        return coordinadorCalculo.getInstantanea(ejecucion.getQuincena()).getPlanillas();
+    }
+
+    void ejecutar(Integer id, String quincena) {
+        if (ejecucionRepository.cambiarEstado(id, List.of(Estado.PENDIENTE), Estado.EN_EJECUCION) > 0) {
+            // inicio viene del reloj de la instancia que la registro; recuperar compara con el de la base de datos
+            ejecucionRepository.latido(id, instancia);
+            calcular(id, quincena);
+        }
+    }
+
+    private void ejecutarHistorico(Integer id, Quincena desde, Quincena hasta) {
+        if (ejecucionRepository.cambiarEstado(id, List.of(Estado.PENDIENTE), Estado.EN_EJECUCION) > 0) {
+            ejecucionRepository.latido(id, instancia);
+            calcularHistorico(id, desde, hasta);
+        }
+    }
+
+    private void calcular(Integer id, String quincena) {
+        Seguimiento seguimiento = new Seguimiento(id, quincena);
+        seguimiento.cargarPuntosControl();
+        calcular(seguimiento, quincena, progreso -> coordinadorCalculo.calcular(quincena, progreso));
+    }
+
+    /**
+     * Un recalculo historico no guarda puntos de control: al retomarlo se recorre el rango completo,
+     * y las planillas sin cambios no se vuelven a guardar
+     */
+    private void calcularHistorico(Integer id, Quincena desde, Quincena hasta) {
+        calcular(new Seguimiento(id, null), desde + " a " + hasta,
+                progreso -> historicoService.recalcular(desde, hasta, progreso));
+    }
+
+    private void calcular(Seguimiento seguimiento, String quincena, Function<ProgresoCalculo, ResultadoCalculo> calculo) {
+        Integer id = seguimiento.id;
+        activas.put(id, seguimiento);
+        try {
+            ResultadoCalculo resultado = calculo.apply(seguimiento);
+            seguimiento.completar(resultado);
+            seguimiento.guardar();
+            if (!seguimiento.perdida) {
+                finalizar(id, resultado.isCancelado() ? Estado.CANCELADA : Estado.COMPLETADA, null);
+            }
+        } catch (RuntimeException e) {
+            logg.error("Error en la ejecucion {} de la quincena {}: ", id, quincena, e);
+            seguimiento.guardar();
+            if (!seguimiento.perdida) {
+                finalizar(id, Estado.FALLIDA, e.getMessage());
+            }
+        } finally {
+            activas.remove(id, seguimiento);
+        }
+    }
+
+    /**
+     * Actualiza las ejecuciones que se calculan en esta instancia, aunque no avancen (por ejemplo durante
+     * la precarga). Si otra instancia retomo una, se deja de calcular aqui.
+     */
+    @Scheduled(fixedDelayString = "${planilla.ejecuciones.latido-ms:10000}")
+    public void latir() {
+        activas.forEach((id, seguimiento) -> {
+            if (ejecucionRepository.latido(id, instancia) == 0) {
+                logg.warn("La ejecucion {} la retomo otra instancia, se detiene en esta", id);
+                seguimiento.perder();
+            }
+        });
+    }
+
+    /**
+     * Retoma las ejecuciones en curso que nadie actualiza desde hace planilla.ejecuciones.abandono,
+     * normalmente porque la instancia que las calculaba se detuvo. El latido y el abandono usan la hora de la
+     * base de datos, como los arriendos de las particiones, asi que un reloj adelantado en una instancia no
+     * le quita a otra una ejecucion que sigue calculando.
+     */
+    @Scheduled(fixedDelayString = "${planilla.ejecuciones.recuperacion-ms:30000}")
+    public void recuperar() {
+        List<EjecucionPlanilla> abandonadas = ejecucionRepository.findAbandonadas(abandono.toSeconds());
+        for (EjecucionPlanilla ejecucion : abandonadas) {
+            Integer id = ejecucion.getId();
+            if (activas.containsKey(id)
+                    || ejecucionRepository.reclamar(id, ejecucion.getActualizado(), instancia) == 0) {
+                continue;
+            }
+            if (ejecucion.getEstado() == Estado.CANCELANDO) {
+                finalizar(id, Estado.CANCELADA, null);
+                continue;
+            }
+            logg.warn("Ejecucion {} sin actualizar desde {} en {}, se retoma en esta instancia", id,
+                    ejecucion.getActualizado(), ejecucion.getInstancia());
+            if (ejecucion.getQuincenaHasta() != null) {
+                Quincena desde = Quincena.parse(ejecucion.getQuincena());
+                Quincena hasta = Quincena.parse(ejecucion.getQuincenaHasta());
+                ejecucionesExecutor.submit(() -> calcularHistorico(id, desde, hasta));
+            } else {
+                ejecucionesExecutor.submit(() -> calcular(id, ejecucion.getQuincena()));
+            }
+        }
+    }
+
+    void particionar(Integer id, String quincena) {
+        try {
+            particionService.particionar(id, quincena);
+        } catch (RuntimeException e) {
+            logg.error("Error al particionar la ejecucion {} de la quincena {}: ", id, quincena, e);
+            finalizar(id, Estado.FALLIDA, e.getMessage());
+        }
+    }
+
+    private void finalizar(Integer id, Estado estado, String error) {
+        ejecucionRepository.findById(id).ifPresent(ejecucion -> {
+            ejecucion.setEstado(estado);
+            ejecucion.setFin(LocalDateTime.now());
+            ejecucion.setError(error);
+            ejecucionRepository.save(ejecucion);
+        });
+    }
+
+    /**
+     * Acumula el avance en memoria y lo guarda cada intervaloProgreso, junto con los puntos de control
+     * de los proveedores sin cambios y la cuarentena, revisando en ese momento si otra instancia pidio
+     * cancelar la ejecucion. Los proveedores recalculados se registran al guardar sus planillas.
+     */
+    class Seguimiento implements ProgresoCalculo {
+        private final Integer id;
+        /**
+         * Quincena de la ejecucion, null si no se guardan puntos de control
+         */
+        private final String quincena;
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger recalculados = new AtomicInteger();
+        private final AtomicInteger sinCambios = new AtomicInteger();
+        private final AtomicInteger fallidos = new AtomicInteger();
+        private final AtomicLong ultimoGuardado = new AtomicLong(System.nanoTime());
+        private Set<String> terminados = Set.of();
+        private List<String> sinCambiosPendientes = new ArrayList<>();
+        private List<CuarentenaProveedor> cuarentenaPendiente = new ArrayList<>();
+        private volatile boolean iniciado;
+        private volatile boolean cancelado;
+        private volatile boolean perdida;
+
+        Seguimiento(Integer id, String quincena) {
+            this.id = id;
+            this.quincena = quincena;
+        }
+
+        /**
+         * Lee los proveedores terminados y en cuarentena de un intento anterior de la ejecucion
+         */
+        void cargarPuntosControl() {
+            Set<String> recalculadosAntes = new HashSet<>();
+            Set<String> sinCambiosAntes = new HashSet<>();
+            for (AvanceEjecucion avance : avanceRepository.findByEjecucionId(id)) {
+                List<String> codigos = Arrays.asList(avance.getProveedores().split(","));
+                (avance.isRecalculados() ? recalculadosAntes : sinCambiosAntes).addAll(codigos);
+            }
+            sinCambiosAntes.removeAll(recalculadosAntes);
+            Set<String> fallidosAntes = cuarentenaRepository.findByEjecucionIdOrderByIdAsc(id).stream()
+                    .map(CuarentenaProveedor::getCodigoProveedor)
+                    .collect(Collectors.toCollection(HashSet::new));
+            fallidosAntes.removeAll(recalculadosAntes);
+            fallidosAntes.removeAll(sinCambiosAntes);
+            recalculados.set(recalculadosAntes.size());
+            sinCambios.set(sinCambiosAntes.size());
+            fallidos.set(fallidosAntes.size());
+            Set<String> todos = new HashSet<>(recalculadosAntes);
+            todos.addAll(sinCambiosAntes);
+            todos.addAll(fallidosAntes);
+            terminados = todos;
+            if (!terminados.isEmpty()) {
+                logg.info("Ejecucion {}: {} proveedores terminados y {} en cuarentena en intentos anteriores", id,
+                        recalculadosAntes.size() + sinCambiosAntes.size(), fallidosAntes.size());
+            }
+        }
+
+        @Override
+        public void iniciado(int totalProveedores) {
+            iniciado = true;
+            total.set(totalProveedores);
+            guardar();
+        }
+
+        @Override
+        public boolean pendiente(String codigoProveedor) {
+            return !terminados.contains(codigoProveedor);
+        }
+
+        @Override
+        public void proveedorCalculado(String codigoProveedor, boolean recalculado) {
+            (recalculado ? recalculados : sinCambios).incrementAndGet();
+            if (!recalculado && quincena != null) {
+                synchronized (this) {
+                    sinCambiosPendientes.add(codigoProveedor);
+                }
+            }
+            guardarSiCorresponde();
+        }
+
+        @Override
+        public void proveedorFallido(String codigoProveedor, Exception error) {
+            fallidos.incrementAndGet();
+            if (quincena != null) {
+                CuarentenaProveedor cuarentena = new CuarentenaProveedor(null, id, quincena, codigoProveedor,
+                        describir(error), LocalDateTime.now());
+                synchronized (this) {
+                    cuarentenaPendiente.add(cuarentena);
+                }
+            }
+            guardarSiCorresponde();
+        }
+
+        @Override
+        public void planillasGuardadas(List<Planilla> planillas) {
+            if (quincena != null) {
+                String codigos = planillas.stream().map(Planilla::getCodigoProveedor).collect(Collectors.joining(","));
+                avanceRepository.save(new AvanceEjecucion(null, id, codigos, true, LocalDateTime.now()));
+            }
+        }
+
+        @Override
+        public boolean cancelado() {
+            return cancelado;
+        }
+
+        void perder() {
+            perdida = true;
+            cancelado = true;
+        }
+
+        /**
+         * Toma los totales del resultado, que es de otro calculo si este espero uno ya en curso.
+         * Si este calculo retomo la ejecucion, el resultado no incluye a los proveedores ya terminados
+         * y se conservan los totales acumulados.
+         */
+        void completar(ResultadoCalculo resultado) {
+            if (iniciado && !terminados.isEmpty()) {
+                return;
+            }
+            total.set(resultado.getProveedores());
+            recalculados.set(resultado.getRecalculados());
+            sinCambios.set(resultado.getSinCambios());
+            fallidos.set(resultado.getFallidos());
+        }
+
+        private void guardarSiCorresponde() {
+            long ultimo = ultimoGuardado.get();
+            long ahora = System.nanoTime();
+            if (ahora - ultimo >= intervaloProgreso.toNanos() && ultimoGuardado.compareAndSet(ultimo, ahora)) {
+                guardar();
+            }
+        }
+
+        void guardar() {
+            if (perdida) {
+                return;
+            }
+            List<String> sinCambiosGuardar;
+            List<CuarentenaProveedor> cuarentenaGuardar;
+            synchronized (this) {
+                sinCambiosGuardar = sinCambiosPendientes;
+                cuarentenaGuardar = cuarentenaPendiente;
+                sinCambiosPendientes = new ArrayList<>();
+                cuarentenaPendiente = new ArrayList<>();
+            }
+            int procesados = recalculados.get() + sinCambios.get() + fallidos.get();
+            LocalDateTime ahora = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!sinCambiosGuardar.isEmpty()) {
+                    avanceRepository.save(new AvanceEjecucion(null, id, String.join(",", sinCambiosGuardar), false, ahora));
+                }
+                cuarentenaRepository.saveAll(cuarentenaGuardar);
+                ejecucionRepository.actualizarProgreso(id, total.get(), procesados, recalculados.get(),
+                        sinCambios.get(), fallidos.get());
+            });
+            cancelado = cancelado || ejecucionRepository.findEstadoById(id) == Estado.CANCELANDO;
+        }
+    }
+
+    private static String describir(Throwable error) {
+        Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        String descripcion = causa.getClass().getSimpleName() + ": " + causa.getMessage();
+        return descripcion.length() > 2000 ? descripcion.substring(0, 2000) : descripcion;
+    }
+}
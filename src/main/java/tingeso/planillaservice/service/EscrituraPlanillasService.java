@@ -0,0 +1,193 @@
+package tingeso.planillaservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tingeso.planillaservice.entity.Planilla;
+import tingeso.planillaservice.repository.PlanillaRepository;
+import tingeso.planillaservice.service.MetricasPlanilla.Etapa;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Guarda planillas en lotes. Cada lote se escribe en una transaccion y, con
+ * hibernate.jdbc.batch_size configurado, en un solo batch JDBC de inserts o updates.
+ * La misma transaccion actualiza los totales de resumen_planilla.
+ * Un lote tambien puede escribir en la tabla temporal del reemplazo de una quincena.
+ */
+@Service
+public class EscrituraPlanillasService {
+    private final Logger logg = LoggerFactory.getLogger(EscrituraPlanillasService.class);
+
+    @Autowired
+    PlanillaRepository planillaRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MetricasPlanilla metricas;
+
+    @Autowired
+    PeriodosPlanillaService periodosPlanilla;
+
+    @Autowired
+    ResumenesPlanillaService resumenes;
+
+    @Value("${planilla.escritura.tamano-lote:500}")
+    int tamanoLote;
+
+    /**
+     * @return lote vacio para acumular las planillas de una ejecucion
+     */
+    public LotePlanillas nuevoLote() {
+        return nuevoLote(ProgresoCalculo.NINGUNO);
+    }
+
+    /**
+     * @param progreso Recibe las planillas de cada lote dentro de la transaccion que las guarda
+     * @return lote vacio para acumular las planillas de una ejecucion
+     */
+    public LotePlanillas nuevoLote(ProgresoCalculo progreso) {
+        return new LotePlanillas(null, progreso);
+    }
+
+    /**
+     * @param temporal Tabla creada con PeriodosPlanillaService.crearTemporal; las planillas se insertan
+     *                 como nuevas, sin pasar por Hibernate
+     * @param progreso Recibe las planillas de cada lote despues de insertarlas
+     * @return lote vacio para acumular las planillas del reemplazo de una quincena
+     */
+    public LotePlanillas nuevoLote(String temporal, ProgresoCalculo progreso) {
+        return new LotePlanillas(temporal, progreso);
+    }
+
+    /**
+     * Guarda las planillas en una sola transaccion y libera el contexto de persistencia
+     * @param planillas Planillas a guardar
+     */
+    public void guardar(List<Planilla> planillas) {
+        guardar(planillas, ProgresoCalculo.NINGUNO);
+    }
+
+    private void guardar(List<Planilla> planillas, ProgresoCalculo progreso) {
+        if (planillas.isEmpty()) {
+            return;
+        }
+        planillas.stream().map(Planilla::getQuincena).distinct().forEach(periodosPlanilla::asegurar);
+        transactionTemplate.executeWithoutResult(status -> {
+            resumenes.registrar(planillas);
+            planillaRepository.saveAll(planillas);
+            progreso.planillasGuardadas(planillas);
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    /**
+     * Acumula planillas calculadas y las guarda cada tamanoLote planillas.
+     * Puede usarse desde varios hilos; la escritura se hace fuera del bloqueo.
+     */
+    public class LotePlanillas {
+        private final String temporal;
+        private final ProgresoCalculo progreso;
+        private List<Planilla> pendientes = new ArrayList<>();
+        private final long inicio = System.nanoTime();
+        private long guardadas;
+        private int lotes;
+
+        private LotePlanillas(String temporal, ProgresoCalculo progreso) {
+            this.temporal = temporal;
+            this.progreso = progreso;
+        }
+
+        public void agregar(Planilla planilla) {
+            List<Planilla> completo = null;
+            synchronized (this) {
+                pendientes.add(planilla);
+                if (pendientes.size() >= tamanoLote) {
+                    completo = pendientes;
+                    pendientes = new ArrayList<>(tamanoLote);
+                }
+            }
+            if (completo != null) {
+                escribir(completo);
+            }
+        }
+
+        /**
+         * Guarda las planillas pendientes
+         */
+        public void vaciar() {
+            List<Planilla> completo;
+            synchronized (this) {
+                completo = pendientes;
+                pendientes = new ArrayList<>(tamanoLote);
+            }
+            escribir(completo);
+        }
+
+        /**
+         * Guarda las planillas pendientes y registra el rendimiento de escritura del lote
+         */
+        public void cerrar() {
+            vaciar();
+            synchronized (this) {
+                double segundos = (System.nanoTime() - inicio) / 1e9;
+                logg.info("Guardadas {} planillas en {} lotes ({} filas/s)", guardadas, lotes,
+                        segundos > 0 ? Math.round(guardadas / segundos) : guardadas);
+            }
+        }
+
+        private void escribir(List<Planilla> planillas) {
+            if (planillas.isEmpty()) {
+                return;
+            }
+            long inicioLote = System.nanoTime();
+            if (temporal != null) {
+                // Un error en la tabla temporal hace fallar el reemplazo completo, no se guarda de a una
+                periodosPlanilla.insertar(temporal, planillas);
+                progreso.planillasGuardadas(planillas);
+            } else {
+                try {
+                    guardar(planillas, progreso);
+                } catch (RuntimeException e) {
+                    // Otra instancia pudo eliminar una particion que esta instancia ya habia visto
+                    periodosPlanilla.olvidar();
+                    logg.warn("Fallo el lote de {} planillas, se guardan de a una: {}", planillas.size(), e.getMessage());
+                    planillas = guardarDeAUna(planillas);
+                }
+            }
+            metricas.registrar(Etapa.GUARDADO, inicioLote);
+            long nanos = System.nanoTime() - inicioLote;
+            synchronized (this) {
+                guardadas += planillas.size();
+                lotes++;
+            }
+            logg.debug("Lote de {} planillas guardado en {} ms ({} filas/s)", planillas.size(), nanos / 1_000_000,
+                    nanos > 0 ? Math.round(planillas.size() / (nanos / 1e9)) : planillas.size());
+        }
+
+        private List<Planilla> guardarDeAUna(List<Planilla> planillas) {
+            List<Planilla> guardadas = new ArrayList<>(planillas.size());
+            for (Planilla planilla : planillas) {
+                try {
+                    guardar(List.of(planilla), progreso);
+                    guardadas.add(planilla);
+                } catch (RuntimeException e) {
+                    logg.error("Error al guardar la planilla del proveedor {} en la quincena {}: ",
+                            planilla.getCodigoProveedor(), planilla.getQuincena(), e);
+                }
+            }
+            return guardadas;
+        }
+    }
+}
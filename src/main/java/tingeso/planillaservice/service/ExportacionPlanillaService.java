@@ -0,0 +1,473 @@
+package tingeso.planillaservice.service;
+
+import org.hibernate.jpa.QueryHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tingeso.planillaservice.model.FilaPago;
+import tingeso.planillaservice.model.ResultadoExportacion;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archivo de pagos de una quincena. Las filas se leen con un cursor de la base de datos y se escriben
+ * en un buffer que se vacia a un canal NIO (la respuesta o un archivo local), asi que la memoria usada
+ * no depende de la cantidad de planillas.
+ */
+@Service
+public class ExportacionPlanillaService {
+    private final Logger logg = LoggerFactory.getLogger(ExportacionPlanillaService.class);
+
+    private static final String CONSULTA = "select new tingeso.planillaservice.model.FilaPago(" +
+            "p.quincena, p.codigoProveedor, p.nombreProveedor, p.pagoTotal, p.montoRetencion, p.montoFinal) " +
+            "from Planilla p where p.quincena = :quincena order by p.codigoProveedor";
+
+    /**
+     * Candidatas a no caber en un registro de ancho fijo; cada una se revisa despues con las mismas reglas
+     * que usa el escritor
+     */
+    private static final String CONSULTA_FUERA_DE_ANCHO = "select new tingeso.planillaservice.model.FilaPago(" +
+            "p.quincena, p.codigoProveedor, p.nombreProveedor, p.pagoTotal, p.montoRetencion, p.montoFinal) " +
+            "from Planilla p where p.quincena = :quincena and (length(p.codigoProveedor) > " + Formato.LARGO_CODIGO +
+            " or p.montoFinal >= :maximo or p.montoFinal <= :minimo" +
+            " or p.montoRetencion >= :maximo or p.montoRetencion <= :minimo) order by p.codigoProveedor";
+
+    /**
+     * Formatos del archivo de pagos
+     */
+    public enum Formato {
+        /**
+         * CSV con encabezado, UTF-8 y montos con dos decimales
+         */
+        CSV("csv", "text/csv"),
+        /**
+         * Un registro de 92 caracteres ASCII por linea terminada en CRLF: codigo (10), nombre (40),
+         * quincena (10), monto final (16), retencion (16). Los montos van en centavos, rellenos con ceros,
+         * y un monto negativo empieza con '-'. Si un codigo o un monto no cabe en su campo la exportacion
+         * falla: el banco paga por codigo, y un codigo cortado podria pagar a otra cuenta. El nombre solo
+         * identifica al proveedor para quien lee el archivo, asi que se le quitan los tildes y se corta
+         * a 40 caracteres.
+         */
+        ANCHO_FIJO("txt", "text/plain");
+
+        static final int LARGO_CODIGO = 10;
+        static final int LARGO_NOMBRE = 40;
+        static final int LARGO_QUINCENA = 10;
+        static final int LARGO_MONTO = 16;
+
+        private final String extension;
+        private final String tipo;
+
+        Formato(String extension, String tipo) {
+            this.extension = extension;
+            this.tipo = tipo;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getTipo() {
+            return tipo;
+        }
+
+        /**
+         * @param nombre "csv" o "ancho-fijo"
+         * @return formato, null si no existe
+         */
+        public static Formato desde(String nombre) {
+            for (Formato formato : values()) {
+                if (formato.name().replace('_', '-').equalsIgnoreCase(nombre)) {
+                    return formato;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${planilla.consulta.tamano-fetch:500}")
+    int tamanoFetch;
+
+    @Value("${planilla.exportacion.tamano-buffer:65536}")
+    int tamanoBuffer;
+
+    @Value("${planilla.exportacion.directorio:exportaciones}")
+    String directorio;
+
+    /**
+     * @return nombre del archivo de pagos de la quincena
+     */
+    public String nombreArchivo(String quincena, Formato formato, boolean gzip) {
+        return "pagos-" + quincena.replace('/', '-') + "." + formato.getExtension() + (gzip ? ".gz" : "");
+    }
+
+    /**
+     * Escribe el archivo de pagos de la quincena en la salida, sin cerrarla. Una fila que no cabe en el
+     * formato corta la escritura; para responder con un error antes del primer byte se llama antes a verificar.
+     * @param quincena Quincena de las planillas
+     * @param formato Formato del archivo
+     * @param gzip true para comprimir con gzip
+     * @param salida Salida de la respuesta
+     * @return cantidad de filas escritas
+     */
+    public long exportar(String quincena, Formato formato, boolean gzip, OutputStream salida) {
+        try {
+            if (!gzip) {
+                return exportar(quincena, formato, Channels.newChannel(salida));
+            }
+            GZIPOutputStream comprimida = new GZIPOutputStream(salida, tamanoBuffer);
+            long filas = exportar(quincena, formato, Channels.newChannel(comprimida));
+            comprimida.finish();
+            comprimida.flush();
+            return filas;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Escribe el archivo de pagos de la quincena en planilla.exportacion.directorio. El archivo se escribe
+     * con otro nombre y se renombra al terminar, asi que nunca queda un archivo incompleto con el nombre final.
+     * @param quincena Quincena de las planillas
+     * @param formato Formato del archivo
+     * @param gzip true para comprimir con gzip
+     * @return archivo escrito, filas y tamano
+     */
+    public ResultadoExportacion exportarArchivo(String quincena, Formato formato, boolean gzip) {
+        long inicio = System.nanoTime();
+        Path carpeta = Paths.get(directorio);
+        Path archivo = carpeta.resolve(nombreArchivo(quincena, formato, gzip));
+        verificar(quincena, formato);
+        try {
+            Files.createDirectories(carpeta);
+            Path temporal = Files.createTempFile(carpeta, "pagos-", ".parcial");
+            long filas;
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (gzip) {
+                    try (GZIPOutputStream comprimida = new GZIPOutputStream(Channels.newOutputStream(canal), tamanoBuffer)) {
+                        filas = exportar(quincena, formato, Channels.newChannel(comprimida));
+                    }
+                } else {
+                    filas = exportar(quincena, formato, canal);
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporal);
+                throw e;
+            }
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+            long bytes = Files.size(archivo);
+            logg.info("Archivo de pagos {}: {} filas, {} bytes en {} ms", archivo, filas, bytes, milisegundos);
+            return new ResultadoExportacion(archivo.toAbsolutePath().toString(), filas, bytes, milisegundos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Revisa, antes de escribir el primer byte, que las planillas de la quincena quepan en el formato
+     * @param quincena Quincena de las planillas
+     * @param formato Formato del archivo
+     * @throws IllegalArgumentException si un codigo o un monto no cabe en su campo de ancho fijo
+     */
+    public void verificar(String quincena, Formato formato) {
+        if (formato != Formato.ANCHO_FIJO) {
+            return;
+        }
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        lectura.executeWithoutResult(status -> {
+            // Cotas un poco mas amplias que las reales; validarAnchoFijo decide con el mismo redondeo del escritor
+            try (Stream<FilaPago> candidatas = entityManager.createQuery(CONSULTA_FUERA_DE_ANCHO, FilaPago.class)
+                    .setParameter("quincena", quincena)
+                    .setParameter("maximo", 9.9e13)
+                    .setParameter("minimo", -9.9e12)
+                    .setHint(QueryHints.HINT_READONLY, true)
+                    .getResultStream()) {
+                candidatas.forEach(ExportacionPlanillaService::validarAnchoFijo);
+            }
+        });
+    }
+
+    private long exportar(String quincena, Formato formato, WritableByteChannel canal) {
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        Long filas = lectura.execute(status -> {
+            try (Stream<FilaPago> pagos = entityManager.createQuery(CONSULTA, FilaPago.class)
+                    .setParameter("quincena", quincena)
+                    .setHint(QueryHints.HINT_FETCH_SIZE, tamanoFetch)
+                    .setHint(QueryHints.HINT_READONLY, true)
+                    .getResultStream()) {
+                return escribir(formato, pagos.iterator(), canal, tamanoBuffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return filas == null ? 0 : filas;
+    }
+
+    /**
+     * Escribe las filas en el formato pedido y vacia el buffer en el canal
+     * @return cantidad de filas escritas
+     */
+    static long escribir(Formato formato, Iterator<FilaPago> pagos, WritableByteChannel canal,
+                         int tamanoBuffer) throws IOException {
+        Escritor escritor = new Escritor(canal, tamanoBuffer);
+        long escritas = 0;
+        if (formato == Formato.CSV) {
+            escritor.ascii("quincena,codigo_proveedor,nombre_proveedor,pago_total,monto_retencion,monto_final\n");
+        }
+        while (pagos.hasNext()) {
+            FilaPago pago = pagos.next();
+            if (formato == Formato.CSV) {
+                escribirCsv(escritor, pago);
+            } else {
+                escribirAnchoFijo(escritor, pago);
+            }
+            escritas++;
+        }
+        escritor.vaciar();
+        return escritas;
+    }
+
+    /**
+     * @throws IllegalArgumentException si el codigo, la quincena o un monto no cabe en su campo
+     */
+    static void validarAnchoFijo(FilaPago pago) {
+        String codigo = pago.getCodigoProveedor();
+        if (!Escritor.cabe(codigo, Formato.LARGO_CODIGO)) {
+            throw new IllegalArgumentException("El codigo de proveedor '" + codigo + "' no cabe en los "
+                    + Formato.LARGO_CODIGO + " caracteres ASCII del archivo de pagos");
+        }
+        if (!Escritor.cabe(pago.getQuincena(), Formato.LARGO_QUINCENA)) {
+            throw new IllegalArgumentException("La quincena '" + pago.getQuincena() + "' del proveedor " + codigo
+                    + " no cabe en los " + Formato.LARGO_QUINCENA + " caracteres del archivo de pagos");
+        }
+        if (!Escritor.cabe(pago.getMontoFinal(), Formato.LARGO_MONTO)) {
+            throw new IllegalArgumentException("El monto final " + pago.getMontoFinal() + " del proveedor " + codigo
+                    + " no cabe en los " + Formato.LARGO_MONTO + " caracteres del archivo de pagos");
+        }
+        if (!Escritor.cabe(pago.getMontoRetencion(), Formato.LARGO_MONTO)) {
+            throw new IllegalArgumentException("La retencion " + pago.getMontoRetencion() + " del proveedor " + codigo
+                    + " no cabe en los " + Formato.LARGO_MONTO + " caracteres del archivo de pagos");
+        }
+    }
+
+    private static void escribirCsv(Escritor escritor, FilaPago pago) throws IOException {
+        escritor.csv(pago.getQuincena());
+        escritor.caracter(',');
+        escritor.csv(pago.getCodigoProveedor());
+        escritor.caracter(',');
+        escritor.csv(pago.getNombreProveedor());
+        escritor.caracter(',');
+        escritor.decimal(pago.getPagoTotal());
+        escritor.caracter(',');
+        escritor.decimal(pago.getMontoRetencion());
+        escritor.caracter(',');
+        escritor.decimal(pago.getMontoFinal());
+        escritor.caracter('\n');
+    }
+
+    private static void escribirAnchoFijo(Escritor escritor, FilaPago pago) throws IOException {
+        // Se valida la fila completa antes de escribir, asi un error nunca deja un registro a medias
+        validarAnchoFijo(pago);
+        escritor.alfanumerico(pago.getCodigoProveedor(), Formato.LARGO_CODIGO);
+        escritor.alfanumerico(pago.getNombreProveedor(), Formato.LARGO_NOMBRE);
+        escritor.alfanumerico(pago.getQuincena(), Formato.LARGO_QUINCENA);
+        escritor.centavos(pago.getMontoFinal(), Formato.LARGO_MONTO);
+        escritor.centavos(pago.getMontoRetencion(), Formato.LARGO_MONTO);
+        escritor.caracter('\r');
+        escritor.caracter('\n');
+    }
+
+    /**
+     * Codifica las filas directamente en un ByteBuffer y lo escribe en el canal cuando se llena
+     */
+    private static final class Escritor {
+        private final WritableByteChannel canal;
+        private final ByteBuffer buffer;
+        private final byte[] digitos = new byte[20];
+
+        Escritor(WritableByteChannel canal, int tamano) {
+            this.canal = canal;
+            this.buffer = ByteBuffer.allocateDirect(tamano);
+        }
+
+        void caracter(char c) throws IOException {
+            if (!buffer.hasRemaining()) {
+                vaciar();
+            }
+            buffer.put((byte) c);
+        }
+
+        void ascii(String texto) throws IOException {
+            for (int i = 0; i < texto.length(); i++) {
+                caracter(texto.charAt(i));
+            }
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            int escritos = 0;
+            while (escritos < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    vaciar();
+                }
+                int cantidad = Math.min(buffer.remaining(), bytes.length - escritos);
+                buffer.put(bytes, escritos, cantidad);
+                escritos += cantidad;
+            }
+        }
+
+        /**
+         * Campo CSV en UTF-8, entre comillas si contiene comas, comillas o saltos de linea
+         */
+        void csv(String texto) throws IOException {
+            if (texto == null) {
+                return;
+            }
+            boolean comillas = false;
+            boolean soloAscii = true;
+            for (int i = 0; i < texto.length(); i++) {
+                char c = texto.charAt(i);
+                comillas |= c == ',' || c == '"' || c == '\n' || c == '\r';
+                soloAscii &= c < 0x80;
+            }
+            if (comillas) {
+                texto = '"' + texto.replace("\"", "\"\"") + '"';
+            }
+            if (soloAscii) {
+                ascii(texto);
+            } else {
+                bytes(texto.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        /**
+         * @return true si el texto entra sin cambios en un campo ASCII del largo dado
+         */
+        static boolean cabe(String texto, int largo) {
+            if (texto == null || texto.length() > largo) {
+                return false;
+            }
+            for (int i = 0; i < texto.length(); i++) {
+                char c = texto.charAt(i);
+                if (c < 0x20 || c >= 0x7f) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return true si el monto, en centavos y con el signo, entra en un campo del largo dado
+         */
+        static boolean cabe(double monto, int largo) {
+            if (Double.isNaN(monto) || Double.isInfinite(monto)) {
+                return false;
+            }
+            long centavos = Math.round(monto * 100);
+            if (centavos == Long.MIN_VALUE || centavos == Long.MAX_VALUE) {
+                return false;
+            }
+            int digitos = Long.toString(Math.abs(centavos)).length();
+            return digitos <= (centavos < 0 ? largo - 1 : largo);
+        }
+
+        /**
+         * Campo ASCII de largo fijo, alineado a la izquierda: se quitan los tildes,
+         * se reemplazan los otros caracteres no ASCII por '?' y se corta o rellena con espacios.
+         * Los campos que no se pueden cortar se revisan antes con cabe.
+         */
+        void alfanumerico(String texto, int largo) throws IOException {
+            String valor = texto == null ? "" : texto;
+            for (int i = 0; i < valor.length(); i++) {
+                if (valor.charAt(i) >= 0x80) {
+                    valor = Normalizer.normalize(valor, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+                    break;
+                }
+            }
+            for (int i = 0; i < largo; i++) {
+                char c = i < valor.length() ? valor.charAt(i) : ' ';
+                caracter(c < 0x20 || c >= 0x7f ? '?' : c);
+            }
+        }
+
+        /**
+         * Monto con dos decimales, redondeado como Math.round
+         */
+        void decimal(double monto) throws IOException {
+            long centavos = Math.round(monto * 100);
+            if (centavos < 0) {
+                caracter('-');
+                centavos = -centavos;
+            }
+            entero(centavos / 100, 1);
+            caracter('.');
+            entero(centavos % 100, 2);
+        }
+
+        /**
+         * Monto en centavos de largo fijo, relleno con ceros; un monto negativo empieza con '-'.
+         * El monto se revisa antes con cabe.
+         */
+        void centavos(double monto, int largo) throws IOException {
+            long centavos = Math.round(monto * 100);
+            if (centavos < 0) {
+                caracter('-');
+                entero(-centavos, largo - 1);
+            } else {
+                entero(centavos, largo);
+            }
+        }
+
+        private void entero(long valor, int minimo) throws IOException {
+            int i = digitos.length;
+            do {
+                digitos[--i] = (byte) ('0' + valor % 10);
+                valor /= 10;
+            } while (valor > 0);
+            for (int relleno = digitos.length - i; relleno < minimo; relleno++) {
+                caracter('0');
+            }
+            while (i < digitos.length) {
+                caracter((char) digitos[i++]);
+            }
+        }
+
+        void vaciar() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
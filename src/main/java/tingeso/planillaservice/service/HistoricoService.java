@@ -0,0 +1,103 @@
+package tingeso.planillaservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import tingeso.planillaservice.model.DatosQuincena;
+import tingeso.planillaservice.model.IndiceLaboratorio;
+import tingeso.planillaservice.model.Laboratorio;
+import tingeso.planillaservice.model.Quincena;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.service.MetricasPlanilla.Etapa;
+import tingeso.planillaservice.service.MetricasPlanilla.Medicion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Recalculo de un rango de quincenas. Las quincenas se recorren en orden con una ventana de dos
+ * quincenas: los acopios de cada una se consultan una sola vez y sirven de quincena anterior
+ * para la siguiente, y las planillas de cada quincena se guardan en lotes.
+ */
+@Service
+public class HistoricoService {
+    private final Logger logg = LoggerFactory.getLogger(HistoricoService.class);
+
+    @Autowired
+    PlanillaService planillaService;
+
+    @Autowired
+    CargaQuincenaService cargaQuincenaService;
+
+    @Autowired
+    MetricasPlanilla metricas;
+
+    @Autowired
+    CoordinadorCalculo coordinadorCalculo;
+
+    /**
+     * Recalcula las planillas de todas las quincenas del rango con datos de laboratorio
+     * @param desde Primera quincena, incluida
+     * @param hasta Ultima quincena, incluida
+     * @param progreso Recibe el avance del calculo y puede cancelarlo
+     * @return cantidad de proveedores recalculados, sin cambios y fallidos en todo el rango
+     */
+    public ResultadoCalculo recalcular(Quincena desde, Quincena hasta, ProgresoCalculo progreso) {
+        Medicion medicion = metricas.iniciarEjecucion(desde + "-" + hasta);
+        List<Laboratorio> todosLaboratorios = planillaService.getLaboratorios();
+        if (todosLaboratorios == null) {
+            todosLaboratorios = Collections.emptyList();
+        }
+        Map<Quincena, List<Laboratorio>> porQuincena = new TreeMap<>();
+        Set<String> codigosRango = new LinkedHashSet<>();
+        int total = 0;
+        for (Laboratorio laboratorio : todosLaboratorios) {
+            Quincena quincena = Quincena.tryParse(laboratorio.getQuincena());
+            if (quincena != null && quincena.compareTo(desde) >= 0 && quincena.compareTo(hasta) <= 0) {
+                porQuincena.computeIfAbsent(quincena, q -> new ArrayList<>()).add(laboratorio);
+                codigosRango.add(laboratorio.getProveedor());
+                total++;
+            }
+        }
+        progreso.iniciado(total);
+        IndiceLaboratorio indice = new IndiceLaboratorio(todosLaboratorios);
+        ResultadoCalculo resultado = new ResultadoCalculo();
+        resultado.setProveedores(total);
+        DatosQuincena anterior = null;
+        for (Quincena quincena : desde.hasta(hasta)) {
+            if (progreso.cancelado()) {
+                resultado.setCancelado(true);
+                break;
+            }
+            List<Laboratorio> laboratorios = porQuincena.get(quincena);
+            if (laboratorios == null) {
+                // La siguiente quincena consulta sus acopios anteriores
+                anterior = null;
+                continue;
+            }
+            long inicioCarga = System.nanoTime();
+            DatosQuincena datos = cargaQuincenaService.cargarVentana(quincena, laboratorios, codigosRango,
+                    anterior, indice);
+            metricas.registrar(Etapa.PRECARGA, inicioCarga);
+            ResultadoCalculo parcial = planillaService.calcularLaboratorios(laboratorios, datos, progreso);
+            resultado.setRecalculados(resultado.getRecalculados() + parcial.getRecalculados());
+            resultado.setSinCambios(resultado.getSinCambios() + parcial.getSinCambios());
+            resultado.setFallidos(resultado.getFallidos() + parcial.getFallidos());
+            resultado.setCancelado(parcial.isCancelado());
+            anterior = datos;
+        }
+        coordinadorCalculo.publicar(porQuincena.keySet().stream().map(Quincena::toString).collect(Collectors.toList()));
+        metricas.terminarEjecucion(medicion, resultado);
+        logg.info("Recalculo de {} a {}: {} quincenas con datos, {} recalculados, {} sin cambios, {} fallidos",
+                desde, hasta, porQuincena.size(), resultado.getRecalculados(), resultado.getSinCambios(),
+                resultado.getFallidos());
+        return resultado;
+    }
+}
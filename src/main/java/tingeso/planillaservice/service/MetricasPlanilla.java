@@ -0,0 +1,221 @@
+package tingeso.planillaservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.model.ResumenUltimaEjecucion;
+import tingeso.planillaservice.model.ResumenUltimaEjecucion.TiempoEtapa;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metricas del calculo de planillas: un timer por etapa (planilla.etapa), contadores de proveedores
+ * por resultado (planilla.proveedores), los proveedores en calculo (planilla.proveedores.en.curso),
+ * las variaciones locales comparadas con laboratorio-service (planilla.variacion.verificadas)
+ * y el resumen de la ultima ejecucion. Los timers se crean al iniciar, asi que registrar una etapa
+ * solo suma a contadores sin bloqueo.
+ */
+@Component
+public class MetricasPlanilla {
+    private final Logger logg = LoggerFactory.getLogger(MetricasPlanilla.class);
+
+    /**
+     * Etapas medidas. Las consultas remotas se etiquetan con el servicio consultado.
+     */
+    public enum Etapa {
+        LABORATORIOS("consulta", "laboratorio-service"),
+        PRECARGA("precarga", "local"),
+        ACOPIOS_QUINCENA("consulta", "acopio-service"),
+        PROVEEDORES("consulta", "proveedor-service"),
+        PROVEEDOR("consulta", "proveedor-service"),
+        ACOPIOS("consulta", "acopio-service"),
+        VARIACION_GRASA("consulta", "laboratorio-service"),
+        VARIACION_SOLIDOS("consulta", "laboratorio-service"),
+        CALCULO("calculo", "local"),
+        GUARDADO("guardado", "local");
+
+        private final String tipo;
+        private final String servicio;
+
+        Etapa(String tipo, String servicio) {
+            this.tipo = tipo;
+            this.servicio = servicio;
+        }
+
+        public String operacion() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private static final Etapa[] ETAPAS = Etapa.values();
+
+    private final Timer[] timers = new Timer[ETAPAS.length];
+    private final LongAdder[] nanos = new LongAdder[ETAPAS.length];
+    private final LongAdder[] llamadas = new LongAdder[ETAPAS.length];
+    private final Counter recalculados;
+    private final Counter sinCambios;
+    private final Counter fallidos;
+    private final Counter[] variaciones = new Counter[4];
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final AtomicReference<ResumenUltimaEjecucion> ultimaEjecucion = new AtomicReference<>();
+
+    public MetricasPlanilla(MeterRegistry meterRegistry) {
+        for (Etapa etapa : ETAPAS) {
+            timers[etapa.ordinal()] = Timer.builder("planilla.etapa")
+                    .description("Duracion de cada etapa del calculo de planillas")
+                    .tag("etapa", etapa.tipo)
+                    .tag("servicio", etapa.servicio)
+                    .tag("operacion", etapa.operacion())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            nanos[etapa.ordinal()] = new LongAdder();
+            llamadas[etapa.ordinal()] = new LongAdder();
+        }
+        recalculados = contador(meterRegistry, "recalculado");
+        sinCambios = contador(meterRegistry, "sin-cambios");
+        fallidos = contador(meterRegistry, "fallido");
+        String[] tipos = {"grasa", "solidos"};
+        for (int i = 0; i < variaciones.length; i++) {
+            variaciones[i] = Counter.builder("planilla.variacion.verificadas")
+                    .description("Variaciones calculadas localmente y comparadas con laboratorio-service")
+                    .tag("tipo", tipos[i / 2])
+                    .tag("resultado", i % 2 == 0 ? "igual" : "distinta")
+                    .register(meterRegistry);
+        }
+        Gauge.builder("planilla.proveedores.en.curso", enCurso, AtomicInteger::get)
+                .description("Proveedores que se estan calculando")
+                .register(meterRegistry);
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("planilla.proveedores")
+                .description("Proveedores calculados por resultado")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra la duracion de una etapa
+     * @param etapa Etapa medida
+     * @param inicio Valor de System.nanoTime() al comenzar la etapa
+     */
+    public void registrar(Etapa etapa, long inicio) {
+        long duracion = System.nanoTime() - inicio;
+        int i = etapa.ordinal();
+        timers[i].record(duracion, TimeUnit.NANOSECONDS);
+        nanos[i].add(duracion);
+        llamadas[i].increment();
+    }
+
+    /**
+     * @param tipo "grasa" o "solidos"
+     * @param igual true si la variacion local es igual a la de laboratorio-service
+     */
+    public void variacionVerificada(String tipo, boolean igual) {
+        variaciones[(tipo.equals("grasa") ? 0 : 2) + (igual ? 0 : 1)].increment();
+    }
+
+    public void proveedorIniciado() {
+        enCurso.incrementAndGet();
+    }
+
+    /**
+     * @param recalculado true si se recalculo, false si no hubo cambios, null si fallo
+     */
+    public void proveedorTerminado(Boolean recalculado) {
+        enCurso.decrementAndGet();
+        if (recalculado == null) {
+            fallidos.increment();
+        } else if (recalculado) {
+            recalculados.increment();
+        } else {
+            sinCambios.increment();
+        }
+    }
+
+    /**
+     * @param quincena Quincena calculada, null para todas
+     * @return medicion de la ejecucion, para terminarEjecucion
+     */
+    public Medicion iniciarEjecucion(String quincena) {
+        return new Medicion(quincena, System.nanoTime(), LocalDateTime.now(), totales(nanos), totales(llamadas));
+    }
+
+    /**
+     * Guarda el resumen de la ejecucion con el tiempo de cada etapa desde iniciarEjecucion.
+     * Si otras ejecuciones corrieron al mismo tiempo en esta instancia, sus etapas tambien se suman.
+     */
+    public ResumenUltimaEjecucion terminarEjecucion(Medicion medicion, ResultadoCalculo resultado) {
+        long duracion = System.nanoTime() - medicion.inicioNanos;
+        long[] nanosFin = totales(nanos);
+        long[] llamadasFin = totales(llamadas);
+        long totalEtapas = 0;
+        for (int i = 0; i < ETAPAS.length; i++) {
+            totalEtapas += nanosFin[i] - medicion.nanos[i];
+        }
+        List<TiempoEtapa> etapas = new ArrayList<>();
+        for (Etapa etapa : ETAPAS) {
+            int i = etapa.ordinal();
+            long llamadasEtapa = llamadasFin[i] - medicion.llamadas[i];
+            long nanosEtapa = nanosFin[i] - medicion.nanos[i];
+            if (llamadasEtapa == 0) {
+                continue;
+            }
+            etapas.add(new TiempoEtapa(etapa.tipo, etapa.servicio, etapa.operacion(), llamadasEtapa,
+                    nanosEtapa / 1e6, nanosEtapa / 1e6 / llamadasEtapa,
+                    totalEtapas > 0 ? Math.round(nanosEtapa * 1000.0 / totalEtapas) / 10.0 : 0));
+        }
+        double segundos = duracion / 1e9;
+        ResumenUltimaEjecucion resumen = new ResumenUltimaEjecucion(medicion.quincena, medicion.inicio,
+                LocalDateTime.now(), duracion / 1_000_000, resultado.getProveedores(), resultado.getRecalculados(),
+                resultado.getSinCambios(), resultado.getFallidos(),
+                segundos > 0 ? Math.round(resultado.getProveedores() / segundos * 10) / 10.0 : 0, etapas);
+        ultimaEjecucion.set(resumen);
+        logg.info("Calculo de {} proveedores en {} ms ({} proveedores/s)", resumen.getProveedores(),
+                resumen.getDuracionMs(), resumen.getProveedoresPorSegundo());
+        return resumen;
+    }
+
+    /**
+     * @return resumen de la ultima ejecucion terminada, null si no hubo ejecuciones
+     */
+    public ResumenUltimaEjecucion getUltimaEjecucion() {
+        return ultimaEjecucion.get();
+    }
+
+    private static long[] totales(LongAdder[] adders) {
+        long[] totales = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            totales[i] = adders[i].sum();
+        }
+        return totales;
+    }
+
+    public static final class Medicion {
+        private final String quincena;
+        private final long inicioNanos;
+        private final LocalDateTime inicio;
+        private final long[] nanos;
+        private final long[] llamadas;
+
+        private Medicion(String quincena, long inicioNanos, LocalDateTime inicio, long[] nanos, long[] llamadas) {
+            this.quincena = quincena;
+            this.inicioNanos = inicioNanos;
+            this.inicio = inicio;
+            this.nanos = nanos;
+            this.llamadas = llamadas;
+        }
+    }
+}
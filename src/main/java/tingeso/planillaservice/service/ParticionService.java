@@ -0,0 +1,326 @@
+package tingeso.planillaservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tingeso.planillaservice.entity.EjecucionPlanilla.Estado;
+import tingeso.planillaservice.entity.ParticionPlanilla;
+import tingeso.planillaservice.model.DatosQuincena;
+import tingeso.planillaservice.model.Laboratorio;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.repository.EjecucionPlanillaRepository;
+import tingeso.planillaservice.repository.ParticionPlanillaRepository;
+import tingeso.planillaservice.service.MetricasPlanilla.Etapa;
+import tingeso.planillaservice.service.MetricasPlanilla.Medicion;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ejecuciones distribuidas: los proveedores de la quincena se reparten en particiones guardadas en la
+ * base de datos y cada instancia con planilla.particiones.trabajador activo las toma con
+ * SELECT ... FOR UPDATE SKIP LOCKED y un arriendo. Un arriendo vencido (instancia caida o detenida)
+ * se vuelve a tomar, y la ejecucion termina cuando todas sus particiones estan completadas.
+ * Recalcular un proveedor dos veces no cambia el resultado, porque las planillas se guardan por huella.
+ */
+@Service
+public class ParticionService {
+    private final Logger logg = LoggerFactory.getLogger(ParticionService.class);
+
+    @Autowired
+    ParticionPlanillaRepository particionRepository;
+
+    @Autowired
+    EjecucionPlanillaRepository ejecucionRepository;
+
+    @Autowired
+    PlanillaService planillaService;
+
+    @Autowired
+    CargaQuincenaService cargaQuincenaService;
+
+    @Autowired
+    MetricasPlanilla metricas;
+
+    @Autowired
+    CoordinadorCalculo coordinadorCalculo;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Value("${planilla.particiones.tamano:1000}")
+    int tamanoParticion;
+
+    @Value("${planilla.particiones.arriendo:60s}")
+    Duration arriendo;
+
+    @Value("${planilla.particiones.max-intentos:3}")
+    int maxIntentos;
+
+    @Value("${planilla.particiones.trabajador:true}")
+    boolean trabajador;
+
+    @Value("${spring.cloud.client.hostname:localhost}:${server.port:8080}")
+    String instancia;
+
+    /**
+     * Datos de laboratorio de la ultima ejecucion en que participo esta instancia.
+     * Solo se usa desde el hilo del planificador.
+     */
+    private LaboratoriosEjecucion laboratoriosActuales;
+
+    /**
+     * Arriendo de la particion que esta procesando esta instancia, null si no procesa ninguna
+     */
+    private volatile Arriendo arriendoActual;
+
+    /**
+     * Reparte los proveedores de la quincena en particiones e inicia la ejecucion, en una sola transaccion
+     * @param id Ejecucion pendiente
+     * @param quincena Quincena a calcular
+     * @return false si la ejecucion se cancelo antes de iniciarse
+     */
+    public boolean particionar(Integer id, String quincena) {
+        List<String> codigos = new ArrayList<>(getLaboratoriosQuincena(planillaService.getLaboratorios(), quincena)
+                .stream()
+                .map(Laboratorio::getProveedor)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        Boolean iniciada = transactionTemplate.execute(status -> {
+            int numero = 0;
+            List<ParticionPlanilla> particiones = new ArrayList<>();
+            for (int i = 0; i < codigos.size(); i += tamanoParticion) {
+                List<String> parte = codigos.subList(i, Math.min(i + tamanoParticion, codigos.size()));
+                ParticionPlanilla particion = new ParticionPlanilla();
+                particion.setEjecucionId(id);
+                particion.setNumero(numero++);
+                particion.setQuincena(quincena);
+                particion.setProveedores(String.join(",", parte));
+                particion.setCantidad(parte.size());
+                particion.setEstado(ParticionPlanilla.Estado.PENDIENTE);
+                particiones.add(particion);
+            }
+            particionRepository.saveAll(particiones);
+            ejecucionRepository.actualizarProgreso(id, codigos.size(), 0, 0, 0, 0);
+            if (ejecucionRepository.cambiarEstado(id, List.of(Estado.PENDIENTE), Estado.EN_EJECUCION) == 0) {
+                status.setRollbackOnly();
+                return false;
+            }
+            logg.info("Ejecucion {} de {}: {} proveedores en {} particiones", id, quincena, codigos.size(), numero);
+            return true;
+        });
+        return Boolean.TRUE.equals(iniciada);
+    }
+
+    /**
+     * Toma y calcula particiones disponibles hasta que no quede ninguna,
+     * y termina las ejecuciones distribuidas sin particiones pendientes
+     */
+    @Scheduled(fixedDelayString = "${planilla.particiones.intervalo-ms:2000}")
+    public void trabajar() {
+        if (!trabajador) {
+            return;
+        }
+        ParticionPlanilla particion;
+        while ((particion = tomar()) != null) {
+            procesar(particion);
+            supervisar();
+        }
+        laboratoriosActuales = null;
+        supervisar();
+    }
+
+    /**
+     * Renueva el arriendo de la particion en proceso, tambien durante la precarga, y cancela su calculo
+     * si el arriendo se perdio o si se pidio cancelar la ejecucion
+     */
+    @Scheduled(fixedDelayString = "${planilla.particiones.renovacion-ms:20000}")
+    public void renovarArriendo() {
+        Arriendo arriendo = arriendoActual;
+        if (arriendo != null) {
+            arriendo.renovar();
+        }
+    }
+
+    /**
+     * Marca como completadas las ejecuciones sin particiones pendientes ni tomadas,
+     * y como canceladas las que se estan cancelando y ya no tienen arriendos vigentes
+     */
+    void supervisar() {
+        for (Integer id : ejecucionRepository.findIdsDistribuidas(Estado.EN_EJECUCION)) {
+            if (particionRepository.countByEjecucionIdAndEstadoIn(id,
+                    List.of(ParticionPlanilla.Estado.PENDIENTE, ParticionPlanilla.Estado.TOMADA)) == 0
+                    && ejecucionRepository.finalizar(id, List.of(Estado.EN_EJECUCION), Estado.COMPLETADA,
+                    LocalDateTime.now()) > 0) {
+                publicar(id);
+                logg.info("Ejecucion distribuida {} completada", id);
+            }
+        }
+        for (Integer id : ejecucionRepository.findIdsDistribuidas(Estado.CANCELANDO)) {
+            if (particionRepository.contarArriendosVigentes(id) == 0
+                    && ejecucionRepository.finalizar(id, List.of(Estado.CANCELANDO), Estado.CANCELADA,
+                    LocalDateTime.now()) > 0) {
+                publicar(id);
+            }
+        }
+    }
+
+    private void publicar(Integer id) {
+        ejecucionRepository.findById(id).ifPresent(ejecucion -> coordinadorCalculo.publicar(List.of(ejecucion.getQuincena())));
+    }
+
+    private ParticionPlanilla tomar() {
+        return transactionTemplate.execute(status -> {
+            Integer id = particionRepository.bloquearDisponible();
+            if (id == null) {
+                return null;
+            }
+            particionRepository.tomar(id, instancia, arriendo.toSeconds());
+            return particionRepository.findById(id).orElse(null);
+        });
+    }
+
+    private void procesar(ParticionPlanilla particion) {
+        Arriendo progreso = new Arriendo(particion);
+        arriendoActual = progreso;
+        Medicion medicion = metricas.iniciarEjecucion(particion.getQuincena());
+        try {
+            LaboratoriosEjecucion ejecucion = getLaboratorios(particion);
+            Set<String> codigos = new LinkedHashSet<>(Arrays.asList(particion.getProveedores().split(",")));
+            List<Laboratorio> laboratorios = new ArrayList<>(codigos.size());
+            for (Laboratorio laboratorio : ejecucion.laboratorios) {
+                if (codigos.remove(laboratorio.getProveedor())) {
+                    laboratorios.add(laboratorio);
+                }
+            }
+            if (!codigos.isEmpty()) {
+                logg.warn("Particion {} de la ejecucion {}: {} proveedores ya no tienen datos de laboratorio",
+                        particion.getNumero(), particion.getEjecucionId(), codigos.size());
+            }
+            long inicio = System.nanoTime();
+            DatosQuincena datos = cargaQuincenaService.cargarParticion(laboratorios, ejecucion.todosLaboratorios);
+            metricas.registrar(Etapa.PRECARGA, inicio);
+            ResultadoCalculo resultado = planillaService.calcularLaboratorios(laboratorios, datos, progreso);
+            resultado.setProveedores(particion.getCantidad());
+            resultado.setFallidos(resultado.getFallidos() + codigos.size());
+            metricas.terminarEjecucion(medicion, resultado);
+            if (resultado.isCancelado()) {
+                transactionTemplate.executeWithoutResult(status ->
+                        particionRepository.liberar(particion.getId(), particion.getIntentos()));
+            } else {
+                terminar(particion, ParticionPlanilla.Estado.COMPLETADA, resultado);
+            }
+        } catch (RuntimeException e) {
+            logg.error("Error en la particion {} de la ejecucion {} (intento {}): ", particion.getNumero(),
+                    particion.getEjecucionId(), particion.getIntentos(), e);
+            if (particion.getIntentos() >= maxIntentos) {
+                ResultadoCalculo fallido = new ResultadoCalculo();
+                fallido.setFallidos(particion.getCantidad());
+                terminar(particion, ParticionPlanilla.Estado.FALLIDA, fallido);
+            } else {
+                transactionTemplate.executeWithoutResult(status ->
+                        particionRepository.liberar(particion.getId(), particion.getIntentos()));
+            }
+        } finally {
+            arriendoActual = null;
+        }
+    }
+
+    /**
+     * Guarda el resultado de la particion y lo suma al avance de la ejecucion, solo si el arriendo sigue vigente
+     */
+    private void terminar(ParticionPlanilla particion, ParticionPlanilla.Estado estado, ResultadoCalculo resultado) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (particionRepository.terminar(particion.getId(), particion.getIntentos(), estado,
+                    resultado.getRecalculados(), resultado.getSinCambios(), resultado.getFallidos()) == 0) {
+                logg.warn("Se perdio el arriendo de la particion {} de la ejecucion {}, su resultado se descarta",
+                        particion.getNumero(), particion.getEjecucionId());
+                return;
+            }
+            ejecucionRepository.sumarProgreso(particion.getEjecucionId(), particion.getCantidad(),
+                    resultado.getRecalculados(), resultado.getSinCambios(), resultado.getFallidos());
+        });
+    }
+
+    /**
+     * Lee los datos de laboratorio una vez por ejecucion en esta instancia; los acopios, proveedores y huellas
+     * se precargan por particion, solo de sus proveedores
+     */
+    private LaboratoriosEjecucion getLaboratorios(ParticionPlanilla particion) {
+        if (laboratoriosActuales == null || !laboratoriosActuales.ejecucionId.equals(particion.getEjecucionId())) {
+            laboratoriosActuales = null;
+            List<Laboratorio> todosLaboratorios = planillaService.getLaboratorios();
+            if (todosLaboratorios == null) {
+                todosLaboratorios = Collections.emptyList();
+            }
+            laboratoriosActuales = new LaboratoriosEjecucion(particion.getEjecucionId(), todosLaboratorios,
+                    getLaboratoriosQuincena(todosLaboratorios, particion.getQuincena()));
+        }
+        return laboratoriosActuales;
+    }
+
+    private static List<Laboratorio> getLaboratoriosQuincena(List<Laboratorio> laboratorios, String quincena) {
+        if (laboratorios == null) {
+            return Collections.emptyList();
+        }
+        return laboratorios.stream()
+                .filter(laboratorio -> quincena.equals(laboratorio.getQuincena()))
+                .collect(Collectors.toList());
+    }
+
+    private static final class LaboratoriosEjecucion {
+        private final Integer ejecucionId;
+        private final List<Laboratorio> todosLaboratorios;
+        private final List<Laboratorio> laboratorios;
+
+        private LaboratoriosEjecucion(Integer ejecucionId, List<Laboratorio> todosLaboratorios,
+                                      List<Laboratorio> laboratorios) {
+            this.ejecucionId = ejecucionId;
+            this.todosLaboratorios = todosLaboratorios;
+            this.laboratorios = laboratorios;
+        }
+    }
+
+    /**
+     * Arriendo de la particion en proceso, que renueva renovarArriendo. Cancela el calculo si el arriendo
+     * se perdio o si se pidio cancelar la ejecucion.
+     */
+    private class Arriendo implements ProgresoCalculo {
+        private final ParticionPlanilla particion;
+        private volatile boolean cancelado;
+
+        Arriendo(ParticionPlanilla particion) {
+            this.particion = particion;
+        }
+
+        @Override
+        public boolean cancelado() {
+            return cancelado;
+        }
+
+        private void renovar() {
+            if (cancelado) {
+                return;
+            }
+            int renovado = transactionTemplate.execute(status ->
+                    particionRepository.renovar(particion.getId(), particion.getIntentos(), arriendo.toSeconds()));
+            if (renovado == 0) {
+                logg.warn("Se perdio el arriendo de la particion {} de la ejecucion {}",
+                        particion.getNumero(), particion.getEjecucionId());
+                cancelado = true;
+            } else if (ejecucionRepository.findEstadoById(particion.getEjecucionId()) == Estado.CANCELANDO) {
+                cancelado = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package tingeso.planillaservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tingeso.planillaservice.entity.Planilla;
+import tingeso.planillaservice.model.Quincena;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Particiones de la tabla planilla, una por quincena (planilla_2023_05_q2), creadas por la migracion V1.
+ * <ul>
+ *     <li>La particion de una quincena se crea al guardar su primera planilla.</li>
+ *     <li>Un reemplazo escribe las planillas en una tabla temporal y la cambia por la particion en una sola
+ *     transaccion: las lecturas ven la quincena anterior completa o la nueva completa.</li>
+ *     <li>Eliminar una quincena separa y elimina su particion, sin recorrer ni bloquear las demas.</li>
+ * </ul>
+ * Con planilla.periodos.particionado en false (H2 de los benchmarks, esquema creado por Hibernate) la tabla
+ * no esta particionada: el reemplazo y la eliminacion se hacen con delete e insert en una transaccion.
+ */
+@Service
+public class PeriodosPlanillaService {
+    /**
+     * Igual que allocationSize de Planilla: cada valor de planilla_seq reserva los 50 ids que terminan en el
+     */
+    static final int BLOQUE_IDS = 50;
+    /**
+     * Bloqueo de PostgreSQL que serializa los cambios de particiones entre instancias
+     */
+    private static final long BLOQUEO_PARTICIONES = 0x706c616e696c6c61L;
+    private static final String COLUMNAS = "id, quincena, codigo_proveedor, nombre_proveedor, categoria, kls_total_leche, "
+            + "dias_envio_leche, promedio_kilos_leche_diario, porcentaje_frecuencia_diaria_envio_leche, "
+            + "porcentaje_grasa, porcentaje_variacion_grasa, porcentaje_solido_total, "
+            + "porcentaje_variacion_solido_total, pago_por_leche, pago_por_grasa, pago_por_solidos_totales, "
+            + "bonificacion_por_frecuencia, dcto_variacion_leche, dcto_variacion_grasa, dcto_variacionst, "
+            + "pago_total, monto_retencion, monto_final, version_tarifas, huella";
+    private static final List<String> INDICES = List.of("pkey", "quincena_codigo_proveedor_key",
+            "codigo_proveedor_id_idx", "quincena_id_idx");
+    private final Logger logg = LoggerFactory.getLogger(PeriodosPlanillaService.class);
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ResumenesPlanillaService resumenes;
+
+    @Value("${planilla.periodos.particionado:false}")
+    boolean particionado;
+
+    private final TransactionTemplate transaccionPropia;
+    private final Set<String> existentes = ConcurrentHashMap.newKeySet();
+
+    public PeriodosPlanillaService(PlatformTransactionManager transactionManager) {
+        // Los cambios de particiones se confirman aunque quien los pide este dentro de otra transaccion
+        transaccionPropia = new TransactionTemplate(transactionManager);
+        transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * @param quincena Quincena con formato "YYYY/MM/Qn"
+     * @return nombre de la particion de la quincena, por ejemplo planilla_2023_05_q2
+     * @throws IllegalArgumentException si la quincena no es valida o no esta escrita como Quincena.toString
+     */
+    public static String tabla(String quincena) {
+        Quincena leida = canonica(quincena);
+        return String.format("planilla_%04d_%02d_q%d", leida.getAnio(), leida.getMes(), leida.getNumero());
+    }
+
+    /**
+     * La quincena se escribe tal cual en los limites de las particiones: "2023/5/Q1" crearia una particion
+     * planilla_2023_05_q1 que no recibe las planillas de "2023/05/Q1".
+     */
+    private static Quincena canonica(String quincena) {
+        Quincena leida = Quincena.parse(quincena);
+        if (!leida.toString().equals(quincena)) {
+            throw new IllegalArgumentException("Quincena no canonica: " + quincena + ", se esperaba " + leida);
+        }
+        return leida;
+    }
+
+    /**
+     * Crea la particion de la quincena si no existe. Las particiones ya vistas por esta instancia no se consultan.
+     * @param quincena Quincena de las planillas que se van a guardar
+     * @throws IllegalArgumentException si la quincena no es valida o no esta escrita como Quincena.toString
+     */
+    public void asegurar(String quincena) {
+        String tabla = tabla(quincena);
+        if (!particionado || existentes.contains(quincena)) {
+            return;
+        }
+        transaccionPropia.executeWithoutResult(status -> {
+            bloquear();
+            jdbcTemplate.execute("create table if not exists " + tabla + " partition of planilla for values in ('"
+                    + quincena + "')");
+        });
+        existentes.add(quincena);
+    }
+
+    /**
+     * Olvida las particiones vistas, para volver a comprobarlas si otra instancia elimino alguna
+     */
+    public void olvidar() {
+        existentes.clear();
+    }
+
+    /**
+     * Crea una tabla vacia con las columnas de planilla, donde se escribe el reemplazo de una quincena
+     * @param quincena Quincena que se va a reemplazar
+     * @return nombre de la tabla temporal
+     */
+    public String crearTemporal(String quincena) {
+        String temporal = tabla(quincena) + "_n" + Integer.toHexString(ThreadLocalRandom.current().nextInt(1 << 24));
+        jdbcTemplate.execute(particionado
+                ? "create table " + temporal + " (like planilla including defaults)"
+                : "create table " + temporal + " as select * from planilla where 1 = 0");
+        return temporal;
+    }
+
+    /**
+     * Inserta planillas nuevas en una tabla con las columnas de planilla, en un batch JDBC.
+     * Los ids se toman de planilla_seq igual que Hibernate, asi que no chocan con los que asigna el.
+     * @param tabla Tabla donde se insertan
+     * @param planillas Planillas a insertar; se les asigna el id
+     */
+    public void insertar(String tabla, List<Planilla> planillas) {
+        int siguiente = 0;
+        int ultimo = -1;
+        for (Planilla planilla : planillas) {
+            if (siguiente > ultimo) {
+                ultimo = jdbcTemplate.queryForObject("select nextval('planilla_seq')", Integer.class);
+                siguiente = Math.max(1, ultimo - BLOQUE_IDS + 1);
+            }
+            planilla.setId(siguiente++);
+        }
+        jdbcTemplate.batchUpdate("insert into " + tabla + " (" + COLUMNAS + ") values "
+                + "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Planilla p = planillas.get(i);
+                        ps.setInt(1, p.getId());
+                        ps.setString(2, p.getQuincena());
+                        ps.setString(3, p.getCodigoProveedor());
+                        ps.setString(4, p.getNombreProveedor());
+                        ps.setString(5, p.getCategoria());
+                        ps.setDouble(6, p.getKlsTotalLeche());
+                        ps.setDouble(7, p.getDiasEnvioLeche());
+                        ps.setDouble(8, p.getPromedioKilosLecheDiario());
+                        ps.setDouble(9, p.getPorcentajeFrecuenciaDiariaEnvioLeche());
+                        ps.setInt(10, p.getPorcentajeGrasa());
+                        ps.setDouble(11, p.getPorcentajeVariacionGrasa());
+                        ps.setInt(12, p.getPorcentajeSolidoTotal());
+                        ps.setDouble(13, p.getPorcentajeVariacionSolidoTotal());
+                        ps.setDouble(14, p.getPagoPorLeche());
+                        ps.setDouble(15, p.getPagoPorGrasa());
+                        ps.setDouble(16, p.getPagoPorSolidosTotales());
+                        ps.setDouble(17, p.getBonificacionPorFrecuencia());
+                        ps.setDouble(18, p.getDctoVariacionLeche());
+                        ps.setDouble(19, p.getDctoVariacionGrasa());
+                        ps.setDouble(20, p.getDctoVariacionST());
+                        ps.setDouble(21, p.getPagoTotal());
+                        ps.setDouble(22, p.getMontoRetencion());
+                        ps.setDouble(23, p.getMontoFinal());
+                        ps.setString(24, p.getVersionTarifas());
+                        ps.setString(25, p.getHuella());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return planillas.size();
+                    }
+                });
+    }
+
+    /**
+     * Reemplaza las planillas de la quincena por las de la tabla temporal, que se elimina.
+     * Los indices y la restriccion de la quincena se crean antes de tomar el bloqueo, asi que el cambio
+     * de particion no recorre las filas y bloquea la tabla planilla solo durante el cambio.
+     * @param quincena Quincena que se reemplaza
+     * @param temporal Tabla creada con crearTemporal, con las planillas nuevas
+     */
+    public void intercambiar(String quincena, String temporal) {
+        String tabla = tabla(quincena);
+        if (!particionado) {
+            transaccionPropia.executeWithoutResult(status -> {
+                resumenes.reconstruir(quincena, temporal);
+                jdbcTemplate.update("delete from planilla where quincena = ?", quincena);
+                jdbcTemplate.execute("insert into planilla (" + COLUMNAS + ") select " + COLUMNAS + " from " + temporal);
+                jdbcTemplate.execute("drop table " + temporal);
+            });
+            return;
+        }
+        jdbcTemplate.execute("alter table " + temporal + " add constraint " + temporal + "_quincena check (quincena = '"
+                + quincena + "')");
+        jdbcTemplate.execute("alter table " + temporal + " add constraint " + temporal + "_pkey primary key (id, quincena)");
+        jdbcTemplate.execute("alter table " + temporal + " add constraint " + temporal
+                + "_quincena_codigo_proveedor_key unique (quincena, codigo_proveedor)");
+        jdbcTemplate.execute("create index " + temporal + "_codigo_proveedor_id_idx on " + temporal
+                + " (codigo_proveedor, id)");
+        jdbcTemplate.execute("create index " + temporal + "_quincena_id_idx on " + temporal
+                + " (quincena, id)");
+        jdbcTemplate.execute("analyze " + temporal);
+        transaccionPropia.executeWithoutResult(status -> {
+            bloquear();
+            resumenes.reconstruir(quincena, temporal);
+            separar(tabla);
+            jdbcTemplate.execute("alter table planilla attach partition " + temporal + " for values in ('"
+                    + quincena + "')");
+            jdbcTemplate.execute("alter table " + temporal + " drop constraint " + temporal + "_quincena");
+            jdbcTemplate.execute("alter table " + temporal + " rename to " + tabla);
+            // Los mismos nombres que tienen los indices de una particion creada con asegurar
+            for (String indice : INDICES) {
+                jdbcTemplate.execute("alter index " + temporal + "_" + indice + " rename to " + tabla + "_" + indice);
+            }
+        });
+        existentes.add(quincena);
+        logg.info("Particion {} reemplazada", tabla);
+    }
+
+    /**
+     * Elimina una tabla temporal que no se va a usar
+     * @param temporal Tabla creada con crearTemporal
+     */
+    public void descartar(String temporal) {
+        jdbcTemplate.execute("drop table if exists " + temporal);
+    }
+
+    /**
+     * Elimina las planillas de la quincena; con particiones, separando y eliminando su particion
+     * @param quincena Quincena que se elimina
+     */
+    public void eliminar(String quincena) {
+        String tabla = tabla(quincena);
+        transaccionPropia.executeWithoutResult(status -> {
+            if (particionado) {
+                bloquear();
+                separar(tabla);
+            } else {
+                jdbcTemplate.update("delete from planilla where quincena = ?", quincena);
+            }
+            resumenes.eliminar(quincena);
+        });
+        existentes.remove(quincena);
+        logg.info("Planillas de la quincena {} eliminadas", quincena);
+    }
+
+    /**
+     * Elimina todas las planillas sin recorrerlas y sus totales; las particiones se conservan vacias
+     */
+    public void vaciar() {
+        transaccionPropia.executeWithoutResult(status -> {
+            jdbcTemplate.execute("truncate table planilla");
+            resumenes.vaciar();
+        });
+    }
+
+    private void bloquear() {
+        jdbcTemplate.queryForList("select pg_advisory_xact_lock(?)", BLOQUEO_PARTICIONES);
+    }
+
+    private void separar(String tabla) {
+        if (jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class, tabla)) {
+            jdbcTemplate.execute("alter table planilla detach partition " + tabla);
+            jdbcTemplate.execute("drop table " + tabla);
+        }
+    }
+}
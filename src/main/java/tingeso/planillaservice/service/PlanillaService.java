@@ -5,6 +5,7 @@ import lombok.Generated;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
@@ -14,20 +15,38 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import tingeso.planillaservice.entity.Planilla;
 import tingeso.planillaservice.model.Acopio;
+import tingeso.planillaservice.model.DatosQuincena;
 import tingeso.planillaservice.model.Laboratorio;
 import tingeso.planillaservice.model.Proveedor;
+import tingeso.planillaservice.model.Quincena;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.model.ResumenAcopios;
+import tingeso.planillaservice.model.TablaTarifas;
 import tingeso.planillaservice.repository.PlanillaRepository;
-
+import tingeso.planillaservice.repository.PlanillaRepository.HuellaPlanilla;
+import tingeso.planillaservice.service.EscrituraPlanillasService.LotePlanillas;
+import tingeso.planillaservice.service.MetricasPlanilla.Etapa;
+import tingeso.planillaservice.service.MetricasPlanilla.Medicion;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class PlanillaService {
     private final Logger logg;
 
-    static final double IMPUESTORETENCION = 13; // 13%
-    static final double LIMITERETENCION = 950000; // $950.000
     @Autowired
     PlanillaRepository planillaRepository;
 
@@ -37,6 +56,45 @@ public class PlanillaService {
     @Autowired
     RestTemplate restTemplate;
 
+    @Autowired
+    CargaQuincenaService cargaQuincenaService;
+
+    @Autowired
+    ProveedorCache proveedorCache;
+
+    @Autowired
+    EscrituraPlanillasService escrituraPlanillasService;
+
+    @Autowired
+    PeriodosPlanillaService periodosPlanilla;
+
+    @Autowired
+    AcopioAgregador acopioAgregador;
+
+    @Autowired
+    TarifasService tarifasService;
+
+    @Autowired
+    MetricasPlanilla metricas;
+
+    @Autowired
+    ExecutorService planillaExecutor;
+
+    @Autowired
+    ExecutorService consultasExecutor;
+
+    @Value("${planilla.calculo.paralelo:true}")
+    boolean calculoParalelo;
+
+    @Value("${planilla.variacion.local:true}")
+    boolean variacionLocal;
+
+    @Value("${planilla.variacion.verificar-cada:0}")
+    int verificarVariacionCada;
+
+    @Value("${planilla.http.presupuesto-proveedor:30s}")
+    Duration presupuestoProveedor;
+
     public PlanillaService() {
         logg = LoggerFactory.getLogger(Planilla.class);
     }
@@ -50,10 +108,29 @@ public class PlanillaService {
     }
 
     /**
-     * Elimina los pagos en la base de datos
+     * Obtiene los pagos de una quincena
+     * @param quincena Quincena de los pagos
+     * @return pagos Lista de pagos
+     */
+    public List<Planilla> getPlanillasByQuincena(String quincena) {
+        return planillaRepository.findByQuincena(quincena);
+    }
+
+    /**
+     * Obtiene las planillas de un rango de quincenas
+     * @param desde Primera quincena, incluida
+     * @param hasta Ultima quincena, incluida
+     * @return pagos Lista de pagos ordenada por quincena
+     */
+    public List<Planilla> getPlanillasEntreQuincenas(String desde, String hasta) {
+        return planillaRepository.findByQuincenaBetweenOrderByQuincenaAscIdAsc(desde, hasta);
+    }
+
+    /**
+     * Elimina los pagos en la base de datos, sin cargarlos ni recorrerlos
      */
     public void deleteAll() {
-        planillaRepository.deleteAll();
+        periodosPlanilla.vaciar();
     }
 
     /**
@@ -63,58 +140,27 @@ public class PlanillaService {
      * @return pago por categoria
      */
     public double calcularPagoPorCategoria(String categoriaProveedor, double klsLeche) {
-        return switch (categoriaProveedor) {
-            case "A" -> klsLeche * 700;
-            case "B" -> klsLeche * 550;
-            case "C" -> klsLeche * 400;
-            case "D" -> klsLeche * 250;
-            default -> 0;
-        };
+        return tarifasService.getTabla().pagoPorCategoria(categoriaProveedor, klsLeche);
     }
 
     /**
      * Calcula el pago por porcentaje de Grasas
-     * @param grasa cantidad de grasa del acopio de leche
+     * @param grasas cantidad de grasa del acopio de leche
      * @param klsLeche cantidad de kilos de leche del acopio
      * @return pago Cantidad que se le debe pagar al proveedor asociado al porcentaje de grasas de la leche
      */
-    public double calcularPagoPorGrasas(String grasa, double klsLeche) {
-        double pago = 0;
-        int grasas = Integer.parseInt(grasa);
-        if (grasas >= 0 && grasas <= 20) {
-            pago = 30;
-        }
-        else if (grasas >= 21 && grasas <= 45) {
-            pago = 80;
-        }
-        else if (grasas >= 46) {
-            pago = 120;
-        }
-        return pago * klsLeche;
+    public double calcularPagoPorGrasas(int grasas, double klsLeche) {
+        return tarifasService.getTabla().pagoPorGrasa(grasas, klsLeche);
     }
 
     /**
      * Calcula el pago por porcentaje de Solidos
-     * @param solido cantidad de solidos del acopio de leche
+     * @param solidos cantidad de solidos del acopio de leche
      * @param klsLeche cantidad de kilos de leche del acopio
      * @return pago Cantidad que se le debe pagar al proveedor asociado al porcentaje de solidos de la leche
      */
-    public double calcularPagoPorSolidosTotales(String solido, double klsLeche) {
-        double pagoSolido = 0;
-        int solidos = Integer.parseInt(solido);
-        if (solidos >= 0 && solidos <= 7) {
-            pagoSolido = -130;
-        }
-        else if (solidos >= 8 && solidos <= 18) {
-            pagoSolido = -90;
-        }
-        else if (solidos >= 19 && solidos <= 35) {
-            pagoSolido = 95;
-        }
-        else if (solidos >= 36) {
-            pagoSolido = 150;
-        }
-        return pagoSolido * klsLeche;
+    public double calcularPagoPorSolidosTotales(int solidos, double klsLeche) {
+        return tarifasService.getTabla().pagoPorSolidosTotales(solidos, klsLeche);
     }
 
     /**
@@ -124,7 +170,6 @@ public class PlanillaService {
      * @return pago Cantidad que se le debe pagar al proveedor dado su frecuencia de entrega
      */
     public double calcularBonificacionPorFrecuencia(List<Acopio> datosAcopioEntity, double pagoAcopioQuincena){
-        double bonificacion = 0;
         int contadorM = 0;
         int contadorT = 0;
         for (Acopio datos : datosAcopioEntity) {
@@ -135,6 +180,18 @@ public class PlanillaService {
                 contadorT++;
             }
         }
+        return calcularBonificacionPorFrecuencia(contadorM, contadorT, pagoAcopioQuincena);
+    }
+
+    /**
+     * Calcula la bonificacion por frecuencia a partir de la cantidad de acopios de cada turno
+     * @param contadorM Cantidad de acopios en el turno de la mañana
+     * @param contadorT Cantidad de acopios en el turno de la tarde
+     * @param pagoAcopioQuincena Cantidad que se le debe pagar al proveedor asociado al acopio de leche
+     * @return pago Cantidad que se le debe pagar al proveedor dado su frecuencia de entrega
+     */
+    public double calcularBonificacionPorFrecuencia(int contadorM, int contadorT, double pagoAcopioQuincena){
+        double bonificacion = 0;
         if((contadorM > 10) && (contadorT > 10)){
             bonificacion = 20;
         }
@@ -154,17 +211,7 @@ public class PlanillaService {
      * @return descuento Cantidad que se le debe descontar al proveedor dado su variacion de leche
      */
     public double calcularDescuentoPorVariacionLeche(double porcentajeVariacionLeche, double pagoAcopioLeche) {
-        double descuento=0;
-        if ((porcentajeVariacionLeche >= 0) && (porcentajeVariacionLeche <= 8)) {
-            descuento = 0;
-        } else if ((porcentajeVariacionLeche > 9) && (porcentajeVariacionLeche <= 25)) {
-            descuento = 7;
-        } else if ((porcentajeVariacionLeche > 25) && (porcentajeVariacionLeche <= 45)) {
-            descuento = 15;
-        } else if (porcentajeVariacionLeche > 46){
-            descuento = 30;
-        }
-        return  pagoAcopioLeche * descuento / 100;
+        return tarifasService.getTabla().descuentoPorVariacionLeche(porcentajeVariacionLeche, pagoAcopioLeche);
     }
 
     /**
@@ -174,17 +221,7 @@ public class PlanillaService {
      * @return descuento por variacion de grasa
      */
     public double calcularDescuentoPorVariacionGrasa(double porcentajeVariacionGrasa, double pagoAcopioLeche) {
-        double porcentaje = 0;
-        if ((porcentajeVariacionGrasa >= 0) && (porcentajeVariacionGrasa <= 15)) {
-            porcentaje = 0;
-        } else if ((porcentajeVariacionGrasa > 15) && (porcentajeVariacionGrasa <= 25)) {
-            porcentaje = 12;
-        } else if ((porcentajeVariacionGrasa > 25) && (porcentajeVariacionGrasa <= 40)) {
-            porcentaje = 20;
-        } else if (porcentajeVariacionGrasa > 40){
-            porcentaje = 30;
-        }
-        return  pagoAcopioLeche * porcentaje / 100;
+        return tarifasService.getTabla().descuentoPorVariacionGrasa(porcentajeVariacionGrasa, pagoAcopioLeche);
     }
 
     /**
@@ -194,17 +231,7 @@ public class PlanillaService {
      * @return descuento Cantidad que se le debe descontar al proveedor asociado al acopio de leche
      */
     public double calcularDescuentoPorVariacionSolidosTotales(double porcentajeVariacionSolidoTotal, double pagoAcopioLeche) {
-        double porcentaje = 0;
-        if ((porcentajeVariacionSolidoTotal >= 0) && (porcentajeVariacionSolidoTotal <= 6)) {
-            porcentaje = 0;
-        } else if ((porcentajeVariacionSolidoTotal > 6) && (porcentajeVariacionSolidoTotal <= 12)) {
-            porcentaje = 18;
-        } else if ((porcentajeVariacionSolidoTotal > 12) && (porcentajeVariacionSolidoTotal <= 35)) {
-            porcentaje = 27;
-        } else if (porcentajeVariacionSolidoTotal > 35){
-            porcentaje = 45;
-        }
-        return pagoAcopioLeche * porcentaje / 100;
+        return tarifasService.getTabla().descuentoPorVariacionSolidosTotales(porcentajeVariacionSolidoTotal, pagoAcopioLeche);
     }
 
     /**
@@ -213,17 +240,13 @@ public class PlanillaService {
      * @return retencion Cantidad que se le debe retener al proveedor
      */
     public double calcularRetencion(double pago){
-        double retencion = 0;
-        if (pago > LIMITERETENCION){
-            retencion = pago * IMPUESTORETENCION/ 100;
-        }
-        return retencion;
+        return tarifasService.getTabla().retencion(pago);
     }
 
     public double klsTotalLeche(List<Acopio> acopios) {
         double kls = 0;
         for (Acopio acopio : acopios) {
-            kls += Integer.parseInt(acopio.getKlsLeche());
+            kls += acopio.getKlsLeche();
         }
         return kls;
     }
@@ -260,32 +283,54 @@ public class PlanillaService {
     }
 
     public List<Laboratorio> getLaboratorios() {
-        ResponseEntity<List<Laboratorio>> response = restTemplate.exchange(
-                "http://laboratorio-service/laboratorio",
-                HttpMethod.GET,
-                null,
-                new ParameterizedTypeReference<List<Laboratorio>>() {}
-        );
-        List<Laboratorio> datosLaboratorio = response.getBody();
-        return datosLaboratorio;
+        long inicio = System.nanoTime();
+        try {
+            ResponseEntity<List<Laboratorio>> response = restTemplate.exchange(
+                    "http://laboratorio-service/laboratorio",
+                    HttpMethod.GET,
+                    null,
+                    new ParameterizedTypeReference<List<Laboratorio>>() {}
+            );
+            List<Laboratorio> datosLaboratorio = response.getBody();
+            if (datosLaboratorio != null) {
+                // Las planillas y sus particiones usan la quincena como "YYYY/MM/Qn", aunque el mes llegue sin cero
+                for (Laboratorio laboratorio : datosLaboratorio) {
+                    Quincena quincena = Quincena.tryParse(laboratorio.getQuincena());
+                    if (quincena != null) {
+                        laboratorio.setQuincena(quincena.toString());
+                    }
+                }
+            }
+            return datosLaboratorio;
+        } finally {
+            metricas.registrar(Etapa.LABORATORIOS, inicio);
+        }
     }
 
 
 
     public double getVariacionLeche(String quincena, String codigoProveedor, double klsTotalLeche) {
-        double klsLecheAnterior;
         String quincenaAnterior = getLastQuincena(quincena);
-        if (quincenaAnterior.isEmpty()) {
-            klsLecheAnterior = klsTotalLeche;
-        }else{
-            System.out.println("quincenaAnterior: "+quincena);
-            List<Acopio> datosAcopioQuincena = getAcopios(quincenaAnterior, codigoProveedor);
-            if(datosAcopioQuincena.isEmpty()){
-                klsLecheAnterior = klsTotalLeche;
-            }else {
-                klsLecheAnterior = klsTotalLeche(datosAcopioQuincena);
-            }
+        ResumenAcopios acopiosAnteriores = null;
+        if (!quincenaAnterior.isEmpty()) {
+            logg.debug("quincenaAnterior: {}", quincenaAnterior);
+            acopiosAnteriores = getResumenAcopios(quincenaAnterior, codigoProveedor);
+        }
+        return calcularVariacionLeche(acopiosAnteriores, klsTotalLeche);
+    }
 
+    /**
+     * Calcula la variacion de leche respecto de los acopios de la quincena anterior
+     * @param acopiosAnteriores Resumen de acopios de la quincena anterior, null si no hay quincena anterior
+     * @param klsTotalLeche Kilos de leche de la quincena actual
+     * @return variacion Porcentaje de variacion de leche, 0 si no hubo disminucion
+     */
+    public double calcularVariacionLeche(ResumenAcopios acopiosAnteriores, double klsTotalLeche) {
+        double klsLecheAnterior;
+        if (acopiosAnteriores == null || acopiosAnteriores.getAcopios() == 0) {
+            klsLecheAnterior = klsTotalLeche;
+        } else {
+            klsLecheAnterior = acopiosAnteriores.getKlsTotalLeche();
         }
         double variacion = Math.round((((klsLecheAnterior - klsTotalLeche)*100)/klsLecheAnterior)*10000)/10000.0;
         if (variacion <= 0) {
@@ -295,9 +340,23 @@ public class PlanillaService {
     }
 
 
+    /**
+     * Obtiene un proveedor, desde la cache de proveedores o desde proveedor-service
+     * @param codigoProveedor Codigo del proveedor
+     * @return proveedor
+     */
     public Proveedor getProveedorModel(String codigoProveedor) {
-        Proveedor proveedor = restTemplate.getForObject("http://proveedor-service/proveedor/" + codigoProveedor, Proveedor.class);
-        return proveedor;
+        return proveedorCache.get(codigoProveedor, this::getProveedorRemoto);
+    }
+
+    public Proveedor getProveedorRemoto(String codigoProveedor) {
+        long inicio = System.nanoTime();
+        try {
+            Proveedor proveedor = restTemplate.getForObject("http://proveedor-service/proveedor/" + codigoProveedor, Proveedor.class);
+            return proveedor;
+        } finally {
+            metricas.registrar(Etapa.PROVEEDOR, inicio);
+        }
     }
 
     public List<Acopio> getAcopios(String quincena, String codigoProveedor) {
@@ -323,130 +382,580 @@ public class PlanillaService {
         }
     }
 
-    public double getPorcentajeVariacionGrasa(String quincena, String codigoProveedor, String porcentajeGrasa) {
+    /**
+     * Obtiene el resumen de los acopios de un proveedor, leyendo la respuesta de acopio-service
+     * en una sola pasada y sin crear la lista de acopios
+     * @param quincena Quincena de los acopios
+     * @param codigoProveedor Codigo del proveedor
+     * @return resumen de los acopios, vacio si el proveedor no tiene acopios
+     */
+    public ResumenAcopios getResumenAcopios(String quincena, String codigoProveedor) {
+        String url = "http://acopio-service/acopio/byquincenaproveedor/?quincena={quincena}&proveedor={proveedor}";
+
+        long inicio = System.nanoTime();
+        try {
+            return restTemplate.execute(
+                    url,
+                    HttpMethod.GET,
+                    null,
+                    response -> acopioAgregador.resumir(response.getBody()),
+                    quincena,
+                    codigoProveedor
+            );
+        } catch (HttpClientErrorException.NotFound e) {
+            return ResumenAcopios.vacio();
+        } finally {
+            metricas.registrar(Etapa.ACOPIOS, inicio);
+        }
+    }
+
+    public double getPorcentajeVariacionGrasa(String quincena, String codigoProveedor, int porcentajeGrasa) {
         String url = "http://laboratorio-service/laboratorio/getVariacionGrasa/?quincena={quincena}&codigoProveedor={codigoProveedor}&porcentajeGrasa={porcentajeGrasa}";
 
-        ResponseEntity<Double> response = restTemplate.exchange(
-                url,
-                HttpMethod.GET,
-                null,
-                Double.class,
-                quincena,
-                codigoProveedor,
-                porcentajeGrasa
-        );
-        double variacion = response.getBody();
-        return variacion;
+        long inicio = System.nanoTime();
+        try {
+            ResponseEntity<Double> response = restTemplate.exchange(
+                    url,
+                    HttpMethod.GET,
+                    null,
+                    Double.class,
+                    quincena,
+                    codigoProveedor,
+                    porcentajeGrasa
+            );
+            double variacion = response.getBody();
+            return variacion;
+        } finally {
+            metricas.registrar(Etapa.VARIACION_GRASA, inicio);
+        }
     }
 
-    public double getPorcentajeVariacionST(String quincena, String codigoProveedor, String porcentajeSolidoTotal) {
+    public double getPorcentajeVariacionST(String quincena, String codigoProveedor, int porcentajeSolidoTotal) {
         String url = "http://laboratorio-service/laboratorio/getVariacionSolidosTotales/?quincena={quincena}&codigoProveedor={codigoProveedor}&porcentajeSolidoTOtal={porcentajeSolidoTotal}";
 
-        ResponseEntity<Double> response = restTemplate.exchange(
-                url,
-                HttpMethod.GET,
-                null,
-                Double.class,
-                quincena,
-                codigoProveedor,
-                porcentajeSolidoTotal
-        );
-        double variacion = response.getBody();
-        return variacion;
+        long inicio = System.nanoTime();
+        try {
+            ResponseEntity<Double> response = restTemplate.exchange(
+                    url,
+                    HttpMethod.GET,
+                    null,
+                    Double.class,
+                    quincena,
+                    codigoProveedor,
+                    porcentajeSolidoTotal
+            );
+            double variacion = response.getBody();
+            return variacion;
+        } finally {
+            metricas.registrar(Etapa.VARIACION_SOLIDOS, inicio);
+        }
     }
 
+    /**
+     * @param quincena Quincena con formato "YYYY/MM/Qn"
+     * @return quincena anterior con el mismo formato, vacia si la quincena no es valida
+     */
     public String getLastQuincena(String quincena){
-        String quincenaAnterior = "";
-        String anioActual= quincena.split("/")[0];
-        String mesActual= quincena.split("/")[1];
-        String qActual= quincena.split("/")[2];
-        if(qActual.equals("Q1")){
-            if(mesActual.equals("01")){
-                anioActual = Integer.toString(Integer.parseInt(anioActual) - 1);
-                mesActual = "12";
-            }
-            else{
-                mesActual = Integer.toString(Integer.parseInt(mesActual));
-                if ((mesActual.length() == 1) || (mesActual.equals("10"))) {
-                    mesActual = Integer.toString(Integer.parseInt(mesActual) - 1);
-                    mesActual = "0" + mesActual;
-                }else{
-                    mesActual = Integer.toString(Integer.parseInt(mesActual) - 1);
+        Quincena actual = Quincena.tryParse(quincena);
+        return actual == null ? "" : actual.anterior().toString();
+    }
+
+    public ResultadoCalculo calcularPagoFinal(){
+        return calcularPagoFinal(null, ProgresoCalculo.NINGUNO);
+    }
+
+    /**
+     * Calcula la planilla de los proveedores con datos de laboratorio.
+     * Si planilla.calculo.paralelo esta activo los proveedores se calculan en paralelo.
+     * Si planilla.carga.precarga esta activo los acopios y proveedores se precargan en bloque.
+     * Si planilla.variacion.local esta activo las variaciones de grasa y solidos se calculan en memoria.
+     * Solo se recalculan y guardan los proveedores cuyas entradas cambiaron desde el ultimo calculo.
+     * Un proveedor que falla se registra en el log y no detiene al resto.
+     * Los proveedores que progreso ya no tiene pendientes no se cargan ni se calculan.
+     * @param quincena Quincena a calcular, null para todas las quincenas con datos de laboratorio
+     * @param progreso Recibe el avance del calculo y puede cancelarlo
+     * @return cantidad de proveedores recalculados, sin cambios y fallidos entre los pendientes
+     */
+    public ResultadoCalculo calcularPagoFinal(String quincena, ProgresoCalculo progreso){
+        Medicion medicion = metricas.iniciarEjecucion(quincena);
+        List<Laboratorio> todosLaboratorios = getLaboratorios();
+        if (todosLaboratorios == null) {
+            todosLaboratorios = Collections.emptyList();
+        }
+        List<Laboratorio> datosLaboratorio = todosLaboratorios;
+        if (quincena != null) {
+            datosLaboratorio = todosLaboratorios.stream()
+                    .filter(laboratorio -> quincena.equals(laboratorio.getQuincena()))
+                    .collect(Collectors.toList());
+        }
+        progreso.iniciado(datosLaboratorio.size());
+        List<Laboratorio> pendientes = datosLaboratorio.stream()
+                .filter(laboratorio -> progreso.pendiente(laboratorio.getProveedor()))
+                .collect(Collectors.toList());
+        if (pendientes.size() < datosLaboratorio.size()) {
+            logg.info("Se retoma el calculo: {} de {} proveedores ya estaban terminados",
+                    datosLaboratorio.size() - pendientes.size(), datosLaboratorio.size());
+            datosLaboratorio = pendientes;
+        }
+        long inicioCarga = System.nanoTime();
+        DatosQuincena datos = cargaQuincenaService.cargar(datosLaboratorio, todosLaboratorios);
+        metricas.registrar(Etapa.PRECARGA, inicioCarga);
+        ResultadoCalculo resultado = calcularLaboratorios(datosLaboratorio, datos, progreso);
+        metricas.terminarEjecucion(medicion, resultado);
+        return resultado;
+    }
+
+    /**
+     * Recalcula todos los proveedores de la quincena en una tabla temporal y la cambia por las planillas
+     * guardadas en una sola transaccion. Se recalculan aunque sus entradas no hayan cambiado.
+     * Si el calculo se cancela o falla algun proveedor la quincena queda como estaba.
+     * @param quincena Quincena a reemplazar
+     * @param progreso Recibe el avance del calculo y puede cancelarlo
+     * @return cantidad de proveedores recalculados y fallidos
+     */
+    public ResultadoCalculo reemplazarQuincena(String quincena, ProgresoCalculo progreso) {
+        Medicion medicion = metricas.iniciarEjecucion(quincena);
+        List<Laboratorio> todosLaboratorios = getLaboratorios();
+        if (todosLaboratorios == null) {
+            todosLaboratorios = Collections.emptyList();
+        }
+        List<Laboratorio> datosLaboratorio = todosLaboratorios.stream()
+                .filter(laboratorio -> quincena.equals(laboratorio.getQuincena()))
+                .collect(Collectors.toList());
+        progreso.iniciado(datosLaboratorio.size());
+        long inicioCarga = System.nanoTime();
+        DatosQuincena cargados = cargaQuincenaService.cargar(datosLaboratorio, todosLaboratorios);
+        // Sin huellas guardadas todos los proveedores se recalculan y escriben en la tabla temporal
+        DatosQuincena datos = new DatosQuincena(cargados.getAcopiosPorQuincena(), cargados.getProveedores(),
+                Collections.emptyMap(), cargados.getLaboratorios(), cargados.getLlamadasRealizadas(),
+                cargados.getLlamadasEvitadas());
+        metricas.registrar(Etapa.PRECARGA, inicioCarga);
+        String temporal = periodosPlanilla.crearTemporal(quincena);
+        ResultadoCalculo resultado;
+        try {
+            resultado = calcularLaboratorios(datosLaboratorio, datos,
+                    escrituraPlanillasService.nuevoLote(temporal, progreso), progreso);
+        } catch (RuntimeException e) {
+            periodosPlanilla.descartar(temporal);
+            throw e;
+        }
+        if (resultado.isCancelado() || resultado.getFallidos() > 0) {
+            logg.warn("No se reemplaza la quincena {}: {} proveedores fallidos{}", quincena, resultado.getFallidos(),
+                    resultado.isCancelado() ? ", calculo cancelado" : "");
+            periodosPlanilla.descartar(temporal);
+        } else {
+            periodosPlanilla.intercambiar(quincena, temporal);
+        }
+        metricas.terminarEjecucion(medicion, resultado);
+        return resultado;
+    }
+
+    /**
+     * Calcula y guarda en lotes la planilla de los proveedores indicados, con datos ya precargados.
+     * Si planilla.calculo.paralelo esta activo los proveedores se calculan en paralelo.
+     * @param datosLaboratorio Datos de laboratorio de los proveedores a calcular
+     * @param datos Datos precargados, null para consultar cada proveedor
+     * @param progreso Recibe el avance del calculo y puede cancelarlo
+     * @return cantidad de proveedores recalculados, sin cambios y fallidos
+     */
+    public ResultadoCalculo calcularLaboratorios(List<Laboratorio> datosLaboratorio, DatosQuincena datos,
+                                                 ProgresoCalculo progreso) {
+        return calcularLaboratorios(datosLaboratorio, datos, escrituraPlanillasService.nuevoLote(progreso), progreso);
+    }
+
+    /**
+     * Igual que calcularLaboratorios, guardando en el lote indicado
+     * @param lote Lote donde se acumulan las planillas calculadas; se cierra al terminar
+     */
+    public ResultadoCalculo calcularLaboratorios(List<Laboratorio> datosLaboratorio, DatosQuincena datos,
+                                                 LotePlanillas lote, ProgresoCalculo progreso) {
+        ResultadoCalculo resultado;
+        if (calculoParalelo) {
+            resultado = calcularPagoFinalParalelo(datosLaboratorio, datos, lote, progreso);
+        } else {
+            resultado = new ResultadoCalculo();
+            resultado.setProveedores(datosLaboratorio.size());
+            for (Laboratorio laboratorio : datosLaboratorio) {
+                try {
+                    registrar(resultado, calcularProveedor(copiarLaboratorio(laboratorio), datos, lote, progreso, false));
+                } catch (RuntimeException e) {
+                    registrarFallo(resultado, laboratorio, e);
                 }
             }
-            quincenaAnterior = anioActual + "/" + mesActual + "/" + "Q2";
-        }
-        else if(qActual.equals("Q2")){
-            quincenaAnterior = anioActual + "/" + mesActual + "/" + "Q1";
         }
-        return quincenaAnterior;
+        lote.cerrar();
+        return resultado;
     }
 
-    public void calcularPagoFinal(){
-        List<Laboratorio> datosLaboratorio = getLaboratorios();
-        if (datosLaboratorio != null) {
-            int i = 0;
-            for (int j = 0; j < datosLaboratorio.size(); j++){
-                Laboratorio newLaboratorio = new Laboratorio();
-                newLaboratorio.setQuincena(datosLaboratorio.get(j).getQuincena());
-                newLaboratorio.setProveedor(datosLaboratorio.get(j).getProveedor());
-                newLaboratorio.setPorcentajeGrasa(datosLaboratorio.get(j).getPorcentajeGrasa());
-                newLaboratorio.setPorcentajeSolidoTotal(datosLaboratorio.get(j).getPorcentajeSolidoTotal());
-                calcularPagoQuincena(newLaboratorio);
-                i++;
+    /**
+     * Calcula los proveedores en el pool acotado planillaExecutor.
+     * @param datosLaboratorio Datos de laboratorio de los proveedores a calcular
+     * @param datos Datos precargados, null para consultar cada proveedor
+     * @param lote Lote donde se acumulan las planillas calculadas
+     * @param progreso Recibe el avance del calculo y puede cancelarlo
+     * @return cantidad de proveedores recalculados, sin cambios y fallidos
+     */
+    public ResultadoCalculo calcularPagoFinalParalelo(List<Laboratorio> datosLaboratorio, DatosQuincena datos,
+                                                      LotePlanillas lote, ProgresoCalculo progreso) {
+        List<Future<Boolean>> tareas = new ArrayList<>(datosLaboratorio.size());
+        for (Laboratorio laboratorio : datosLaboratorio) {
+            Laboratorio newLaboratorio = copiarLaboratorio(laboratorio);
+            tareas.add(planillaExecutor.submit(() -> calcularProveedor(newLaboratorio, datos, lote, progreso, true)));
+        }
+        ResultadoCalculo resultado = new ResultadoCalculo();
+        resultado.setProveedores(datosLaboratorio.size());
+        for (int j = 0; j < tareas.size(); j++) {
+            try {
+                registrar(resultado, tareas.get(j).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tareas.subList(j, tareas.size()).forEach(tarea -> tarea.cancel(true));
+                throw new IllegalStateException("Calculo de planillas interrumpido", e);
+            } catch (ExecutionException e) {
+                registrarFallo(resultado, datosLaboratorio.get(j), e.getCause());
             }
         }
+        return resultado;
+    }
+
+    /**
+     * Calcula un proveedor, con planilla.http.presupuesto-proveedor como tiempo maximo
+     * para sus llamadas remotas, e informa el resultado a progreso
+     * @return true si se recalculo, false si no hubo cambios, null si el calculo fue cancelado
+     */
+    private Boolean calcularProveedor(Laboratorio laboratorio, DatosQuincena datos, LotePlanillas lote,
+                                      ProgresoCalculo progreso, boolean paralelo) {
+        if (progreso.cancelado()) {
+            return null;
+        }
+        Boolean recalculado = null;
+        metricas.proveedorIniciado();
+        try {
+            recalculado = PresupuestoLatencia.ejecutar(presupuestoProveedor, () -> paralelo
+                    ? calcularPagoQuincenaParalelo(laboratorio, datos, lote)
+                    : calcularPagoQuincena(laboratorio, datos, lote));
+            progreso.proveedorCalculado(laboratorio.getProveedor(), recalculado);
+            return recalculado;
+        } catch (RuntimeException e) {
+            progreso.proveedorFallido(laboratorio.getProveedor(), e);
+            throw e;
+        } finally {
+            metricas.proveedorTerminado(recalculado);
+        }
+    }
+
+    private void registrar(ResultadoCalculo resultado, Boolean recalculado) {
+        if (recalculado == null) {
+            resultado.setCancelado(true);
+        } else if (recalculado) {
+            resultado.setRecalculados(resultado.getRecalculados() + 1);
+        } else {
+            resultado.setSinCambios(resultado.getSinCambios() + 1);
+        }
+    }
+
+    private void registrarFallo(ResultadoCalculo resultado, Laboratorio laboratorio, Throwable error) {
+        resultado.setFallidos(resultado.getFallidos() + 1);
+        logg.error("Error al calcular la planilla del proveedor {}: ", laboratorio.getProveedor(), error);
+    }
+
+    private Laboratorio copiarLaboratorio(Laboratorio laboratorio) {
+        Laboratorio newLaboratorio = new Laboratorio();
+        newLaboratorio.setQuincena(laboratorio.getQuincena());
+        newLaboratorio.setProveedor(laboratorio.getProveedor());
+        newLaboratorio.setPorcentajeGrasa(laboratorio.getPorcentajeGrasa());
+        newLaboratorio.setPorcentajeSolidoTotal(laboratorio.getPorcentajeSolidoTotal());
+        return newLaboratorio;
+    }
+
+    public boolean calcularPagoQuincena(Laboratorio laboratorio){
+        return calcularPagoQuincena(laboratorio, null, null);
+    }
+
+    /**
+     * Calcula y guarda la planilla de un proveedor si sus entradas cambiaron
+     * @param laboratorio Datos de laboratorio del proveedor
+     * @param datos Datos precargados, null para consultar los otros servicios
+     * @param lote Lote donde se acumula la planilla, null para guardarla de inmediato
+     * @return true si la planilla se recalculo, false si no hubo cambios
+     */
+    public boolean calcularPagoQuincena(Laboratorio laboratorio, DatosQuincena datos, LotePlanillas lote){
+        String quincena = laboratorio.getQuincena();
+        String codigoProveedor = laboratorio.getProveedor();
+        String quincenaAnterior = getLastQuincena(quincena);
+        Proveedor proveedor = getProveedor(datos, codigoProveedor);
+        ResumenAcopios datosAcopioQuincena = getResumenAcopios(datos, quincena, codigoProveedor);
+        ResumenAcopios datosAcopioAnterior = quincenaAnterior.isEmpty() ? null : getResumenAcopios(datos, quincenaAnterior, codigoProveedor);
+        double porcentajeVariacionGrasa = getPorcentajeVariacionGrasa(datos, laboratorio);
+        double porcentajeVariacionSolidoTotal = getPorcentajeVariacionST(datos, laboratorio);
+        return guardarSiCambio(laboratorio, datos, lote, proveedor, datosAcopioQuincena, datosAcopioAnterior,
+                porcentajeVariacionGrasa, porcentajeVariacionSolidoTotal);
+    }
+
+    /**
+     * Igual que calcularPagoQuincena, pero las consultas remotas independientes
+     * del proveedor se realizan al mismo tiempo en consultasExecutor
+     * @param laboratorio Datos de laboratorio del proveedor
+     * @param datos Datos precargados, null para consultar los otros servicios
+     * @param lote Lote donde se acumula la planilla, null para guardarla de inmediato
+     * @return true si la planilla se recalculo, false si no hubo cambios
+     */
+    public boolean calcularPagoQuincenaParalelo(Laboratorio laboratorio, DatosQuincena datos, LotePlanillas lote){
+        String quincena = laboratorio.getQuincena();
+        String codigoProveedor = laboratorio.getProveedor();
+        String quincenaAnterior = getLastQuincena(quincena);
+        CompletableFuture<Proveedor> proveedor = consultar(() -> getProveedor(datos, codigoProveedor),
+                datos != null && datos.getProveedor(codigoProveedor) != null);
+        CompletableFuture<ResumenAcopios> datosAcopioQuincena = consultar(() -> getResumenAcopios(datos, quincena, codigoProveedor),
+                datos != null && datos.getResumenAcopios(quincena, codigoProveedor) != null);
+        CompletableFuture<ResumenAcopios> datosAcopioAnterior = quincenaAnterior.isEmpty()
+                ? CompletableFuture.completedFuture(null)
+                : consultar(() -> getResumenAcopios(datos, quincenaAnterior, codigoProveedor),
+                        datos != null && datos.getResumenAcopios(quincenaAnterior, codigoProveedor) != null);
+        boolean variacionEnMemoria = datos != null && variacionLocal && !verificarVariacionRemota(codigoProveedor);
+        CompletableFuture<Double> porcentajeVariacionGrasa = consultar(
+                () -> getPorcentajeVariacionGrasa(datos, laboratorio), variacionEnMemoria);
+        CompletableFuture<Double> porcentajeVariacionSolidoTotal = consultar(
+                () -> getPorcentajeVariacionST(datos, laboratorio), variacionEnMemoria);
+        CompletableFuture.allOf(proveedor, datosAcopioQuincena, datosAcopioAnterior,
+                porcentajeVariacionGrasa, porcentajeVariacionSolidoTotal).join();
+        return guardarSiCambio(laboratorio, datos, lote, proveedor.join(), datosAcopioQuincena.join(),
+                datosAcopioAnterior.join(), porcentajeVariacionGrasa.join(), porcentajeVariacionSolidoTotal.join());
+    }
+
+    /**
+     * Guarda la planilla del proveedor solo si la huella de sus entradas cambio.
+     * Si ya existe una planilla para la quincena y el proveedor se reemplaza.
+     * @return true si la planilla se recalculo, false si no hubo cambios
+     */
+    private boolean guardarSiCambio(Laboratorio laboratorio, DatosQuincena datos, LotePlanillas lote, Proveedor proveedor,
+                                    ResumenAcopios datosAcopioQuincena, ResumenAcopios datosAcopioAnterior,
+                                    double porcentajeVariacionGrasa, double porcentajeVariacionSolidoTotal) {
+        String quincena = laboratorio.getQuincena();
+        String codigoProveedor = laboratorio.getProveedor();
+        TablaTarifas tarifas = tarifasService.getTabla();
+        long inicio = System.nanoTime();
+        String huella = calcularHuella(laboratorio, proveedor, datosAcopioQuincena, datosAcopioAnterior,
+                porcentajeVariacionGrasa, porcentajeVariacionSolidoTotal, tarifas.getVersion());
+        HuellaPlanilla guardada = datos != null
+                ? datos.getPlanillaGuardada(quincena, codigoProveedor)
+                : planillaRepository.findHuellaByQuincenaAndCodigoProveedor(quincena, codigoProveedor).orElse(null);
+        if (guardada != null && huella.equals(guardada.getHuella())) {
+            metricas.registrar(Etapa.CALCULO, inicio);
+            return false;
+        }
+        Planilla planilla = construirPlanilla(laboratorio, proveedor, datosAcopioQuincena, datosAcopioAnterior,
+                porcentajeVariacionGrasa, porcentajeVariacionSolidoTotal, tarifas);
+        planilla.setHuella(huella);
+        if (guardada != null) {
+            planilla.setId(guardada.getId());
+        }
+        metricas.registrar(Etapa.CALCULO, inicio);
+        if (lote != null) {
+            lote.agregar(planilla);
+        } else {
+            long inicioGuardado = System.nanoTime();
+            escrituraPlanillasService.guardar(List.of(planilla));
+            metricas.registrar(Etapa.GUARDADO, inicioGuardado);
+        }
+        return true;
+    }
+
+    /**
+     * Calcula la huella SHA-256 de todas las entradas que determinan la planilla de un proveedor,
+     * incluida la version de las tarifas
+     * @return huella en hexadecimal
+     */
+    public String calcularHuella(Laboratorio laboratorio, Proveedor proveedor, ResumenAcopios datosAcopioQuincena,
+                                 ResumenAcopios datosAcopioAnterior, double porcentajeVariacionGrasa,
+                                 double porcentajeVariacionSolidoTotal, String versionTarifas) {
+        StringBuilder entradas = new StringBuilder()
+                .append(versionTarifas).append('|')
+                .append(laboratorio.getQuincena()).append('|')
+                .append(laboratorio.getProveedor()).append('|')
+                .append(laboratorio.getPorcentajeGrasa()).append('|')
+                .append(laboratorio.getPorcentajeSolidoTotal()).append('|')
+                .append(proveedor.getNombre()).append('|')
+                .append(proveedor.getCategoria()).append('|')
+                .append(porcentajeVariacionGrasa).append('|')
+                .append(porcentajeVariacionSolidoTotal);
+        agregarAcopios(entradas.append("|actual"), datosAcopioQuincena);
+        agregarAcopios(entradas.append("|anterior"), datosAcopioAnterior);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(entradas.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void agregarAcopios(StringBuilder entradas, ResumenAcopios acopios) {
+        if (acopios == null) {
+            return;
+        }
+        entradas.append('|').append(acopios.getAcopios())
+                .append(',').append(acopios.getKlsTotalLeche())
+                .append(',').append(acopios.getDiasEnvioLeche())
+                .append(',').append(acopios.getTurnosManana())
+                .append(',').append(acopios.getTurnosTarde());
+    }
+
+    /**
+     * Ejecuta una consulta en consultasExecutor, o en el hilo actual si el dato ya esta precargado
+     */
+    private <T> CompletableFuture<T> consultar(Supplier<T> consulta, boolean precargado) {
+        if (precargado) {
+            return CompletableFuture.completedFuture(consulta.get());
+        }
+        return CompletableFuture.supplyAsync(PresupuestoLatencia.propagar(consulta), consultasExecutor);
+    }
+
+    /**
+     * Obtiene la variacion de grasa desde el indice de laboratorio, o desde laboratorio-service
+     * si no hay datos precargados o planilla.variacion.local esta desactivado.
+     * Para los proveedores que toca verificar (planilla.variacion.verificar-cada) tambien se consulta
+     * laboratorio-service y se registran las diferencias: el calculo local supone que laboratorio-service usa
+     * la formula de la variacion de leche, y esa suposicion aun no se comprobo con sus resultados.
+     */
+    double getPorcentajeVariacionGrasa(DatosQuincena datos, Laboratorio laboratorio) {
+        String quincena = laboratorio.getQuincena();
+        String codigoProveedor = laboratorio.getProveedor();
+        if (datos == null || !variacionLocal) {
+            return getPorcentajeVariacionGrasa(quincena, codigoProveedor, laboratorio.getPorcentajeGrasa());
+        }
+        double variacion = datos.getLaboratorios()
+                .variacionGrasa(getLastQuincena(quincena), codigoProveedor, laboratorio.getPorcentajeGrasa());
+        if (verificarVariacionRemota(codigoProveedor)) {
+            return verificarVariacion("grasa", laboratorio, variacion,
+                    getPorcentajeVariacionGrasa(quincena, codigoProveedor, laboratorio.getPorcentajeGrasa()));
+        }
+        return variacion;
+    }
+
+    /**
+     * Igual que getPorcentajeVariacionGrasa, para la variacion de solidos totales
+     */
+    double getPorcentajeVariacionST(DatosQuincena datos, Laboratorio laboratorio) {
+        String quincena = laboratorio.getQuincena();
+        String codigoProveedor = laboratorio.getProveedor();
+        if (datos == null || !variacionLocal) {
+            return getPorcentajeVariacionST(quincena, codigoProveedor, laboratorio.getPorcentajeSolidoTotal());
+        }
+        double variacion = datos.getLaboratorios()
+                .variacionSolidoTotal(getLastQuincena(quincena), codigoProveedor, laboratorio.getPorcentajeSolidoTotal());
+        if (verificarVariacionRemota(codigoProveedor)) {
+            return verificarVariacion("solidos", laboratorio, variacion,
+                    getPorcentajeVariacionST(quincena, codigoProveedor, laboratorio.getPorcentajeSolidoTotal()));
+        }
+        return variacion;
     }
 
-    public void calcularPagoQuincena(Laboratorio laboratorio){
+    /**
+     * Verifica uno de cada planilla.variacion.verificar-cada proveedores, siempre los mismos para que sus
+     * diferencias se puedan seguir entre quincenas. Con 0 no se verifica ninguno.
+     */
+    boolean verificarVariacionRemota(String codigoProveedor) {
+        return verificarVariacionCada > 0 && codigoProveedor != null
+                && Math.floorMod(codigoProveedor.hashCode(), verificarVariacionCada) == 0;
+    }
+
+    /**
+     * @return variacion local; la de laboratorio-service solo se compara
+     */
+    private double verificarVariacion(String tipo, Laboratorio laboratorio, double local, double remota) {
+        boolean igual = Double.compare(local, remota) == 0;
+        metricas.variacionVerificada(tipo, igual);
+        if (!igual) {
+            logg.warn("Variacion de {} distinta para el proveedor {} en {}: local {}, laboratorio-service {}",
+                    tipo, laboratorio.getProveedor(), laboratorio.getQuincena(), local, remota);
+        }
+        return local;
+    }
+
+    private Proveedor getProveedor(DatosQuincena datos, String codigoProveedor) {
+        Proveedor proveedor = datos == null ? null : datos.getProveedor(codigoProveedor);
+        if (proveedor == null) {
+            proveedor = getProveedorModel(codigoProveedor);
+        }
+        if (proveedor == null) {
+            throw new IllegalStateException("Proveedor " + codigoProveedor + " no encontrado en proveedor-service");
+        }
+        return proveedor;
+    }
+
+    private ResumenAcopios getResumenAcopios(DatosQuincena datos, String quincena, String codigoProveedor) {
+        ResumenAcopios acopios = datos == null ? null : datos.getResumenAcopios(quincena, codigoProveedor);
+        if (acopios == null) {
+            acopios = getResumenAcopios(quincena, codigoProveedor);
+        }
+        if (acopios != null && acopios.getError() != null) {
+            throw new IllegalStateException("Acopios invalidos del proveedor " + codigoProveedor + " en " + quincena
+                    + ": " + acopios.getError());
+        }
+        return acopios;
+    }
+
+    /**
+     * Arma la planilla de un proveedor a partir de los datos ya obtenidos de los otros servicios
+     * @param laboratorio Datos de laboratorio del proveedor
+     * @param proveedor Datos del proveedor
+     * @param datosAcopioQuincena Resumen de acopios de la quincena
+     * @param datosAcopioAnterior Resumen de acopios de la quincena anterior, null si no hay quincena anterior
+     * @param porcentajeVariacionGrasa Porcentaje de variacion de grasa
+     * @param porcentajeVariacionSolidoTotal Porcentaje de variacion de solidos totales
+     * @param tarifas Tabla de tarifas con la que se calcula toda la planilla
+     * @return planilla del proveedor, sin guardar
+     */
+    public Planilla construirPlanilla(Laboratorio laboratorio, Proveedor proveedor, ResumenAcopios datosAcopioQuincena,
+                                      ResumenAcopios datosAcopioAnterior, double porcentajeVariacionGrasa,
+                                      double porcentajeVariacionSolidoTotal, TablaTarifas tarifas){
         Planilla newPlanilla = new Planilla();
         String quincena = laboratorio.getQuincena();
         String codigoProveedor = laboratorio.getProveedor();
-        Proveedor proveedor = getProveedorModel(codigoProveedor);
-        List<Acopio> datosAcopioQuincena = getAcopios(quincena, codigoProveedor);
         String nombreProveedor =proveedor.getNombre();
-        double klsTotalLeche = klsTotalLeche(datosAcopioQuincena);
-        String diasEnvioLeche = String.valueOf(diasEnvioLeche(datosAcopioQuincena));
-        String promedioKilosLecheDiario = String.valueOf(Math.round((klsTotalLeche / 15) * 1000.0) / 1000.0);
-        String porcentajeFrecuenciaDiariaEnvioLeche = String.valueOf(getVariacionLeche(quincena, codigoProveedor, klsTotalLeche));
-        String porcentajeGrasa = laboratorio.getPorcentajeGrasa();
-        double porcentajeVariacionGrasa = getPorcentajeVariacionGrasa(quincena, codigoProveedor, porcentajeGrasa);
-        String porcentajeSolidoTotal = laboratorio.getPorcentajeSolidoTotal();
-        double porcentajeVariacionSolidoTotal = getPorcentajeVariacionST(quincena, codigoProveedor, porcentajeSolidoTotal);
-        double pagoPorLeche = calcularPagoPorCategoria(getProveedorModel(codigoProveedor).getCategoria(), klsTotalLeche);
-        double pagoPorGrasa = calcularPagoPorGrasas(porcentajeGrasa,klsTotalLeche);
-        double pagoPorSolidosTotales = calcularPagoPorSolidosTotales(porcentajeSolidoTotal,klsTotalLeche);
-        double bonificacionPorFrecuencia = calcularBonificacionPorFrecuencia(datosAcopioQuincena,pagoPorLeche);
+        double klsTotalLeche = datosAcopioQuincena.getKlsTotalLeche();
+        double diasEnvioLeche = datosAcopioQuincena.getDiasEnvioLeche();
+        double promedioKilosLecheDiario = Math.round((klsTotalLeche / 15) * 1000.0) / 1000.0;
+        double porcentajeFrecuenciaDiariaEnvioLeche = calcularVariacionLeche(datosAcopioAnterior, klsTotalLeche);
+        int porcentajeGrasa = laboratorio.getPorcentajeGrasa();
+        int porcentajeSolidoTotal = laboratorio.getPorcentajeSolidoTotal();
+        double pagoPorLeche = tarifas.pagoPorCategoria(proveedor.getCategoria(), klsTotalLeche);
+        double pagoPorGrasa = tarifas.pagoPorGrasa(porcentajeGrasa,klsTotalLeche);
+        double pagoPorSolidosTotales = tarifas.pagoPorSolidosTotales(porcentajeSolidoTotal,klsTotalLeche);
+        double bonificacionPorFrecuencia = calcularBonificacionPorFrecuencia(datosAcopioQuincena.getTurnosManana(),
+                datosAcopioQuincena.getTurnosTarde(), pagoPorLeche);
         double pagoAcopioLeche = pagoPorLeche + pagoPorGrasa + pagoPorSolidosTotales + bonificacionPorFrecuencia;
-        double dctoVariacionLeche = calcularDescuentoPorVariacionLeche(Double.parseDouble(porcentajeFrecuenciaDiariaEnvioLeche),pagoAcopioLeche);
-        double dctoVariacionGrasa = calcularDescuentoPorVariacionGrasa(porcentajeVariacionGrasa,pagoAcopioLeche);
-        double dctoVariacionST = calcularDescuentoPorVariacionSolidosTotales(porcentajeVariacionSolidoTotal,pagoAcopioLeche);
+        double dctoVariacionLeche = tarifas.descuentoPorVariacionLeche(porcentajeFrecuenciaDiariaEnvioLeche,pagoAcopioLeche);
+        double dctoVariacionGrasa = tarifas.descuentoPorVariacionGrasa(porcentajeVariacionGrasa,pagoAcopioLeche);
+        double dctoVariacionST = tarifas.descuentoPorVariacionSolidosTotales(porcentajeVariacionSolidoTotal,pagoAcopioLeche);
         double dctoTotal = dctoVariacionLeche + dctoVariacionGrasa + dctoVariacionST;
         double pagoTotal = pagoAcopioLeche - dctoTotal;
-        double montoRetencion = calcularRetencion(pagoTotal);
-        String montoFinal = String.valueOf(pagoTotal - montoRetencion);
+        double montoRetencion = tarifas.retencion(pagoTotal);
+        double montoFinal = pagoTotal - montoRetencion;
 
         newPlanilla.setQuincena(quincena);
         newPlanilla.setCodigoProveedor(codigoProveedor);
         newPlanilla.setNombreProveedor(nombreProveedor);
-        newPlanilla.setKlsTotalLeche(String.valueOf(klsTotalLeche));
+        newPlanilla.setCategoria(proveedor.getCategoria());
+        newPlanilla.setKlsTotalLeche(klsTotalLeche);
         newPlanilla.setDiasEnvioLeche(diasEnvioLeche);
         newPlanilla.setPromedioKilosLecheDiario(promedioKilosLecheDiario);
         newPlanilla.setPorcentajeFrecuenciaDiariaEnvioLeche(porcentajeFrecuenciaDiariaEnvioLeche);
         newPlanilla.setPorcentajeGrasa(porcentajeGrasa);
-        newPlanilla.setPorcentajeVariacionGrasa(String.valueOf(porcentajeVariacionGrasa));
+        newPlanilla.setPorcentajeVariacionGrasa(porcentajeVariacionGrasa);
         newPlanilla.setPorcentajeSolidoTotal(porcentajeSolidoTotal);
-        newPlanilla.setPorcentajeVariacionSolidoTotal(String.valueOf(porcentajeVariacionSolidoTotal));
-        newPlanilla.setPagoPorLeche(String.valueOf(pagoPorLeche));
-        newPlanilla.setPagoPorGrasa(String.valueOf(pagoPorGrasa));
-        newPlanilla.setPagoPorSolidosTotales(String.valueOf(pagoPorSolidosTotales));
-        newPlanilla.setBonificacionPorFrecuencia(String.valueOf(bonificacionPorFrecuencia));
-        newPlanilla.setDctoVariacionLeche(String.valueOf(dctoVariacionLeche));
-        newPlanilla.setDctoVariacionGrasa(String.valueOf(dctoVariacionGrasa));
-        newPlanilla.setDctoVariacionST(String.valueOf(dctoVariacionST));
-        newPlanilla.setPagoTotal(String.valueOf(pagoTotal));
-        newPlanilla.setMontoRetencion(String.valueOf(montoRetencion));
+        newPlanilla.setPorcentajeVariacionSolidoTotal(porcentajeVariacionSolidoTotal);
+        newPlanilla.setPagoPorLeche(pagoPorLeche);
+        newPlanilla.setPagoPorGrasa(pagoPorGrasa);
+        newPlanilla.setPagoPorSolidosTotales(pagoPorSolidosTotales);
+        newPlanilla.setBonificacionPorFrecuencia(bonificacionPorFrecuencia);
+        newPlanilla.setDctoVariacionLeche(dctoVariacionLeche);
+        newPlanilla.setDctoVariacionGrasa(dctoVariacionGrasa);
+        newPlanilla.setDctoVariacionST(dctoVariacionST);
+        newPlanilla.setPagoTotal(pagoTotal);
+        newPlanilla.setMontoRetencion(montoRetencion);
         newPlanilla.setMontoFinal(montoFinal);
-        planillaRepository.save(newPlanilla);
+        newPlanilla.setVersionTarifas(tarifas.getVersion());
+        return newPlanilla;
     }
 }
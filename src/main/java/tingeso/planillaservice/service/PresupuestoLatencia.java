@@ -0,0 +1,75 @@
+package tingeso.planillaservice.service;
+
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Tiempo total disponible para las llamadas remotas de un proveedor. El limite se guarda por hilo
+ * y se propaga a las consultas que se ejecutan en otros pools con propagar.
+ * Las llamadas de RestTemplate lo revisan antes de cada intento y acotan su timeout al tiempo restante.
+ */
+public final class PresupuestoLatencia {
+    private static final ThreadLocal<Long> LIMITE = new ThreadLocal<>();
+
+    private PresupuestoLatencia() {
+    }
+
+    /**
+     * Ejecuta una tarea con un presupuesto de tiempo para sus llamadas remotas
+     * @param presupuesto Tiempo total disponible
+     * @param tarea Tarea a ejecutar
+     * @return resultado de la tarea
+     */
+    public static <T> T ejecutar(Duration presupuesto, Supplier<T> tarea) {
+        return ejecutarHasta(System.nanoTime() + presupuesto.toNanos(), tarea);
+    }
+
+    /**
+     * @param tarea Tarea que se ejecutara en otro hilo
+     * @return tarea que se ejecuta con el presupuesto del hilo actual
+     */
+    public static <T> Supplier<T> propagar(Supplier<T> tarea) {
+        Long limite = LIMITE.get();
+        return limite == null ? tarea : () -> ejecutarHasta(limite, tarea);
+    }
+
+    /**
+     * @return milisegundos restantes del presupuesto, Long.MAX_VALUE si no hay presupuesto
+     */
+    public static long restanteMillis() {
+        Long limite = LIMITE.get();
+        return limite == null ? Long.MAX_VALUE : (limite - System.nanoTime()) / 1_000_000;
+    }
+
+    /**
+     * @param destino Servicio que se va a consultar, para el mensaje de error
+     * @throws PresupuestoAgotadoException si no queda presupuesto
+     */
+    public static void verificar(String destino) {
+        if (restanteMillis() <= 0) {
+            throw new PresupuestoAgotadoException("Presupuesto de latencia agotado antes de consultar " + destino);
+        }
+    }
+
+    private static <T> T ejecutarHasta(long limite, Supplier<T> tarea) {
+        Long anterior = LIMITE.get();
+        LIMITE.set(anterior == null || limite - anterior < 0 ? limite : anterior);
+        try {
+            return tarea.get();
+        } finally {
+            if (anterior == null) {
+                LIMITE.remove();
+            } else {
+                LIMITE.set(anterior);
+            }
+        }
+    }
+
+    public static class PresupuestoAgotadoException extends ResourceAccessException {
+        public PresupuestoAgotadoException(String mensaje) {
+            super(mensaje);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package tingeso.planillaservice.service;
+
+import tingeso.planillaservice.entity.Planilla;
+
+import java.util.List;
+
+/**
+ * Recibe el avance de un calculo de planillas y permite cancelarlo.
+ * Los metodos pueden llamarse desde varios hilos a la vez.
+ */
+public interface ProgresoCalculo {
+    ProgresoCalculo NINGUNO = new ProgresoCalculo() {};
+
+    default void iniciado(int totalProveedores) {
+    }
+
+    default void proveedorCalculado(String codigoProveedor, boolean recalculado) {
+    }
+
+    default void proveedorFallido(String codigoProveedor, Exception error) {
+    }
+
+    /**
+     * Se llama dentro de la transaccion que guarda las planillas, antes de confirmarla
+     * @param planillas Planillas recalculadas que se estan guardando
+     */
+    default void planillasGuardadas(List<Planilla> planillas) {
+    }
+
+    /**
+     * @return false si el proveedor ya se calculo antes en esta ejecucion y no debe calcularse
+     */
+    default boolean pendiente(String codigoProveedor) {
+        return true;
+    }
+
+    /**
+     * @return true si los proveedores pendientes no deben calcularse
+     */
+    default boolean cancelado() {
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+package tingeso.planillaservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tingeso.planillaservice.model.Proveedor;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cache acotada y con expiracion de los datos de proveedor.
+ * Las consultas simultaneas de un mismo codigo no encontrado se resuelven con una sola llamada.
+ */
+@Component
+public class ProveedorCache {
+    private final Cache<String, Proveedor> proveedores;
+
+    public ProveedorCache(MeterRegistry meterRegistry,
+                          @Value("${planilla.cache.proveedores.tamano-maximo:10000}") long tamanoMaximo,
+                          @Value("${planilla.cache.proveedores.ttl:12h}") Duration ttl) {
+        proveedores = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, proveedores, "proveedores");
+    }
+
+    /**
+     * Obtiene un proveedor de la cache, o lo consulta si no esta
+     * @param codigoProveedor Codigo del proveedor
+     * @param consulta Consulta remota del proveedor
+     * @return proveedor, null si la consulta no lo encontro
+     */
+    public Proveedor get(String codigoProveedor, Function<String, Proveedor> consulta) {
+        return proveedores.get(codigoProveedor, consulta);
+    }
+
+    /**
+     * @param codigoProveedor Codigo del proveedor
+     * @return proveedor en cache, null si no esta
+     */
+    public Proveedor getIfPresent(String codigoProveedor) {
+        return proveedores.getIfPresent(codigoProveedor);
+    }
+
+    public void put(String codigoProveedor, Proveedor proveedor) {
+        proveedores.put(codigoProveedor, proveedor);
+    }
+
+    public void invalidar(String codigoProveedor) {
+        proveedores.invalidate(codigoProveedor);
+    }
+
+    public void invalidarTodo() {
+        proveedores.invalidateAll();
+    }
+
+    /**
+     * @return tamano y estadisticas de la cache
+     */
+    public Map<String, Object> estadisticas() {
+        CacheStats stats = proveedores.stats();
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("tamano", proveedores.estimatedSize());
+        estadisticas.put("aciertos", stats.hitCount());
+        estadisticas.put("fallos", stats.missCount());
+        estadisticas.put("tasaAciertos", stats.hitRate());
+        estadisticas.put("desalojos", stats.evictionCount());
+        estadisticas.put("cargasFallidas", stats.loadFailureCount());
+        return estadisticas;
+    }
+}
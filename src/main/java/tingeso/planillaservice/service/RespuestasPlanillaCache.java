@@ -0,0 +1,135 @@
+package tingeso.planillaservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import tingeso.planillaservice.model.InstantaneaPlanilla;
+import tingeso.planillaservice.model.PlanillasPublicadas;
+import tingeso.planillaservice.model.RespuestaSerializada;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respuestas de GET /planilla?quincena= ya serializadas, por quincena y version. El ETag depende solo de la
+ * quincena y la version, asi que una solicitud con If-None-Match vigente se responde sin leer planillas.
+ * Las entradas se reconstruyen cuando se publica una version nueva de su quincena. La cache esta acotada
+ * en bytes, no guarda respuestas mayores a tamano-maximo-entrada y sus valores son referencias suaves,
+ * que el recolector libera si falta memoria.
+ * <p>
+ * El peso de una entrada es el JSON mas el gzip, unos 1000 bytes por planilla (800 de JSON y 170 comprimidos).
+ * Las instantaneas de CoordinadorCalculo de las que se serializa no cuentan en ese peso: son hasta
+ * planilla.instantaneas.max-quincenas listas de planillas, unos 400 bytes por planilla. En memoria quedan
+ * a lo mas tamano-maximo mas max-quincenas * planillas por quincena * 400 bytes; con 4 quincenas de
+ * 100000 planillas, 256MB mas unos 160MB.
+ */
+@Component
+public class RespuestasPlanillaCache {
+    private final Logger logg = LoggerFactory.getLogger(RespuestasPlanillaCache.class);
+
+    @Autowired
+    CoordinadorCalculo coordinadorCalculo;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private final Cache<String, RespuestaSerializada> respuestas;
+    private final long tamanoMaximoEntrada;
+    private final boolean gzip;
+
+    public RespuestasPlanillaCache(MeterRegistry meterRegistry,
+                                   @Value("${planilla.respuestas.tamano-maximo:256MB}") DataSize tamanoMaximo,
+                                   @Value("${planilla.respuestas.tamano-maximo-entrada:64MB}") DataSize tamanoMaximoEntrada,
+                                   @Value("${planilla.respuestas.gzip:true}") boolean gzip) {
+        this.tamanoMaximoEntrada = tamanoMaximoEntrada.toBytes();
+        this.gzip = gzip;
+        respuestas = Caffeine.newBuilder()
+                .maximumWeight(tamanoMaximo.toBytes())
+                .weigher((String quincena, RespuestaSerializada respuesta) -> respuesta.getPeso())
+                .softValues()
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, respuestas, "respuestas-planilla");
+    }
+
+    /**
+     * @param quincena Quincena de las planillas
+     * @param version Version publicada
+     * @return ETag de la respuesta de la quincena en esa version
+     */
+    public static String etag(String quincena, long version) {
+        return "W/\"" + quincena.replace('/', '-') + "." + version + "\"";
+    }
+
+    /**
+     * @param quincena Quincena de las planillas
+     * @return ETag de la ultima version publicada de la quincena
+     */
+    public String etagVigente(String quincena) {
+        return etag(quincena, coordinadorCalculo.getVersion(quincena));
+    }
+
+    /**
+     * @param quincena Quincena de las planillas
+     * @return respuesta de la ultima version publicada, serializada ahora si no estaba en la cache
+     */
+    public RespuestaSerializada get(String quincena) {
+        RespuestaSerializada respuesta = respuestas.getIfPresent(quincena);
+        if (respuesta != null && respuesta.getVersion() == coordinadorCalculo.getVersion(quincena)) {
+            return respuesta;
+        }
+        return construir(quincena);
+    }
+
+    /**
+     * Reconstruye las respuestas en cache de las quincenas publicadas
+     */
+    @EventListener
+    public void publicadas(PlanillasPublicadas evento) {
+        for (String quincena : evento.getQuincenas()) {
+            if (respuestas.getIfPresent(quincena) != null) {
+                construir(quincena);
+            }
+        }
+    }
+
+    private RespuestaSerializada construir(String quincena) {
+        InstantaneaPlanilla instantanea = coordinadorCalculo.getInstantanea(quincena);
+        RespuestaSerializada respuesta;
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(instantanea.getPlanillas());
+            respuesta = new RespuestaSerializada(quincena, instantanea.getVersion(),
+                    etag(quincena, instantanea.getVersion()), instantanea.getPlanillas().size(), json,
+                    gzip ? comprimir(json) : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (respuesta.getPeso() > tamanoMaximoEntrada) {
+            logg.debug("Respuesta de {} de {} bytes, no se guarda en cache", quincena, respuesta.getPeso());
+            respuestas.invalidate(quincena);
+            return respuesta;
+        }
+        // Si otra solicitud guardo una version igual o mas nueva mientras se serializaba, se conserva esa
+        return respuestas.asMap().merge(quincena, respuesta,
+                (anterior, nueva) -> anterior.getVersion() >= nueva.getVersion() ? anterior : nueva);
+    }
+
+    private static byte[] comprimir(byte[] json) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream comprimida = new GZIPOutputStream(salida, 8192)) {
+            comprimida.write(json);
+        }
+        return salida.toByteArray();
+    }
+}
@@ -0,0 +1,228 @@
+package tingeso.planillaservice.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import tingeso.planillaservice.entity.Planilla;
+import tingeso.planillaservice.entity.ResumenPlanilla;
+import tingeso.planillaservice.model.HistorialProveedor;
+import tingeso.planillaservice.model.HistorialProveedor.PlanillaQuincena;
+import tingeso.planillaservice.model.ResumenQuincena;
+import tingeso.planillaservice.repository.PlanillaRepository;
+import tingeso.planillaservice.repository.PlanillaRepository.TotalesPlanilla;
+import tingeso.planillaservice.repository.ResumenPlanillaRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Totales por quincena y categoria de proveedor en resumen_planilla. Cada escritura de planillas suma la
+ * diferencia con las planillas que reemplaza en la misma transaccion, asi que las consultas de totales leen
+ * unas pocas filas por quincena y nunca la tabla planilla.
+ */
+@Service
+public class ResumenesPlanillaService {
+    private static final String MONTOS = "kls_total_leche, pago_total, monto_retencion, monto_final";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ResumenPlanillaRepository resumenRepository;
+
+    @Autowired
+    PlanillaRepository planillaRepository;
+
+    /**
+     * Suma las planillas a los totales y resta las planillas guardadas que reemplazan. Se llama dentro de la
+     * transaccion que las guarda y antes de guardarlas; las planillas reemplazadas quedan bloqueadas hasta
+     * el final de la transaccion, asi que otra escritura de las mismas planillas espera y resta estas.
+     * @param planillas Planillas a guardar; las que tienen id reemplazan a la planilla guardada con ese id
+     */
+    public void registrar(List<Planilla> planillas) {
+        Map<String, Map<String, Totales>> diferencias = new TreeMap<>();
+        Map<String, List<Integer>> reemplazadas = new TreeMap<>();
+        for (Planilla planilla : planillas) {
+            totales(diferencias, planilla.getQuincena(), planilla.getCategoria()).sumar(1, planilla.getKlsTotalLeche(),
+                    planilla.getPagoTotal(), planilla.getMontoRetencion(), planilla.getMontoFinal());
+            if (planilla.getId() != null) {
+                reemplazadas.computeIfAbsent(planilla.getQuincena(), q -> new ArrayList<>()).add(planilla.getId());
+            }
+        }
+        reemplazadas.forEach((quincena, ids) -> {
+            Collections.sort(ids);
+            String parametros = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
+            List<Object> argumentos = new ArrayList<>(ids.size() + 1);
+            argumentos.add(quincena);
+            argumentos.addAll(ids);
+            jdbcTemplate.query("select categoria, " + MONTOS + " from planilla where quincena = ? and id in ("
+                    + parametros + ") order by id for update", (ResultSet rs) -> {
+                restar(totales(diferencias, quincena, rs.getString(1)), rs);
+            }, argumentos.toArray());
+        });
+        aplicar(diferencias, LocalDateTime.now());
+    }
+
+    /**
+     * Reemplaza los totales de la quincena por los de las planillas de la tabla, dentro de la transaccion
+     * que cambia la tabla por las planillas guardadas de la quincena
+     * @param quincena Quincena reemplazada
+     * @param tabla Tabla con todas las planillas nuevas de la quincena
+     */
+    public void reconstruir(String quincena, String tabla) {
+        Map<String, Map<String, Totales>> totales = new TreeMap<>();
+        jdbcTemplate.query("select categoria, " + MONTOS + " from " + tabla, (ResultSet rs) -> {
+            totales(totales, quincena, rs.getString(1)).sumar(1, rs.getDouble(2), rs.getDouble(3), rs.getDouble(4),
+                    rs.getDouble(5));
+        });
+        eliminar(quincena);
+        aplicar(totales, LocalDateTime.now());
+    }
+
+    /**
+     * @param quincena Quincena cuyas planillas se eliminaron
+     */
+    public void eliminar(String quincena) {
+        jdbcTemplate.update("delete from resumen_planilla where quincena = ?", quincena);
+    }
+
+    /**
+     * Elimina los totales de todas las quincenas
+     */
+    public void vaciar() {
+        jdbcTemplate.update("delete from resumen_planilla");
+    }
+
+    /**
+     * @param quincena Quincena con formato "YYYY/MM/Qn"
+     * @return totales de la quincena, vacio si no tiene planillas guardadas
+     */
+    public Optional<ResumenQuincena> getResumen(String quincena) {
+        List<ResumenQuincena> resumenes = agrupar(resumenRepository.findByQuincenaOrderByCategoriaAsc(quincena));
+        return resumenes.stream().findFirst();
+    }
+
+    /**
+     * @param desde Primera quincena, incluida
+     * @param hasta Ultima quincena, incluida
+     * @return totales de las quincenas del rango con planillas guardadas, en orden
+     */
+    public List<ResumenQuincena> getResumenes(String desde, String hasta) {
+        return agrupar(resumenRepository.findByQuincenaBetweenOrderByQuincenaAscCategoriaAsc(desde, hasta));
+    }
+
+    /**
+     * @param codigoProveedor Codigo del proveedor
+     * @return planillas del proveedor en todas las quincenas, vacio si no tiene planillas guardadas
+     */
+    public Optional<HistorialProveedor> getHistorial(String codigoProveedor) {
+        List<TotalesPlanilla> planillas = planillaRepository.findTotalesByCodigoProveedorOrderByQuincenaAsc(codigoProveedor);
+        if (planillas.isEmpty()) {
+            return Optional.empty();
+        }
+        Totales totales = new Totales();
+        List<PlanillaQuincena> historial = new ArrayList<>(planillas.size());
+        for (TotalesPlanilla planilla : planillas) {
+            totales.sumar(1, planilla.getKlsTotalLeche(), planilla.getPagoTotal(), planilla.getMontoRetencion(),
+                    planilla.getMontoFinal());
+            historial.add(new PlanillaQuincena(planilla.getQuincena(), planilla.getCategoria(),
+                    monto(planilla.getKlsTotalLeche()), monto(planilla.getPagoTotal()),
+                    monto(planilla.getMontoRetencion()), monto(planilla.getMontoFinal())));
+        }
+        String nombre = planillas.get(planillas.size() - 1).getNombreProveedor();
+        return Optional.of(new HistorialProveedor(codigoProveedor, nombre, totales.proveedores, totales.klsTotalLeche,
+                totales.pagoTotal, totales.montoRetencion, totales.montoFinal, historial));
+    }
+
+    private static List<ResumenQuincena> agrupar(List<ResumenPlanilla> filas) {
+        Map<String, ResumenQuincena> resumenes = new LinkedHashMap<>();
+        for (ResumenPlanilla fila : filas) {
+            if (fila.getProveedores() == 0) {
+                continue;
+            }
+            ResumenQuincena resumen = resumenes.computeIfAbsent(fila.getQuincena(), q -> new ResumenQuincena(q, 0,
+                    BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, fila.getActualizado(),
+                    new ArrayList<>()));
+            resumen.setProveedores(resumen.getProveedores() + fila.getProveedores());
+            resumen.setKlsTotalLeche(resumen.getKlsTotalLeche().add(fila.getKlsTotalLeche()));
+            resumen.setPagoTotal(resumen.getPagoTotal().add(fila.getPagoTotal()));
+            resumen.setMontoRetencion(resumen.getMontoRetencion().add(fila.getMontoRetencion()));
+            resumen.setMontoFinal(resumen.getMontoFinal().add(fila.getMontoFinal()));
+            if (fila.getActualizado() != null && (resumen.getActualizado() == null
+                    || fila.getActualizado().isAfter(resumen.getActualizado()))) {
+                resumen.setActualizado(fila.getActualizado());
+            }
+            resumen.getCategorias().add(new ResumenQuincena.Categoria(fila.getCategoria(), fila.getProveedores(),
+                    fila.getKlsTotalLeche(), fila.getPagoTotal(), fila.getMontoRetencion(), fila.getMontoFinal()));
+        }
+        return new ArrayList<>(resumenes.values());
+    }
+
+    /**
+     * Crea las filas que faltan y suma las diferencias, en orden de quincena y categoria para que dos
+     * escrituras simultaneas bloqueen las filas en el mismo orden
+     */
+    private void aplicar(Map<String, Map<String, Totales>> diferencias, LocalDateTime ahora) {
+        List<Object[]> nuevas = new ArrayList<>();
+        List<Object[]> sumas = new ArrayList<>();
+        Timestamp actualizado = Timestamp.valueOf(ahora);
+        diferencias.forEach((quincena, categorias) -> categorias.forEach((categoria, totales) -> {
+            nuevas.add(new Object[]{quincena, categoria, actualizado});
+            sumas.add(new Object[]{totales.proveedores, totales.klsTotalLeche, totales.pagoTotal,
+                    totales.montoRetencion, totales.montoFinal, actualizado, quincena, categoria});
+        }));
+        if (sumas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("insert into resumen_planilla (quincena, categoria, proveedores, " + MONTOS
+                + ", actualizado) values (?, ?, 0, 0, 0, 0, 0, ?) on conflict do nothing", nuevas);
+        jdbcTemplate.batchUpdate("update resumen_planilla set proveedores = proveedores + ?, "
+                + "kls_total_leche = kls_total_leche + ?, pago_total = pago_total + ?, "
+                + "monto_retencion = monto_retencion + ?, monto_final = monto_final + ?, actualizado = ? "
+                + "where quincena = ? and categoria = ?", sumas);
+    }
+
+    private static Totales totales(Map<String, Map<String, Totales>> totales, String quincena, String categoria) {
+        return totales.computeIfAbsent(quincena, q -> new TreeMap<>())
+                .computeIfAbsent(categoria == null ? "" : categoria, c -> new Totales());
+    }
+
+    private static void restar(Totales totales, ResultSet rs) throws SQLException {
+        totales.sumar(-1, -rs.getDouble(2), -rs.getDouble(3), -rs.getDouble(4), -rs.getDouble(5));
+    }
+
+    /**
+     * Montos con 4 decimales: sumar y restar la misma planilla se anula exactamente
+     */
+    static BigDecimal monto(double valor) {
+        return BigDecimal.valueOf(valor).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    private static class Totales {
+        private int proveedores;
+        private BigDecimal klsTotalLeche = BigDecimal.ZERO;
+        private BigDecimal pagoTotal = BigDecimal.ZERO;
+        private BigDecimal montoRetencion = BigDecimal.ZERO;
+        private BigDecimal montoFinal = BigDecimal.ZERO;
+
+        void sumar(int proveedores, double klsTotalLeche, double pagoTotal, double montoRetencion, double montoFinal) {
+            this.proveedores += proveedores;
+            this.klsTotalLeche = this.klsTotalLeche.add(monto(klsTotalLeche));
+            this.pagoTotal = this.pagoTotal.add(monto(pagoTotal));
+            this.montoRetencion = this.montoRetencion.add(monto(montoRetencion));
+            this.montoFinal = this.montoFinal.add(monto(montoFinal));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package tingeso.planillaservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import tingeso.planillaservice.config.TarifasProperties;
+import tingeso.planillaservice.model.TablaTarifas;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantiene la tabla de tarifas vigente, compilada desde planilla.tarifas.
+ * Al refrescar la configuracion (por ejemplo con /actuator/refresh despues de cambiar el
+ * config server) se compila una tabla nueva y se reemplaza de forma atomica: los calculos
+ * en curso terminan la planilla con la tabla que ya tomaron.
+ */
+@Service
+public class TarifasService {
+    private static final String PREFIJO = "planilla.tarifas";
+    private final Logger logg = LoggerFactory.getLogger(TarifasService.class);
+
+    private final AtomicReference<TablaTarifas> tabla =
+            new AtomicReference<>(TablaTarifas.compilar(new TarifasProperties()));
+
+    @Autowired
+    Environment environment;
+
+    @PostConstruct
+    public void iniciar() {
+        tabla.set(TablaTarifas.compilar(leerTarifas()));
+        logg.info("Tarifas cargadas, version {}", tabla.get().getVersion());
+    }
+
+    /**
+     * @return tabla de tarifas vigente
+     */
+    public TablaTarifas getTabla() {
+        return tabla.get();
+    }
+
+    @EventListener(EnvironmentChangeEvent.class)
+    public void recargar() {
+        TablaTarifas nueva;
+        try {
+            nueva = TablaTarifas.compilar(leerTarifas());
+        } catch (RuntimeException e) {
+            logg.error("Tarifas invalidas, se mantiene la version {}: {}", tabla.get().getVersion(), e.getMessage());
+            return;
+        }
+        TablaTarifas anterior = tabla.getAndSet(nueva);
+        if (!anterior.getVersion().equals(nueva.getVersion())) {
+            logg.info("Tarifas actualizadas de la version {} a la {}", anterior.getVersion(), nueva.getVersion());
+        }
+    }
+
+    private TarifasProperties leerTarifas() {
+        return Binder.get(environment).bind(PREFIJO, TarifasProperties.class).orElseGet(TarifasProperties::new);
+    }
+}
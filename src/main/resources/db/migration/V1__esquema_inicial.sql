@@ -0,0 +1,217 @@
+-- Esquema inicial. Una base creada antes por Hibernate conserva sus tablas: las ejecuciones, sus avances y
+-- la cuarentena se mantienen para que una ejecucion interrumpida se pueda retomar despues de actualizar, y
+-- las planillas de una tabla planilla sin particionar se mueven a la tabla particionada.
+do $$
+begin
+    if to_regclass('planilla') is not null
+            and not exists (select 1 from pg_partitioned_table where partrelid = to_regclass('planilla')) then
+        alter table planilla rename to planilla_legado;
+        drop index if exists idx_planilla_codigo_proveedor;
+        drop index if exists idx_planilla_quincena_monto_final;
+    end if;
+end
+$$;
+
+create sequence if not exists planilla_seq start 1 increment 50;
+
+-- Planillas particionadas por quincena: cada quincena es una tabla propia (planilla_2023_05_q2), que se
+-- crea al guardar su primera planilla, se reemplaza completa y se elimina sin recorrer las demas.
+-- La clave primaria y las restricciones unicas de una tabla particionada deben incluir la quincena.
+create table if not exists planilla (
+    id int4 not null,
+    quincena varchar(255) not null,
+    codigo_proveedor varchar(255),
+    nombre_proveedor varchar(255),
+    kls_total_leche float8 not null,
+    dias_envio_leche float8 not null,
+    promedio_kilos_leche_diario float8 not null,
+    porcentaje_frecuencia_diaria_envio_leche float8 not null,
+    porcentaje_grasa int4 not null,
+    porcentaje_variacion_grasa float8 not null,
+    porcentaje_solido_total int4 not null,
+    porcentaje_variacion_solido_total float8 not null,
+    pago_por_leche float8 not null,
+    pago_por_grasa float8 not null,
+    pago_por_solidos_totales float8 not null,
+    bonificacion_por_frecuencia float8 not null,
+    dcto_variacion_leche float8 not null,
+    dcto_variacion_grasa float8 not null,
+    dcto_variacionst float8 not null,
+    pago_total float8 not null,
+    monto_retencion float8 not null,
+    monto_final float8,
+    version_tarifas varchar(255),
+    huella varchar(255),
+    constraint pk_planilla primary key (id, quincena),
+    constraint uk_planilla_quincena_codigo_proveedor unique (quincena, codigo_proveedor)
+) partition by list (quincena);
+
+create index if not exists idx_planilla_codigo_proveedor on planilla (codigo_proveedor, id);
+create index if not exists idx_planilla_quincena_monto_final on planilla (quincena, monto_final);
+
+create table if not exists version_planilla (
+    quincena varchar(255) not null,
+    version int8 not null,
+    actualizado timestamp,
+    constraint pk_version_planilla primary key (quincena)
+);
+
+create table if not exists ejecucion_planilla (
+    id int4 generated by default as identity,
+    quincena varchar(255),
+    quincena_hasta varchar(255),
+    estado varchar(255),
+    total_proveedores int4 not null,
+    procesados int4 not null,
+    recalculados int4 not null,
+    sin_cambios int4 not null,
+    fallidos int4 not null,
+    inicio timestamp,
+    actualizado timestamp,
+    fin timestamp,
+    instancia varchar(255),
+    distribuida boolean not null,
+    reanudaciones int4 not null,
+    error varchar(2000),
+    constraint pk_ejecucion_planilla primary key (id)
+);
+
+-- Columnas que agregaron versiones posteriores a la que creo la tabla
+alter table ejecucion_planilla add column if not exists quincena_hasta varchar(255);
+alter table ejecucion_planilla add column if not exists distribuida boolean not null default false;
+alter table ejecucion_planilla add column if not exists reanudaciones int4 not null default 0;
+
+create table if not exists particion_planilla (
+    id int4 generated by default as identity,
+    ejecucion_id int4,
+    numero int4 not null,
+    quincena varchar(255),
+    proveedores text,
+    cantidad int4 not null,
+    estado varchar(255),
+    instancia varchar(255),
+    intentos int4 not null,
+    vencimiento timestamp,
+    recalculados int4 not null,
+    sin_cambios int4 not null,
+    fallidos int4 not null,
+    constraint pk_particion_planilla primary key (id),
+    constraint uk_particion_planilla_ejecucion_numero unique (ejecucion_id, numero)
+);
+
+create index if not exists idx_particion_planilla_ejecucion_estado on particion_planilla (ejecucion_id, estado);
+
+create table if not exists avance_ejecucion (
+    id int4 generated by default as identity,
+    ejecucion_id int4,
+    proveedores text,
+    recalculados boolean not null,
+    creado timestamp,
+    constraint pk_avance_ejecucion primary key (id)
+);
+
+create index if not exists idx_avance_ejecucion_ejecucion on avance_ejecucion (ejecucion_id);
+
+create table if not exists cuarentena_proveedor (
+    id int4 generated by default as identity,
+    ejecucion_id int4,
+    quincena varchar(255),
+    codigo_proveedor varchar(255),
+    error varchar(2000),
+    fecha timestamp,
+    constraint pk_cuarentena_proveedor primary key (id)
+);
+
+create index if not exists idx_cuarentena_proveedor_ejecucion on cuarentena_proveedor (ejecucion_id);
+
+-- Planillas de la tabla sin particionar: cada quincena con formato "YYYY/MM/Qn" (los meses de un digito se
+-- completan) pasa a su particion. Hibernate guardaba los montos y porcentajes como texto: se convierten
+-- columna por columna, y las filas con un valor obligatorio vacio o que no es un numero quedan en
+-- planilla_legado.
+create function pg_temp.planilla_float8(valor text) returns float8 language plpgsql immutable as $$
+declare
+    numero float8;
+begin
+    numero := cast(nullif(trim(valor), '') as float8);
+    if numero in ('NaN', 'Infinity', '-Infinity') then
+        return null;
+    end if;
+    return numero;
+exception when others then
+    return null;
+end
+$$;
+
+-- Un porcentaje "30.0" es 30; "30.5" no es un entero y no se redondea
+create function pg_temp.planilla_int4(valor text) returns int4 language plpgsql immutable as $$
+declare
+    numero numeric;
+begin
+    numero := cast(nullif(trim(valor), '') as numeric);
+    if numero <> trunc(numero) then
+        return null;
+    end if;
+    return cast(numero as int4);
+exception when others then
+    return null;
+end
+$$;
+
+do $$
+declare
+    q text;
+    columna record;
+    destino text;
+    origen text;
+    condiciones text := 'quincena ~ ''^\d{4}/\d{2}/Q[12]$''';
+    valor text;
+begin
+    if to_regclass('planilla_legado') is null then
+        return;
+    end if;
+    update planilla_legado set quincena = regexp_replace(quincena, '^(\d{4})/(\d)/', '\1/0\2/')
+    where quincena ~ '^\d{4}/\d/Q[12]$';
+    for q in select distinct quincena from planilla_legado where quincena ~ '^\d{4}/\d{2}/Q[12]$' loop
+        execute format('create table if not exists %I partition of planilla for values in (%L)',
+                format('planilla_%s_%s_q%s', substr(q, 1, 4), substr(q, 6, 2), substr(q, 10, 1)), q);
+    end loop;
+    -- Solo las columnas que tienen las dos tablas: las versiones anteriores no tenian todas
+    for columna in
+        select n.column_name, n.data_type, n.is_nullable = 'NO' as obligatoria,
+               l.data_type in ('character varying', 'character', 'text') as texto
+        from information_schema.columns n
+        join information_schema.columns l on l.table_schema = n.table_schema
+                and l.table_name = 'planilla_legado' and l.column_name = n.column_name
+        where n.table_schema = current_schema() and n.table_name = 'planilla'
+        order by n.ordinal_position
+    loop
+        if columna.texto and columna.data_type in ('double precision', 'integer') then
+            valor := format('pg_temp.planilla_%s(%I)',
+                    case columna.data_type when 'integer' then 'int4' else 'float8' end, columna.column_name);
+            if columna.obligatoria then
+                condiciones := condiciones || format(' and %s is not null', valor);
+            else
+                condiciones := condiciones || format(' and (nullif(trim(%I), '''') is null or %s is not null)',
+                        columna.column_name, valor);
+            end if;
+        else
+            valor := quote_ident(columna.column_name);
+            if columna.obligatoria then
+                condiciones := condiciones || format(' and %I is not null', columna.column_name);
+            end if;
+        end if;
+        destino := concat_ws(', ', destino, quote_ident(columna.column_name));
+        origen := concat_ws(', ', origen, valor);
+    end loop;
+    execute format('insert into planilla (%s) select %s from planilla_legado where %s on conflict do nothing',
+            destino, origen, condiciones);
+    delete from planilla_legado l using planilla p where p.id = l.id and p.quincena = l.quincena;
+    if not exists (select 1 from planilla_legado) then
+        drop table planilla_legado;
+    end if;
+    perform setval('planilla_seq', greatest((select coalesce(max(id), 0) from planilla), 1));
+end
+$$;
+
+drop function pg_temp.planilla_float8(text);
+drop function pg_temp.planilla_int4(text);
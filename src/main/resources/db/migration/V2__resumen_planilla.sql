@@ -0,0 +1,26 @@
+-- Categoria del proveedor con la que se calculo cada planilla; las particiones la reciben de planilla
+alter table planilla add column categoria varchar(255);
+
+-- Totales por quincena y categoria, actualizados con cada escritura de planillas
+create table resumen_planilla (
+    id int4 generated by default as identity,
+    quincena varchar(255) not null,
+    categoria varchar(255) not null,
+    proveedores int4 not null,
+    kls_total_leche numeric(20, 4),
+    pago_total numeric(20, 4),
+    monto_retencion numeric(20, 4),
+    monto_final numeric(20, 4),
+    actualizado timestamp,
+    constraint pk_resumen_planilla primary key (id),
+    constraint uk_resumen_planilla_quincena_categoria unique (quincena, categoria)
+);
+
+-- Las planillas ya guardadas no tienen categoria: se resumen con categoria vacia
+insert into resumen_planilla (quincena, categoria, proveedores, kls_total_leche, pago_total, monto_retencion,
+                              monto_final, actualizado)
+select quincena, '', count(*), sum(round(cast(kls_total_leche as numeric), 4)),
+       sum(round(cast(pago_total as numeric), 4)), sum(round(cast(monto_retencion as numeric), 4)),
+       sum(round(cast(coalesce(monto_final, 0) as numeric), 4)), now()
+from planilla
+group by quincena;
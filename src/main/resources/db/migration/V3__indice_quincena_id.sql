@@ -0,0 +1,5 @@
+-- Las paginas de /planilla/pagina y /planilla/stream se leen en orden de id: con la quincena filtrada el
+-- indice (quincena, id) entrega las filas ya ordenadas. El de (quincena, monto_final) no servia a esas
+-- consultas y solo encarecia las escrituras.
+drop index if exists idx_planilla_quincena_monto_final;
+create index if not exists idx_planilla_quincena_id on planilla (quincena, id);
@@ -0,0 +1,139 @@
+package tingeso.planillaservice;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MigracionesTest {
+    // Tabla que creaba Hibernate para la entidad Planilla antes de Flyway: todo texto salvo el id
+    private static final String PLANILLA_HIBERNATE = "create table planilla (id serial not null, "
+            + "bonificacion_por_frecuencia varchar(255), codigo_proveedor varchar(255), "
+            + "dcto_variacion_grasa varchar(255), dcto_variacion_leche varchar(255), dcto_variacionst varchar(255), "
+            + "dias_envio_leche varchar(255), kls_total_leche varchar(255), monto_final varchar(255), "
+            + "monto_retencion varchar(255), nombre_proveedor varchar(255), pago_por_grasa varchar(255), "
+            + "pago_por_leche varchar(255), pago_por_solidos_totales varchar(255), pago_total varchar(255), "
+            + "porcentaje_frecuencia_diaria_envio_leche varchar(255), porcentaje_grasa varchar(255), "
+            + "porcentaje_solido_total varchar(255), porcentaje_variacion_grasa varchar(255), "
+            + "porcentaje_variacion_solido_total varchar(255), promedio_kilos_leche_diario varchar(255), "
+            + "quincena varchar(255), primary key (id))";
+
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void iniciar() throws IOException {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void detener() throws IOException {
+        postgres.close();
+    }
+
+    private static DataSource esquema(String nombre) throws SQLException {
+        Connection conexion = postgres.getPostgresDatabase().getConnection();
+        conexion.createStatement().execute("create schema " + nombre);
+        conexion.createStatement().execute("set search_path to " + nombre);
+        return new SingleConnectionDataSource(conexion, true);
+    }
+
+    private static void migrar(DataSource dataSource, String esquema) {
+        Flyway.configure().dataSource(dataSource).schemas(esquema).locations("classpath:db/migration")
+                .baselineOnMigrate(true).baselineVersion("0").load().migrate();
+    }
+
+    private static void guardar(JdbcTemplate jdbc, String quincena, String codigo, String kilos, String grasa,
+                                String pagoTotal, String montoFinal) {
+        jdbc.update("insert into planilla (quincena, codigo_proveedor, nombre_proveedor, kls_total_leche, "
+                        + "dias_envio_leche, promedio_kilos_leche_diario, porcentaje_frecuencia_diaria_envio_leche, "
+                        + "porcentaje_grasa, porcentaje_solido_total, porcentaje_variacion_grasa, "
+                        + "porcentaje_variacion_solido_total, pago_por_leche, pago_por_grasa, pago_por_solidos_totales, "
+                        + "bonificacion_por_frecuencia, dcto_variacion_leche, dcto_variacion_grasa, dcto_variacionst, "
+                        + "pago_total, monto_retencion, monto_final) "
+                        + "values (?, ?, 'Proveedor ' || ?, ?, '15', '20.5', '1', ?, ' 25 ', '0', '0.0', '1000', "
+                        + "'80', '50', '0', '0', '0', '0', ?, '0', ?)",
+                quincena, codigo, codigo, kilos, grasa, pagoTotal, montoFinal);
+    }
+
+    @Test
+    void planillasDeTextoPasanALaTablaParticionada() throws SQLException {
+        DataSource dataSource = esquema("legado");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute(PLANILLA_HIBERNATE);
+        guardar(jdbc, "2023/05/Q1", "01001", "307.5", "30", "1130.0", "1.0E7");
+        guardar(jdbc, "2023/5/Q2", "01002", "1200", "30.0", "1330", null);
+        guardar(jdbc, "2023/05/Q1", "01003", "100", "31", "1500", " ");
+        guardar(jdbc, "2023/05/Q1", "01004", "", "30", "1130", "1130");
+        guardar(jdbc, "2023/05/Q1", "01005", null, "30", "1130", "1130");
+        guardar(jdbc, "2023/05/Q1", "01006", "100", "30.5", "1130", "1130");
+        guardar(jdbc, "2023/05/Q1", "01007", "100", "30", "abc", "1130");
+        guardar(jdbc, "2023/05/Q1", "01008", "100", "30", "NaN", "1130");
+        guardar(jdbc, "2023/05/Q1", "01009", "100", "30", "1130", "mil");
+        guardar(jdbc, "2023/05/Q1", "01010", "100", "99999999999", "1130", "1130");
+        guardar(jdbc, "mayo", "01011", "100", "30", "1130", "1130");
+
+        migrar(dataSource, "legado");
+
+        List<Map<String, Object>> movidas = jdbc.queryForList("select id, quincena, codigo_proveedor, "
+                + "kls_total_leche, porcentaje_grasa, porcentaje_solido_total, pago_total, monto_final "
+                + "from planilla order by codigo_proveedor");
+        assertEquals(3, movidas.size());
+        assertEquals(Map.of("id", 1, "quincena", "2023/05/Q1", "codigo_proveedor", "01001",
+                "kls_total_leche", 307.5, "porcentaje_grasa", 30, "porcentaje_solido_total", 25,
+                "pago_total", 1130.0, "monto_final", 1.0E7), movidas.get(0));
+        assertEquals("2023/05/Q2", movidas.get(1).get("quincena"));
+        assertEquals(30, movidas.get(1).get("porcentaje_grasa"));
+        assertNull(movidas.get(1).get("monto_final"));
+        assertEquals("01003", movidas.get(2).get("codigo_proveedor"));
+        assertNull(movidas.get(2).get("monto_final"));
+        assertEquals(1, jdbc.queryForObject(
+                "select count(*) from planilla_2023_05_q2 where codigo_proveedor = '01002'", Integer.class));
+
+        // Las que no se pudieron convertir quedan como estaban
+        assertEquals(List.of("01004", "01005", "01006", "01007", "01008", "01009", "01010", "01011"),
+                jdbc.queryForList("select codigo_proveedor from planilla_legado order by codigo_proveedor",
+                        String.class));
+        assertEquals("abc", jdbc.queryForObject(
+                "select pago_total from planilla_legado where codigo_proveedor = '01007'", String.class));
+        assertTrue(jdbc.queryForObject("select last_value from planilla_seq", Long.class) >= 3);
+    }
+
+    @Test
+    void sinFilasPendientesSeEliminaLaTablaLegado() throws SQLException {
+        DataSource dataSource = esquema("completo");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute(PLANILLA_HIBERNATE);
+        guardar(jdbc, "2023/05/Q1", "01001", "307.5", "30", "1130", "1130");
+
+        migrar(dataSource, "completo");
+        migrar(dataSource, "completo");
+
+        assertEquals(1, jdbc.queryForObject("select count(*) from planilla", Integer.class));
+        assertNull(jdbc.queryForObject("select to_regclass('planilla_legado')::text", String.class));
+    }
+
+    @Test
+    void baseNuevaNoTieneTablaLegado() throws SQLException {
+        DataSource dataSource = esquema("nueva");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        migrar(dataSource, "nueva");
+
+        assertEquals(0, jdbc.queryForObject("select count(*) from planilla", Integer.class));
+        assertNull(jdbc.queryForObject("select to_regclass('planilla_legado')::text", String.class));
+    }
+}
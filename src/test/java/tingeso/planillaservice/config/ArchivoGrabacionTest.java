@@ -0,0 +1,158 @@
+package tingeso.planillaservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ArchivoGrabacionTest {
+    private static final String A = "GET http://proveedor-service/proveedor/10001";
+    private static final String B = "GET http://proveedor-service/proveedor/10002";
+    private static final String C = "GET http://acopio-service/acopio/byquincena/?quincena=2023/05/Q2";
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void leeLoQueSeGrabo() throws IOException {
+        Path archivo = directorio.resolve("sub/grabacion.bin");
+        Map<String, String> cuerpos = new HashMap<>();
+        try (ArchivoGrabacion.Escritor escritor = ArchivoGrabacion.escribir(archivo)) {
+            for (int i = 0; i < 500; i++) {
+                String clave = "GET http://acopio-service/acopio/byquincenaproveedor/?proveedor=" + i;
+                cuerpos.put(clave, "[{\"klsLeche\":" + i + "}]");
+                escritor.grabar(clave, 200, "application/json", cuerpos.get(clave).getBytes(StandardCharsets.UTF_8));
+            }
+            escritor.grabar("GET http://proveedor-service/proveedor/ñandú", 404, null, new byte[0]);
+        }
+
+        ArchivoGrabacion grabacion = ArchivoGrabacion.abrir(archivo);
+        assertEquals(501, grabacion.getEntradas());
+        for (Map.Entry<String, String> entrada : cuerpos.entrySet()) {
+            ClientHttpResponse respuesta = grabacion.buscar(entrada.getKey());
+            assertEquals(200, respuesta.getRawStatusCode());
+            assertEquals("application/json", respuesta.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+            assertEquals(entrada.getValue(), cuerpo(respuesta));
+            // El cuerpo se puede leer otra vez
+            assertEquals(entrada.getValue(), cuerpo(respuesta));
+        }
+        ClientHttpResponse noEncontrado = grabacion.buscar("GET http://proveedor-service/proveedor/ñandú");
+        assertEquals(404, noEncontrado.getRawStatusCode());
+        assertNull(noEncontrado.getHeaders().getContentType());
+        assertEquals("", cuerpo(noEncontrado));
+        assertNull(grabacion.buscar("GET http://proveedor-service/proveedor/99999"));
+    }
+
+    @Test
+    void guardarVariasVecesConservaTodoYValeLaUltimaGrabacion() throws IOException {
+        Path archivo = directorio.resolve("grabacion.bin");
+        try (ArchivoGrabacion.Escritor escritor = ArchivoGrabacion.escribir(archivo)) {
+            escritor.grabar(A, 200, "application/json", bytes("uno"));
+            escritor.guardar();
+            assertEquals("uno", cuerpo(ArchivoGrabacion.abrir(archivo).buscar(A)));
+            escritor.grabar(B, 200, "application/json", bytes("dos"));
+            escritor.grabar(A, 500, "text/plain", bytes("tres"));
+            assertEquals(2, escritor.getEntradas());
+        }
+        ArchivoGrabacion grabacion = ArchivoGrabacion.abrir(archivo);
+        assertEquals(2, grabacion.getEntradas());
+        assertEquals("tres", cuerpo(grabacion.buscar(A)));
+        assertEquals(500, grabacion.buscar(A).getRawStatusCode());
+        assertEquals("dos", cuerpo(grabacion.buscar(B)));
+    }
+
+    @Test
+    void colisionesDeHashSeResuelvenComparandoLaClave() throws IOException {
+        Path archivo = grabar(A, B, C);
+        long hashA = ArchivoGrabacion.hash(bytes(A));
+        // B y C quedan con el hash de A en el indice, como si sus claves colisionaran con A
+        cambiarHashes(archivo, Map.of(ArchivoGrabacion.hash(bytes(B)), hashA, ArchivoGrabacion.hash(bytes(C)), hashA));
+
+        ArchivoGrabacion grabacion = ArchivoGrabacion.abrir(archivo);
+        assertEquals("cuerpo " + A, cuerpo(grabacion.buscar(A)));
+        assertNull(grabacion.buscar(B));
+        assertNull(grabacion.buscar(C));
+    }
+
+    @Test
+    void colisionSinLaClaveBuscadaNoDevuelveOtraRespuesta() throws IOException {
+        Path archivo = grabar(B, C);
+        long hashA = ArchivoGrabacion.hash(bytes(A));
+        cambiarHashes(archivo, Map.of(ArchivoGrabacion.hash(bytes(B)), hashA, ArchivoGrabacion.hash(bytes(C)), hashA));
+
+        assertNull(ArchivoGrabacion.abrir(archivo).buscar(A));
+    }
+
+    @Test
+    void rechazaArchivosQueNoSonGrabaciones() throws IOException {
+        Path vacio = Files.write(directorio.resolve("vacio.bin"), new byte[0]);
+        assertThrows(IOException.class, () -> ArchivoGrabacion.abrir(vacio));
+        Path otro = Files.write(directorio.resolve("otro.bin"), new byte[64]);
+        assertThrows(IOException.class, () -> ArchivoGrabacion.abrir(otro));
+
+        Path incompleto = grabar(A);
+        try (FileChannel canal = FileChannel.open(incompleto, StandardOpenOption.WRITE)) {
+            canal.truncate(canal.size() - 8);
+        }
+        assertThrows(IOException.class, () -> ArchivoGrabacion.abrir(incompleto));
+    }
+
+    private Path grabar(String... claves) throws IOException {
+        Path archivo = Files.createTempFile(directorio, "grabacion", ".bin");
+        try (ArchivoGrabacion.Escritor escritor = ArchivoGrabacion.escribir(archivo)) {
+            for (String clave : claves) {
+                escritor.grabar(clave, 200, "application/json", bytes("cuerpo " + clave));
+            }
+        }
+        return archivo;
+    }
+
+    /**
+     * Reemplaza hashes del indice y lo vuelve a ordenar por hash
+     */
+    private static void cambiarHashes(Path archivo, Map<Long, Long> reemplazos) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(24);
+            canal.read(cabecera, 0);
+            long posicionIndice = cabecera.getLong(8);
+            int entradas = cabecera.getInt(16);
+            ByteBuffer indice = ByteBuffer.allocate(entradas * 16);
+            canal.read(indice, posicionIndice);
+            long[][] filas = new long[entradas][];
+            for (int i = 0; i < entradas; i++) {
+                long hash = indice.getLong(i * 16);
+                filas[i] = new long[]{reemplazos.getOrDefault(hash, hash), indice.getLong(i * 16 + 8)};
+            }
+            Arrays.sort(filas, (x, y) -> Long.compare(x[0], y[0]));
+            indice.clear();
+            for (long[] fila : filas) {
+                indice.putLong(fila[0]).putLong(fila[1]);
+            }
+            indice.flip();
+            canal.write(indice, posicionIndice);
+        }
+    }
+
+    private static String cuerpo(ClientHttpResponse respuesta) throws IOException {
+        return new String(respuesta.getBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+}
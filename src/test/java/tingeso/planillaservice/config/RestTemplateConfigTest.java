@@ -0,0 +1,35 @@
+package tingeso.planillaservice.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import tingeso.planillaservice.service.PresupuestoLatencia.PresupuestoAgotadoException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RestTemplateConfigTest {
+
+    @Test
+    void presupuestoAgotadoNoAbreElCircuito() {
+        CircuitBreaker circuito = new RestTemplateConfig()
+                .circuitosHttp(new ClienteHttpProperties(), new SimpleMeterRegistry())
+                .circuitBreaker("acopio-service");
+        for (int i = 0; i < 50; i++) {
+            assertThrows(PresupuestoAgotadoException.class, () -> circuito.executeSupplier(() -> {
+                throw new PresupuestoAgotadoException("Presupuesto agotado");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuito.getState());
+        assertEquals(0, circuito.getMetrics().getNumberOfFailedCalls());
+        assertEquals(0, circuito.getMetrics().getNumberOfSuccessfulCalls());
+
+        for (int i = 0; i < 50 && circuito.getState() == CircuitBreaker.State.CLOSED; i++) {
+            assertThrows(ResourceAccessException.class, () -> circuito.executeSupplier(() -> {
+                throw new ResourceAccessException("Connection refused");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuito.getState());
+    }
+}
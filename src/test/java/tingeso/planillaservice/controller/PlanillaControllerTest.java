@@ -0,0 +1,94 @@
+package tingeso.planillaservice.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import tingeso.planillaservice.model.FiltroPlanilla;
+import tingeso.planillaservice.model.PaginaPlanillas;
+import tingeso.planillaservice.model.RespuestaSerializada;
+import tingeso.planillaservice.service.ConsultaPlanillaService;
+import tingeso.planillaservice.service.PlanillaService;
+import tingeso.planillaservice.service.RespuestasPlanillaCache;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PlanillaControllerTest {
+    private PlanillaController controller;
+
+    @BeforeEach
+    void crear() {
+        controller = new PlanillaController();
+        controller.consultaPlanillaService = mock(ConsultaPlanillaService.class);
+        controller.respuestasCache = mock(RespuestasPlanillaCache.class);
+        controller.planillaService = mock(PlanillaService.class);
+        when(controller.consultaPlanillaService.getPagina(any(), any(), anyInt()))
+                .thenReturn(new PaginaPlanillas(List.of(), null));
+    }
+
+    @Test
+    void paginaUsaLaQuincenaCanonica() {
+        FiltroPlanilla filtro = new FiltroPlanilla("2023/5/Q1", null, null, null);
+
+        ResponseEntity<PaginaPlanillas> respuesta = controller.getPagina(filtro, null, 100);
+
+        assertEquals(HttpStatus.OK, respuesta.getStatusCode());
+        verify(controller.consultaPlanillaService).getPagina(
+                eq(new FiltroPlanilla("2023/05/Q1", null, null, null)), eq(null), eq(100));
+    }
+
+    @Test
+    void paginaYStreamRechazanQuincenasInvalidas() {
+        for (String quincena : new String[]{"2023/13/Q1", "2023/05/Q3", "mayo"}) {
+            FiltroPlanilla filtro = new FiltroPlanilla(quincena, null, null, null);
+            assertEquals(HttpStatus.BAD_REQUEST, controller.getPagina(filtro, null, 100).getStatusCode(), quincena);
+            assertEquals(HttpStatus.BAD_REQUEST, controller.getStream(filtro, "ndjson").getStatusCode(), quincena);
+        }
+        verifyNoInteractions(controller.consultaPlanillaService);
+    }
+
+    @Test
+    void paginaSinQuincenaNoLaFiltra() {
+        FiltroPlanilla filtro = new FiltroPlanilla(null, "01001", 10.0, null);
+
+        assertEquals(HttpStatus.OK, controller.getPagina(filtro, 5, 5000).getStatusCode());
+        verify(controller.consultaPlanillaService).getPagina(
+                eq(new FiltroPlanilla(null, "01001", 10.0, null)), eq(5), eq(PlanillaController.LIMITE_PAGINA));
+    }
+
+    @Test
+    void quincenaUsaLaFormaCanonicaComoClave() {
+        when(controller.respuestasCache.etagVigente("2023/05/Q1")).thenReturn("\"2023/05/Q1-3\"");
+        when(controller.respuestasCache.get("2023/05/Q1"))
+                .thenReturn(new RespuestaSerializada("2023/05/Q1", 3, "\"2023/05/Q1-3\"", 0, new byte[0], null));
+
+        ResponseEntity<?> respuesta = controller.getQuincena("2023/5/Q1", null, null, null, mock(WebRequest.class));
+
+        assertEquals(HttpStatus.NO_CONTENT, respuesta.getStatusCode());
+        verify(controller.respuestasCache).get("2023/05/Q1");
+    }
+
+    @Test
+    void quincenaInvalidaOConRangoResponde400() {
+        WebRequest solicitud = mock(WebRequest.class);
+        for (String quincena : new String[]{"2023/13/Q1", "mayo", ""}) {
+            assertEquals(HttpStatus.BAD_REQUEST,
+                    controller.getQuincena(quincena, null, null, null, solicitud).getStatusCode(), quincena);
+        }
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getQuincena("2023/05/Q1", "2023/01/Q1", "2023/12/Q2",
+                null, solicitud).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getQuincena("2023/05/Q1", "2023/01/Q1", null,
+                null, solicitud).getStatusCode());
+        verifyNoInteractions(controller.respuestasCache, controller.planillaService, solicitud);
+    }
+}
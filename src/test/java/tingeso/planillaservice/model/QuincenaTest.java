@@ -0,0 +1,95 @@
+package tingeso.planillaservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuincenaTest {
+
+    @Test
+    void leeYEscribeElFormatoDeLosServicios() {
+        Quincena quincena = Quincena.parse("2023/05/Q2");
+        assertEquals(2023, quincena.getAnio());
+        assertEquals(5, quincena.getMes());
+        assertEquals(2, quincena.getNumero());
+        assertEquals("2023/05/Q2", quincena.toString());
+        assertEquals("0999/11/Q1", Quincena.of(999, 11, 1).toString());
+    }
+
+    @Test
+    void aceptaElMesSinCeroInicialYLoCompleta() {
+        assertEquals(Quincena.parse("2023/05/Q1"), Quincena.tryParse("2023/5/Q1"));
+        assertEquals("2023/05/Q1", Quincena.tryParse("2023/5/Q1").toString());
+        assertEquals("2023/10/Q2", Quincena.tryParse("2023/10/Q2").toString());
+    }
+
+    @Test
+    void rechazaFormatosInvalidos() {
+        for (String invalida : new String[]{null, "", "2023", "2023/", "2023/05", "2023/05/", "2023/05/Q",
+                "2023/05/Q0", "2023/05/Q3", "2023/05/q1", "2023/00/Q1", "2023/13/Q1", "2023/005/Q1",
+                "20231/05/Q1", "2023-05-Q1", " 2023/05/Q1", "2023/05/Q1 ", "2023/05/Q12", "/05/Q1", "2023//Q1"}) {
+            assertNull(Quincena.tryParse(invalida), "'" + invalida + "'");
+        }
+        assertThrows(IllegalArgumentException.class, () -> Quincena.parse("2023/13/Q1"));
+        assertThrows(IllegalArgumentException.class, () -> Quincena.valueOf("x"));
+        assertThrows(IllegalArgumentException.class, () -> Quincena.of(2023, 0, 1));
+    }
+
+    @Test
+    void anteriorYSiguienteCruzanMesesYAnios() {
+        assertEquals("2023/05/Q1", Quincena.parse("2023/05/Q2").anterior().toString());
+        assertEquals("2023/04/Q2", Quincena.parse("2023/05/Q1").anterior().toString());
+        assertEquals("2022/12/Q2", Quincena.parse("2023/01/Q1").anterior().toString());
+        assertEquals("2023/01/Q1", Quincena.parse("2022/12/Q2").siguiente().toString());
+        assertEquals("2022/12/Q2", Quincena.tryParse("2023/1/Q1").anterior().toString());
+    }
+
+    @Test
+    void anteriorComoElCalculoOriginal() {
+        for (Quincena quincena : Quincena.parse("2019/01/Q1").hasta(Quincena.parse("2025/12/Q2"))) {
+            assertEquals(anteriorOriginal(quincena.toString()), quincena.anterior().toString(), quincena.toString());
+        }
+    }
+
+    @Test
+    void rangosEnOrdenCronologico() {
+        List<Quincena> rango = Quincena.parse("2022/12/Q1").hasta(Quincena.parse("2023/01/Q2"));
+        assertEquals(List.of("2022/12/Q1", "2022/12/Q2", "2023/01/Q1", "2023/01/Q2"),
+                rango.stream().map(Quincena::toString).toList());
+        assertTrue(Quincena.parse("2023/01/Q2").hasta(Quincena.parse("2023/01/Q1")).isEmpty());
+        assertTrue(Quincena.parse("2022/12/Q2").compareTo(Quincena.parse("2023/01/Q1")) < 0);
+        assertEquals(Quincena.parse("2023/05/Q1").hashCode(), Quincena.tryParse("2023/5/Q1").hashCode());
+    }
+
+    /**
+     * PlanillaService.getLastQuincena antes de Quincena
+     */
+    private static String anteriorOriginal(String quincena) {
+        String quincenaAnterior = "";
+        String anioActual = quincena.split("/")[0];
+        String mesActual = quincena.split("/")[1];
+        String qActual = quincena.split("/")[2];
+        if (qActual.equals("Q1")) {
+            if (mesActual.equals("01")) {
+                anioActual = Integer.toString(Integer.parseInt(anioActual) - 1);
+                mesActual = "12";
+            } else {
+                mesActual = Integer.toString(Integer.parseInt(mesActual));
+                if ((mesActual.length() == 1) || (mesActual.equals("10"))) {
+                    mesActual = "0" + (Integer.parseInt(mesActual) - 1);
+                } else {
+                    mesActual = Integer.toString(Integer.parseInt(mesActual) - 1);
+                }
+            }
+            quincenaAnterior = anioActual + "/" + mesActual + "/" + "Q2";
+        } else if (qActual.equals("Q2")) {
+            quincenaAnterior = anioActual + "/" + mesActual + "/" + "Q1";
+        }
+        return quincenaAnterior;
+    }
+}
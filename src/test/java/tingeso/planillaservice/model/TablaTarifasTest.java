@@ -0,0 +1,167 @@
+package tingeso.planillaservice.model;
+
+import org.junit.jupiter.api.Test;
+import tingeso.planillaservice.config.TarifasProperties;
+import tingeso.planillaservice.config.TarifasProperties.Tramo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TablaTarifasTest {
+    private static final double[] LIMITES = {0, 6, 8, 9, 12, 15, 25, 35, 40, 45, 46};
+
+    private final TablaTarifas tabla = TablaTarifas.compilar(new TarifasProperties());
+
+    @Test
+    void pagosPorGrasaYSolidosComoElCalculoOriginal() {
+        for (int valor = -5; valor <= 60; valor++) {
+            assertEquals(pagoPorGrasaOriginal(valor) * 10, tabla.pagoPorGrasa(valor, 10), "grasa " + valor);
+            assertEquals(pagoPorSolidosOriginal(valor) * 10, tabla.pagoPorSolidosTotales(valor, 10), "solidos " + valor);
+        }
+    }
+
+    @Test
+    void descuentosComoElCalculoOriginalEnLosLimites() {
+        for (double variacion : variaciones()) {
+            assertEquals(descuentoLecheOriginal(variacion), tabla.descuentoPorVariacionLeche(variacion, 100),
+                    "leche " + variacion);
+            assertEquals(descuentoGrasaOriginal(variacion), tabla.descuentoPorVariacionGrasa(variacion, 100),
+                    "grasa " + variacion);
+            assertEquals(descuentoSolidosOriginal(variacion), tabla.descuentoPorVariacionSolidosTotales(variacion, 100),
+                    "solidos " + variacion);
+        }
+    }
+
+    @Test
+    void huecosEntreTramosTienenTarifaCero() {
+        assertEquals(0, tabla.descuentoPorVariacionLeche(8.5, 100));
+        assertEquals(0, tabla.descuentoPorVariacionLeche(9, 100));
+        assertEquals(7, tabla.descuentoPorVariacionLeche(Math.nextUp(9.0), 100));
+        assertEquals(0, tabla.descuentoPorVariacionLeche(45.5, 100));
+        assertEquals(0, tabla.descuentoPorVariacionLeche(46, 100));
+        assertEquals(30, tabla.descuentoPorVariacionLeche(Math.nextUp(46.0), 100));
+        assertEquals(0, tabla.descuentoPorVariacionLeche(-0.5, 100));
+        assertEquals(0, tabla.descuentoPorVariacionLeche(-0.0, 100));
+        assertEquals(0, tabla.descuentoPorVariacionLeche(Double.NaN, 100));
+        assertEquals(0, tabla.pagoPorGrasa(-1, 10));
+    }
+
+    @Test
+    void categoriasYRetencion() {
+        assertEquals(7000, tabla.pagoPorCategoria("A", 10));
+        assertEquals(2500, tabla.pagoPorCategoria("D", 10));
+        assertEquals(0, tabla.pagoPorCategoria("Z", 10));
+        assertEquals(0, tabla.pagoPorCategoria(null, 10));
+        assertEquals(0, tabla.retencion(950000));
+        assertEquals(Math.nextUp(950000.0) * 13 / 100, tabla.retencion(Math.nextUp(950000.0)));
+    }
+
+    @Test
+    void rechazaTramosSuperpuestosOVacios() {
+        TarifasProperties superpuestos = new TarifasProperties();
+        superpuestos.setGrasa(new ArrayList<>(List.of(new Tramo(0, true, 20.0, 30), new Tramo(20, true, null, 80))));
+        assertThrows(IllegalArgumentException.class, () -> TablaTarifas.compilar(superpuestos));
+
+        TarifasProperties vacio = new TarifasProperties();
+        vacio.setSolidos(new ArrayList<>(List.of(new Tramo(5, false, 5.0, 10))));
+        assertThrows(IllegalArgumentException.class, () -> TablaTarifas.compilar(vacio));
+    }
+
+    @Test
+    void tramosDesordenadosSeOrdenan() {
+        TarifasProperties tarifas = new TarifasProperties();
+        tarifas.setGrasa(new ArrayList<>(List.of(new Tramo(46, true, null, 120), new Tramo(0, true, 20.0, 30))));
+        TablaTarifas desordenada = TablaTarifas.compilar(tarifas);
+        assertEquals(30, desordenada.pagoPorGrasa(20, 1));
+        assertEquals(0, desordenada.pagoPorGrasa(30, 1));
+        assertEquals(120, desordenada.pagoPorGrasa(46, 1));
+    }
+
+    @Test
+    void versionSegunContenido() {
+        assertEquals(tabla.getVersion(), TablaTarifas.compilar(new TarifasProperties()).getVersion());
+        TarifasProperties otra = new TarifasProperties();
+        otra.getRetencion().setPorcentaje(14);
+        assertNotEquals(tabla.getVersion(), TablaTarifas.compilar(otra).getVersion());
+        otra.setVersion("2023-06");
+        assertEquals("2023-06", TablaTarifas.compilar(otra).getVersion());
+    }
+
+    private static List<Double> variaciones() {
+        List<Double> variaciones = new ArrayList<>();
+        for (double limite : LIMITES) {
+            variaciones.add(Math.nextDown(limite));
+            variaciones.add(limite);
+            variaciones.add(Math.nextUp(limite));
+        }
+        for (double variacion = -2; variacion <= 60; variacion += 0.25) {
+            variaciones.add(variacion);
+        }
+        return variaciones;
+    }
+
+    // Calculos originales de PlanillaService, antes de las tarifas configurables
+
+    private static double pagoPorGrasaOriginal(int grasas) {
+        if (grasas >= 0 && grasas <= 20) {
+            return 30;
+        } else if (grasas >= 21 && grasas <= 45) {
+            return 80;
+        } else if (grasas >= 46) {
+            return 120;
+        }
+        return 0;
+    }
+
+    private static double pagoPorSolidosOriginal(int solidos) {
+        if (solidos >= 0 && solidos <= 7) {
+            return -130;
+        } else if (solidos >= 8 && solidos <= 18) {
+            return -90;
+        } else if (solidos >= 19 && solidos <= 35) {
+            return 95;
+        } else if (solidos >= 36) {
+            return 150;
+        }
+        return 0;
+    }
+
+    private static double descuentoLecheOriginal(double variacion) {
+        if (variacion >= 0 && variacion <= 8) {
+            return 0;
+        } else if (variacion > 9 && variacion <= 25) {
+            return 7;
+        } else if (variacion > 25 && variacion <= 45) {
+            return 15;
+        } else if (variacion > 46) {
+            return 30;
+        }
+        return 0;
+    }
+
+    private static double descuentoGrasaOriginal(double variacion) {
+        if (variacion > 15 && variacion <= 25) {
+            return 12;
+        } else if (variacion > 25 && variacion <= 40) {
+            return 20;
+        } else if (variacion > 40) {
+            return 30;
+        }
+        return 0;
+    }
+
+    private static double descuentoSolidosOriginal(double variacion) {
+        if (variacion > 6 && variacion <= 12) {
+            return 18;
+        } else if (variacion > 12 && variacion <= 35) {
+            return 27;
+        } else if (variacion > 35) {
+            return 45;
+        }
+        return 0;
+    }
+}
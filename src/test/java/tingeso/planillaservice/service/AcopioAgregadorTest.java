@@ -0,0 +1,104 @@
+package tingeso.planillaservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tingeso.planillaservice.model.Acopio;
+import tingeso.planillaservice.model.ResumenAcopios;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AcopioAgregadorTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PlanillaService planillaService = new PlanillaService();
+    private AcopioAgregador agregador;
+
+    @BeforeEach
+    void crear() {
+        agregador = new AcopioAgregador();
+        agregador.objectMapper = objectMapper;
+    }
+
+    @Test
+    void cuentaLosDiasComoElCalculoOriginal() throws IOException {
+        Random random = new Random(42);
+        for (int caso = 0; caso < 2000; caso++) {
+            List<Acopio> acopios = new ArrayList<>();
+            int cantidad = random.nextInt(12);
+            for (int i = 0; i < cantidad; i++) {
+                acopios.add(new Acopio("2023/05/" + (10 + random.nextInt(4)), random.nextBoolean() ? "M" : "T",
+                        "01001", random.nextInt(500)));
+            }
+            ResumenAcopios resumen = agregador.resumir(json(acopios));
+            String mensaje = "acopios " + acopios;
+            assertEquals(planillaService.diasEnvioLeche(acopios), resumen.getDiasEnvioLeche(), mensaje);
+            assertEquals(planillaService.klsTotalLeche(acopios), resumen.getKlsTotalLeche(), mensaje);
+            assertEquals(cantidad, resumen.getAcopios(), mensaje);
+            assertEquals(acopios.stream().filter(a -> a.getTurno().equals("M")).count(), resumen.getTurnosManana());
+            assertEquals(acopios.stream().filter(a -> a.getTurno().equals("T")).count(), resumen.getTurnosTarde());
+        }
+    }
+
+    @Test
+    void casosConocidos() throws IOException {
+        assertEquals(0, dias());
+        assertEquals(1, dias("01", "M"));
+        assertEquals(1, dias("01", "M", "01", "T"));
+        assertEquals(2, dias("01", "M", "02", "M"));
+        assertEquals(2, dias("01", "M", "01", "T", "02", "T"));
+        // El calculo original no cuenta dos acopios iguales seguidos al final; el resumen tampoco
+        assertEquals(0, dias("01", "M", "01", "M"));
+        assertEquals(2, dias("01", "M", "01", "M", "02", "T"));
+    }
+
+    @Test
+    void klsLecheNoNumericoInvalidaSoloASuProveedor() throws IOException {
+        String json = "[{\"proveedor\":\"01001\",\"fecha\":\"2023/05/01\",\"turno\":\"M\",\"klsLeche\":\"12\"},"
+                + "{\"proveedor\":\"01001\",\"fecha\":\"2023/05/02\",\"turno\":\"M\",\"klsLeche\":\"doce\"},"
+                + "{\"proveedor\":\"01002\",\"fecha\":\"2023/05/01\",\"turno\":\"T\",\"klsLeche\":\" 30 \"},"
+                + "{\"proveedor\":\"01002\",\"fecha\":\"2023/05/02\",\"turno\":\"M\",\"kls_leche\":5}]";
+        Map<String, ResumenAcopios> resumenes = agregador.resumirPorProveedor(entrada(json));
+
+        assertNotNull(resumenes.get("01001").getError());
+        ResumenAcopios valido = resumenes.get("01002");
+        assertNull(valido.getError());
+        assertEquals(35, valido.getKlsTotalLeche());
+        assertEquals(2, valido.getDiasEnvioLeche());
+    }
+
+    @Test
+    void respuestaSinArregloNoTieneAcopios() throws IOException {
+        ResumenAcopios resumen = agregador.resumir(entrada("{}"));
+        assertEquals(0, resumen.getAcopios());
+        assertEquals(0, resumen.getDiasEnvioLeche());
+    }
+
+    private double dias(String... fechasYTurnos) throws IOException {
+        List<Acopio> acopios = new ArrayList<>();
+        for (int i = 0; i < fechasYTurnos.length; i += 2) {
+            acopios.add(new Acopio("2023/05/" + fechasYTurnos[i], fechasYTurnos[i + 1], "01001", 10));
+        }
+        double dias = agregador.resumir(json(acopios)).getDiasEnvioLeche();
+        assertEquals(planillaService.diasEnvioLeche(acopios), dias);
+        return dias;
+    }
+
+    private InputStream json(List<Acopio> acopios) throws IOException {
+        return new ByteArrayInputStream(objectMapper.writeValueAsBytes(acopios));
+    }
+
+    private static InputStream entrada(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,166 @@
+package tingeso.planillaservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import tingeso.planillaservice.entity.Planilla;
+import tingeso.planillaservice.model.FiltroPlanilla;
+import tingeso.planillaservice.model.PaginaPlanillas;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+class ConsultaPlanillaServiceTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FiltroPlanilla filtro = new FiltroPlanilla("2023/05/Q1", null, null, null);
+    private List<Planilla> tabla;
+    private ConsultaPlanillaService consultas;
+
+    @BeforeEach
+    void crear() {
+        tabla = new ArrayList<>();
+        ConsultaPlanillaService servicio = new ConsultaPlanillaService();
+        servicio.entityManager = mock(EntityManager.class);
+        servicio.transactionManager = mock(PlatformTransactionManager.class);
+        servicio.objectMapper = objectMapper;
+        servicio.tamanoFetch = 2;
+        consultas = spy(servicio);
+        // La consulta devuelve las planillas con id mayor a despuesDe en orden de id, como la base de datos
+        doAnswer(invocacion -> consultaSobreTabla(invocacion.getArgument(1)))
+                .when(consultas).consulta(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypedQuery<Planilla> consultaSobreTabla(Integer despuesDe) {
+        TypedQuery<Planilla> query = mock(TypedQuery.class);
+        int[] limite = {Integer.MAX_VALUE};
+        when(query.setMaxResults(anyInt())).thenAnswer(invocacion -> {
+            limite[0] = invocacion.getArgument(0);
+            return query;
+        });
+        when(query.setHint(anyString(), any())).thenReturn(query);
+        when(query.getResultList()).thenAnswer(invocacion -> filas(despuesDe).limit(limite[0])
+                .collect(Collectors.toList()));
+        when(query.getResultStream()).thenAnswer(invocacion -> filas(despuesDe).limit(limite[0]));
+        return query;
+    }
+
+    private Stream<Planilla> filas(Integer despuesDe) {
+        return tabla.stream().filter(p -> despuesDe == null || p.getId() > despuesDe);
+    }
+
+    private void guardar(int cantidad) {
+        for (int id = 1; id <= cantidad; id++) {
+            Planilla planilla = new Planilla();
+            // ids con huecos, como los deja planilla_seq entre instancias
+            planilla.setId(id * 10);
+            planilla.setQuincena("2023/05/Q1");
+            planilla.setCodigoProveedor(String.format("%05d", id));
+            planilla.setMontoFinal(id * 1000.5);
+            tabla.add(planilla);
+        }
+    }
+
+    private List<Integer> recorrer(int limite, List<Integer> tamanos) {
+        List<Integer> ids = new ArrayList<>();
+        Integer despuesDe = null;
+        do {
+            PaginaPlanillas pagina = consultas.getPagina(filtro, despuesDe, limite);
+            tamanos.add(pagina.getPlanillas().size());
+            pagina.getPlanillas().forEach(p -> ids.add(p.getId()));
+            despuesDe = pagina.getSiguiente();
+        } while (despuesDe != null);
+        return ids;
+    }
+
+    @Test
+    void lasPaginasContinuanDesdeElUltimoId() {
+        guardar(7);
+        List<Integer> tamanos = new ArrayList<>();
+
+        List<Integer> ids = recorrer(3, tamanos);
+
+        assertEquals(List.of(10, 20, 30, 40, 50, 60, 70), ids);
+        assertEquals(List.of(3, 3, 1), tamanos);
+    }
+
+    @Test
+    void unaPaginaCompletaAlFinalPideUnaMasVacia() {
+        guardar(6);
+        List<Integer> tamanos = new ArrayList<>();
+
+        List<Integer> ids = recorrer(3, tamanos);
+
+        assertEquals(List.of(10, 20, 30, 40, 50, 60), ids);
+        assertEquals(List.of(3, 3, 0), tamanos);
+    }
+
+    @Test
+    void sinPlanillasNoHaySiguiente() {
+        PaginaPlanillas pagina = consultas.getPagina(filtro, null, 100);
+
+        assertTrue(pagina.getPlanillas().isEmpty());
+        assertNull(pagina.getSiguiente());
+    }
+
+    @Test
+    void streamNdjsonEscribeUnaPlanillaPorLinea() throws Exception {
+        guardar(5);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        consultas.escribir(filtro, salida, true);
+
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n", -1);
+        // cada linea es un objeto completo y el archivo termina en salto de linea
+        assertEquals(6, lineas.length);
+        assertEquals("", lineas[5]);
+        for (int i = 0; i < 5; i++) {
+            JsonNode planilla = objectMapper.readTree(lineas[i]);
+            assertEquals((i + 1) * 10, planilla.get("id").asInt());
+            assertEquals(String.valueOf((i + 1) * 1000.5), planilla.get("montoFinal").asText());
+        }
+    }
+
+    @Test
+    void streamJsonEscribeUnArreglo() throws Exception {
+        guardar(5);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        consultas.escribir(filtro, salida, false);
+
+        JsonNode arreglo = objectMapper.readTree(salida.toByteArray());
+        assertTrue(arreglo.isArray());
+        assertEquals(5, arreglo.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals((i + 1) * 10, arreglo.get(i).get("id").asInt());
+        }
+    }
+
+    @Test
+    void streamSinPlanillasEscribeUnArregloVacio() throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        consultas.escribir(filtro, salida, false);
+
+        assertEquals("[]", salida.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,145 @@
+package tingeso.planillaservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.repository.PlanillaRepository;
+import tingeso.planillaservice.repository.VersionPlanillaRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CoordinadorCalculoTest {
+    private static final String QUINCENA = "2023/05/Q2";
+
+    private final CountDownLatch empezo = new CountDownLatch(1);
+    private final CountDownLatch liberar = new CountDownLatch(1);
+    private final ResultadoCalculo resultadoQuincena = new ResultadoCalculo();
+    private final ResultadoCalculo resultadoTodas = new ResultadoCalculo();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PlanillaService planillaService;
+    private CoordinadorCalculo coordinador;
+    private Thread ultimoHilo;
+
+    @BeforeEach
+    void crear() {
+        planillaService = mock(PlanillaService.class);
+        PlanillaRepository planillaRepository = mock(PlanillaRepository.class);
+        VersionPlanillaRepository versionRepository = mock(VersionPlanillaRepository.class);
+        when(planillaRepository.findQuincenas()).thenReturn(List.of(QUINCENA));
+        when(versionRepository.incrementar(any(), any())).thenReturn(1);
+        coordinador = new CoordinadorCalculo(meterRegistry, 4, Duration.ofSeconds(2));
+        coordinador.planillaService = planillaService;
+        coordinador.planillaRepository = planillaRepository;
+        coordinador.versionRepository = versionRepository;
+        coordinador.periodosPlanilla = mock(PeriodosPlanillaService.class);
+        coordinador.eventos = mock(ApplicationEventPublisher.class);
+    }
+
+    @Test
+    void todasEsperaElCalculoDeQuincenaEnCurso() throws Exception {
+        when(planillaService.calcularPagoFinal(eq(QUINCENA), any())).thenAnswer(i -> {
+            empezo.countDown();
+            liberar.await();
+            return resultadoQuincena;
+        });
+        when(planillaService.calcularPagoFinal(isNull(), any())).thenReturn(resultadoTodas);
+
+        CompletableFuture<ResultadoCalculo> quincena = calcularEnOtroHilo(QUINCENA);
+        assertTrue(empezo.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ResultadoCalculo> todas = calcularEnOtroHilo(null);
+        esperarBloqueado(ultimoHilo);
+        CompletableFuture<ResultadoCalculo> otraQuincena = calcularEnOtroHilo(QUINCENA);
+        esperarUnidos(1);
+        liberar.countDown();
+
+        assertSame(resultadoQuincena, quincena.get(5, TimeUnit.SECONDS));
+        assertSame(resultadoTodas, todas.get(5, TimeUnit.SECONDS));
+        assertSame(resultadoQuincena, otraQuincena.get(5, TimeUnit.SECONDS));
+        InOrder orden = inOrder(planillaService);
+        orden.verify(planillaService).calcularPagoFinal(eq(QUINCENA), any());
+        orden.verify(planillaService).calcularPagoFinal(isNull(), any());
+    }
+
+    @Test
+    void quincenaEsperaElCalculoDeTodasEnCurso() throws Exception {
+        when(planillaService.calcularPagoFinal(isNull(), any())).thenAnswer(i -> {
+            empezo.countDown();
+            liberar.await();
+            return resultadoTodas;
+        });
+
+        CompletableFuture<ResultadoCalculo> todas = calcularEnOtroHilo(null);
+        assertTrue(empezo.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ResultadoCalculo> quincena = calcularEnOtroHilo(QUINCENA);
+        esperarUnidos(1);
+        liberar.countDown();
+
+        assertSame(resultadoTodas, todas.get(5, TimeUnit.SECONDS));
+        assertSame(resultadoTodas, quincena.get(5, TimeUnit.SECONDS));
+        verify(planillaService, times(0)).calcularPagoFinal(eq(QUINCENA), any());
+    }
+
+    @Test
+    void solicitudesSimultaneasDeQuincenaYTodasTerminan() throws Exception {
+        when(planillaService.calcularPagoFinal(any(), any())).thenReturn(resultadoQuincena);
+        for (int i = 0; i < 200; i++) {
+            CompletableFuture<ResultadoCalculo> quincena = calcularEnOtroHilo(QUINCENA);
+            CompletableFuture<ResultadoCalculo> todas = calcularEnOtroHilo(null);
+            quincena.get(5, TimeUnit.SECONDS);
+            todas.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private CompletableFuture<ResultadoCalculo> calcularEnOtroHilo(String quincena) {
+        CompletableFuture<ResultadoCalculo> resultado = new CompletableFuture<>();
+        ultimoHilo = new Thread(() -> {
+            try {
+                resultado.complete(coordinador.calcular(quincena, ProgresoCalculo.NINGUNO));
+            } catch (RuntimeException e) {
+                resultado.completeExceptionally(e);
+            }
+        });
+        ultimoHilo.start();
+        return resultado;
+    }
+
+    /**
+     * Espera a que las solicitudes indicadas se hayan unido a un calculo en curso
+     */
+    private void esperarUnidos(int solicitudes) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("planilla.calculo.unidos").count() < solicitudes) {
+            assertTrue(System.nanoTime() < limite, "solicitudes unidas");
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Espera a que el hilo quede esperando otro calculo
+     */
+    private static void esperarBloqueado(Thread hilo) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hilo.getState() != Thread.State.WAITING && hilo.getState() != Thread.State.TIMED_WAITING) {
+            assertTrue(System.nanoTime() < limite, "hilo esperando");
+            Thread.sleep(1);
+        }
+    }
+}
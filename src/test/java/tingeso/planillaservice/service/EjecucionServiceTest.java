@@ -0,0 +1,166 @@
+package tingeso.planillaservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tingeso.planillaservice.entity.AvanceEjecucion;
+import tingeso.planillaservice.entity.CuarentenaProveedor;
+import tingeso.planillaservice.entity.EjecucionPlanilla;
+import tingeso.planillaservice.entity.EjecucionPlanilla.Estado;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.repository.AvanceEjecucionRepository;
+import tingeso.planillaservice.repository.CuarentenaProveedorRepository;
+import tingeso.planillaservice.repository.EjecucionPlanillaRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EjecucionServiceTest {
+    private static final String QUINCENA = "2023/05/Q2";
+    private static final String INSTANCIA = "planilla-2:8080";
+    private static final LocalDateTime VISTO = LocalDateTime.of(2023, 5, 20, 10, 0);
+
+    private final ExecutorService ejecucionesExecutor = Executors.newSingleThreadExecutor();
+    private EjecucionPlanillaRepository ejecucionRepository;
+    private CoordinadorCalculo coordinadorCalculo;
+    private EjecucionService ejecuciones;
+    private EjecucionPlanilla ejecucion;
+
+    @BeforeEach
+    void crear() {
+        ejecucionRepository = mock(EjecucionPlanillaRepository.class);
+        coordinadorCalculo = mock(CoordinadorCalculo.class);
+        AvanceEjecucionRepository avanceRepository = mock(AvanceEjecucionRepository.class);
+        CuarentenaProveedorRepository cuarentenaRepository = mock(CuarentenaProveedorRepository.class);
+        ejecuciones = new EjecucionService();
+        ejecuciones.ejecucionRepository = ejecucionRepository;
+        ejecuciones.coordinadorCalculo = coordinadorCalculo;
+        ejecuciones.avanceRepository = avanceRepository;
+        ejecuciones.cuarentenaRepository = cuarentenaRepository;
+        ejecuciones.transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        ejecuciones.ejecucionesExecutor = ejecucionesExecutor;
+        ejecuciones.intervaloProgreso = Duration.ofSeconds(2);
+        ejecuciones.abandono = Duration.ofSeconds(60);
+        ejecuciones.instancia = INSTANCIA;
+
+        ejecucion = new EjecucionPlanilla();
+        ejecucion.setId(7);
+        ejecucion.setQuincena(QUINCENA);
+        ejecucion.setEstado(Estado.EN_EJECUCION);
+        ejecucion.setActualizado(VISTO);
+        ejecucion.setInstancia("planilla-1:8080");
+        when(ejecucionRepository.findById(7)).thenReturn(Optional.of(ejecucion));
+        // Puntos de control del intento anterior: 01001 y 01002 guardados, 01003 sin cambios, 01004 en cuarentena
+        when(avanceRepository.findByEjecucionId(7)).thenReturn(List.of(
+                new AvanceEjecucion(1, 7, "01001,01002", true, VISTO),
+                new AvanceEjecucion(2, 7, "01003", false, VISTO)));
+        when(cuarentenaRepository.findByEjecucionIdOrderByIdAsc(7)).thenReturn(List.of(
+                new CuarentenaProveedor(1, 7, QUINCENA, "01004", "Timeout", VISTO)));
+    }
+
+    @AfterEach
+    void cerrar() throws InterruptedException {
+        ejecucionesExecutor.shutdownNow();
+        assertTrue(ejecucionesExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void recuperarRetomaSoloLosProveedoresPendientes() throws Exception {
+        when(ejecucionRepository.findAbandonadas(60)).thenReturn(List.of(ejecucion));
+        when(ejecucionRepository.reclamar(7, VISTO, INSTANCIA)).thenReturn(1);
+        AtomicReference<ProgresoCalculo> recibido = new AtomicReference<>();
+        when(coordinadorCalculo.calcular(eq(QUINCENA), any())).thenAnswer(invocacion -> {
+            ProgresoCalculo progreso = invocacion.getArgument(1);
+            recibido.set(progreso);
+            progreso.iniciado(5);
+            progreso.proveedorCalculado("01005", true);
+            return new ResultadoCalculo(1, 1, 0, 0, false);
+        });
+
+        ejecuciones.recuperar();
+
+        verify(ejecucionRepository, timeout(5000)).save(ejecucion);
+        assertEquals(Estado.COMPLETADA, ejecucion.getEstado());
+        ProgresoCalculo progreso = recibido.get();
+        for (String terminado : List.of("01001", "01002", "01003", "01004")) {
+            assertFalse(progreso.pendiente(terminado), terminado);
+        }
+        assertTrue(progreso.pendiente("01005"));
+        // El avance sigue desde los totales del intento anterior
+        verify(ejecucionRepository).actualizarProgreso(7, 5, 5, 3, 1, 1);
+    }
+
+    @Test
+    void recuperarNoRetomaLasQueOtraInstanciaReclamo() throws Exception {
+        when(ejecucionRepository.findAbandonadas(60)).thenReturn(List.of(ejecucion));
+        when(ejecucionRepository.reclamar(7, VISTO, INSTANCIA)).thenReturn(0);
+
+        ejecuciones.recuperar();
+        ejecucionesExecutor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+
+        verify(coordinadorCalculo, never()).calcular(any(), any());
+        verify(ejecucionRepository, never()).save(any());
+    }
+
+    @Test
+    void recuperarTerminaLasQueSeEstabanCancelando() throws Exception {
+        ejecucion.setEstado(Estado.CANCELANDO);
+        when(ejecucionRepository.findAbandonadas(60)).thenReturn(List.of(ejecucion));
+        when(ejecucionRepository.reclamar(7, VISTO, INSTANCIA)).thenReturn(1);
+
+        ejecuciones.recuperar();
+        ejecucionesExecutor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Estado.CANCELADA, ejecucion.getEstado());
+        verify(coordinadorCalculo, never()).calcular(any(), any());
+    }
+
+    @Test
+    void latirDetieneLaEjecucionQueRetomoOtraInstancia() throws Exception {
+        CountDownLatch empezo = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicReference<ProgresoCalculo> recibido = new AtomicReference<>();
+        when(ejecucionRepository.cambiarEstado(7, List.of(Estado.PENDIENTE), Estado.EN_EJECUCION)).thenReturn(1);
+        when(coordinadorCalculo.calcular(eq(QUINCENA), any())).thenAnswer(invocacion -> {
+            recibido.set(invocacion.getArgument(1));
+            empezo.countDown();
+            liberar.await();
+            return new ResultadoCalculo(0, 0, 0, 0, true);
+        });
+        ejecucionesExecutor.submit(() -> ejecuciones.ejecutar(7, QUINCENA));
+        assertTrue(empezo.await(5, TimeUnit.SECONDS));
+        // Al pasar a EN_EJECUCION se late con la hora de la base de datos
+        verify(ejecucionRepository).latido(7, INSTANCIA);
+
+        ejecuciones.latir();
+
+        assertTrue(recibido.get().cancelado());
+        liberar.countDown();
+        ejecucionesExecutor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+        // La instancia que la retomo es la que la termina
+        verify(ejecucionRepository, never()).save(any());
+        verify(ejecucionRepository, never()).actualizarProgreso(anyInt(), anyInt(), anyInt(), anyInt(), anyInt(),
+                anyInt());
+    }
+}
@@ -0,0 +1,95 @@
+package tingeso.planillaservice.service;
+
+import org.junit.jupiter.api.Test;
+import tingeso.planillaservice.model.FilaPago;
+import tingeso.planillaservice.service.ExportacionPlanillaService.Formato;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportacionPlanillaServiceTest {
+
+    private static byte[] escribir(Formato formato, FilaPago... pagos) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        // Buffer chico para que los registros crucen el limite del buffer
+        long filas = ExportacionPlanillaService.escribir(formato, Arrays.asList(pagos).iterator(),
+                Channels.newChannel(salida), 7);
+        assertEquals(pagos.length, filas);
+        return salida.toByteArray();
+    }
+
+    private static FilaPago pago(String codigo, String nombre, double retencion, double montoFinal) {
+        return new FilaPago("2023/05/Q1", codigo, nombre, montoFinal + retencion, retencion, montoFinal);
+    }
+
+    @Test
+    void anchoFijoEscribeRegistrosExactos() throws IOException {
+        byte[] archivo = escribir(Formato.ANCHO_FIJO,
+                pago("01001", "José Pérez Ñuñez", 130.5, 869.5),
+                pago("01002", "Lechería del Sur", 0, -1234.56));
+
+        String esperado =
+                "01001     " + "Jose Perez Nunez                        " + "2023/05/Q1"
+                        + "0000000000086950" + "0000000000013050" + "\r\n"
+                + "01002     " + "Lecheria del Sur                        " + "2023/05/Q1"
+                        + "-000000000123456" + "0000000000000000" + "\r\n";
+        assertArrayEquals(esperado.getBytes(StandardCharsets.US_ASCII), archivo);
+        assertEquals(2 * 94, archivo.length);
+    }
+
+    @Test
+    void anchoFijoCortaElNombreA40() throws IOException {
+        String nombre = "Sociedad Agricola y Ganadera Los Alamos de Chillan Limitada";
+        byte[] archivo = escribir(Formato.ANCHO_FIJO, pago("7", nombre, 0, 1));
+
+        String esperado = "7         " + nombre.substring(0, 40) + "2023/05/Q1"
+                + "0000000000000100" + "0000000000000000" + "\r\n";
+        assertArrayEquals(esperado.getBytes(StandardCharsets.US_ASCII), archivo);
+    }
+
+    @Test
+    void anchoFijoRechazaCodigosQueNoCaben() {
+        IllegalArgumentException largo = assertThrows(IllegalArgumentException.class,
+                () -> escribir(Formato.ANCHO_FIJO, pago("01234567890", "Largo", 0, 1)));
+        assertTrue(largo.getMessage().contains("01234567890"), largo.getMessage());
+        // Un codigo con caracteres no ASCII tampoco se puede escribir sin cambiarlo
+        assertThrows(IllegalArgumentException.class,
+                () -> escribir(Formato.ANCHO_FIJO, pago("0100é", "Tilde", 0, 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> escribir(Formato.ANCHO_FIJO, pago(null, "Sin codigo", 0, 1)));
+    }
+
+    @Test
+    void anchoFijoRechazaMontosQueNoCaben() throws IOException {
+        // 16 digitos de centavos caben; un negativo deja 15 despues del '-'
+        byte[] maximo = escribir(Formato.ANCHO_FIJO, pago("1", "Maximo", 0, 1e13));
+        assertEquals("1000000000000000", new String(maximo, 60, 16, StandardCharsets.US_ASCII));
+
+        IllegalArgumentException grande = assertThrows(IllegalArgumentException.class,
+                () -> escribir(Formato.ANCHO_FIJO, pago("2", "Grande", 0, 1e14)));
+        assertTrue(grande.getMessage().contains("monto final"), grande.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> escribir(Formato.ANCHO_FIJO, pago("3", "Negativo", 0, -1e13)));
+        assertThrows(IllegalArgumentException.class,
+                () -> escribir(Formato.ANCHO_FIJO, pago("4", "Retencion", 1e14, 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> escribir(Formato.ANCHO_FIJO, pago("5", "NaN", 0, Double.NaN)));
+    }
+
+    @Test
+    void csvUsaUtf8YComillas() throws IOException {
+        byte[] archivo = escribir(Formato.CSV, pago("01001", "Pérez, \"El Toro\"", 130.5, -869.5));
+
+        String esperado = "quincena,codigo_proveedor,nombre_proveedor,pago_total,monto_retencion,monto_final\n"
+                + "2023/05/Q1,01001,\"Pérez, \"\"El Toro\"\"\",-739.00,130.50,-869.50\n";
+        assertArrayEquals(esperado.getBytes(StandardCharsets.UTF_8), archivo);
+    }
+}
@@ -0,0 +1,35 @@
+package tingeso.planillaservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class PeriodosPlanillaServiceTest {
+
+    @Test
+    void tablaDeLaQuincena() {
+        assertEquals("planilla_2023_05_q2", PeriodosPlanillaService.tabla("2023/05/Q2"));
+        assertEquals("planilla_0999_12_q1", PeriodosPlanillaService.tabla("0999/12/Q1"));
+    }
+
+    @Test
+    void rechazaQuincenasNoCanonicasAntesDeTocarLaBase() {
+        PlatformTransactionManager transacciones = mock(PlatformTransactionManager.class);
+        PeriodosPlanillaService periodos = new PeriodosPlanillaService(transacciones);
+        periodos.jdbcTemplate = mock(JdbcTemplate.class);
+        periodos.particionado = true;
+
+        for (String quincena : new String[]{"2023/5/Q1", "999/12/Q1", "2023/05/Q1'); drop table planilla; --"}) {
+            assertThrows(IllegalArgumentException.class, () -> periodos.asegurar(quincena), quincena);
+            assertThrows(IllegalArgumentException.class, () -> periodos.crearTemporal(quincena), quincena);
+            assertThrows(IllegalArgumentException.class, () -> periodos.intercambiar(quincena, "t"), quincena);
+            assertThrows(IllegalArgumentException.class, () -> periodos.eliminar(quincena), quincena);
+        }
+        verifyNoInteractions(periodos.jdbcTemplate, transacciones);
+    }
+}
@@ -0,0 +1,217 @@
+package tingeso.planillaservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tingeso.planillaservice.entity.Planilla;
+import tingeso.planillaservice.model.DatosQuincena;
+import tingeso.planillaservice.model.IndiceLaboratorio;
+import tingeso.planillaservice.model.Laboratorio;
+import tingeso.planillaservice.model.Proveedor;
+import tingeso.planillaservice.model.ResultadoCalculo;
+import tingeso.planillaservice.model.ResumenAcopios;
+import tingeso.planillaservice.service.EscrituraPlanillasService.LotePlanillas;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class PlanillaServiceTest {
+    private static final String QUINCENA = "2023/05/Q2";
+    private static final String ANTERIOR = "2023/05/Q1";
+    private static final String[] CATEGORIAS = {"A", "B", "C", "D"};
+
+    private final ExecutorService planillaExecutor = Executors.newFixedThreadPool(4);
+    private final ExecutorService consultasExecutor = Executors.newFixedThreadPool(4);
+    private PlanillaService planillaService;
+    private List<Laboratorio> laboratorios;
+    private DatosQuincena datos;
+
+    @BeforeEach
+    void crear() {
+        planillaService = new PlanillaService();
+        planillaService.tarifasService = new TarifasService();
+        planillaService.metricas = new MetricasPlanilla(new SimpleMeterRegistry());
+        planillaService.planillaExecutor = planillaExecutor;
+        planillaService.consultasExecutor = consultasExecutor;
+        planillaService.presupuestoProveedor = Duration.ofSeconds(30);
+        planillaService.variacionLocal = true;
+
+        Random random = new Random(7);
+        List<Laboratorio> todos = new ArrayList<>();
+        laboratorios = new ArrayList<>();
+        Map<String, ResumenAcopios> acopios = new HashMap<>();
+        Map<String, ResumenAcopios> acopiosAnteriores = new HashMap<>();
+        Map<String, Proveedor> proveedores = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            String codigo = String.format("%05d", 10000 + i);
+            proveedores.put(codigo, new Proveedor(codigo, "Proveedor " + i, CATEGORIAS[i % 4], "Si"));
+            todos.add(laboratorio(codigo, ANTERIOR, random));
+            Laboratorio laboratorio = laboratorio(codigo, QUINCENA, random);
+            todos.add(laboratorio);
+            laboratorios.add(laboratorio);
+            acopios.put(codigo, acopios(random));
+            acopiosAnteriores.put(codigo, acopios(random));
+        }
+        // Un proveedor con acopios invalidos falla en los dos modos
+        ResumenAcopios invalido = acopios(random);
+        invalido.invalidar("kilos de leche invalidos 'doce'");
+        acopios.put("10013", invalido);
+        datos = new DatosQuincena(Map.of(QUINCENA, acopios, ANTERIOR, acopiosAnteriores), proveedores,
+                Map.of(), new IndiceLaboratorio(todos), 0, 0);
+    }
+
+    @AfterEach
+    void cerrar() {
+        planillaExecutor.shutdownNow();
+        consultasExecutor.shutdownNow();
+    }
+
+    @Test
+    void calculoParaleloIgualAlSecuencial() {
+        List<Planilla> secuenciales = new ArrayList<>();
+        planillaService.calculoParalelo = false;
+        ResultadoCalculo secuencial = planillaService.calcularLaboratorios(laboratorios, datos, lote(secuenciales),
+                ProgresoCalculo.NINGUNO);
+
+        List<Planilla> paralelas = new ArrayList<>();
+        planillaService.calculoParalelo = true;
+        ResultadoCalculo paralelo = planillaService.calcularLaboratorios(laboratorios, datos, lote(paralelas),
+                ProgresoCalculo.NINGUNO);
+
+        assertEquals(new ResultadoCalculo(300, 299, 0, 1, false), secuencial);
+        assertEquals(secuencial, paralelo);
+        assertEquals(299, secuenciales.size());
+        paralelas.sort(Comparator.comparing(Planilla::getCodigoProveedor));
+        assertEquals(secuenciales, paralelas);
+    }
+
+    /**
+     * Fija el resultado local con la formula de la variacion de leche. No son resultados de laboratorio-service:
+     * por eso una muestra de proveedores se sigue comparando con la variacion remota.
+     */
+    @Test
+    void variacionLocalUsaLaFormulaDeLeche() {
+        Laboratorio actual = laboratorio("01001", QUINCENA, 30, 15);
+        DatosQuincena conAnterior = datosLaboratorio(actual, laboratorio("01001", ANTERIOR, 40, 45));
+
+        assertEquals(25.0, planillaService.getPorcentajeVariacionGrasa(conAnterior, actual));
+        assertEquals(66.6667, planillaService.getPorcentajeVariacionST(conAnterior, actual));
+        // Sin disminucion, sin quincena anterior o con la anterior en 0 no hay variacion
+        Laboratorio aumento = laboratorio("01002", QUINCENA, 50, 20);
+        assertEquals(0.0, planillaService.getPorcentajeVariacionGrasa(
+                datosLaboratorio(aumento, laboratorio("01002", ANTERIOR, 40, 20)), aumento));
+        assertEquals(0.0, planillaService.getPorcentajeVariacionGrasa(datosLaboratorio(actual), actual));
+        assertEquals(0.0, planillaService.getPorcentajeVariacionST(
+                datosLaboratorio(actual, laboratorio("01001", ANTERIOR, 0, 0)), actual));
+    }
+
+    @Test
+    void verificarComparaConLaboratorioServiceYUsaLaLocal() {
+        SimpleMeterRegistry registro = new SimpleMeterRegistry();
+        planillaService.metricas = new MetricasPlanilla(registro);
+        planillaService.verificarVariacionCada = 1;
+        PlanillaService servicio = spy(planillaService);
+        Laboratorio actual = laboratorio("01001", QUINCENA, 30, 15);
+        DatosQuincena conAnterior = datosLaboratorio(actual, laboratorio("01001", ANTERIOR, 40, 45));
+        doReturn(25.0).when(servicio).getPorcentajeVariacionGrasa(QUINCENA, "01001", 30);
+        doReturn(50.0).when(servicio).getPorcentajeVariacionST(QUINCENA, "01001", 15);
+
+        assertEquals(25.0, servicio.getPorcentajeVariacionGrasa(conAnterior, actual));
+        assertEquals(66.6667, servicio.getPorcentajeVariacionST(conAnterior, actual));
+
+        assertEquals(1.0, registro.get("planilla.variacion.verificadas").tags("tipo", "grasa", "resultado", "igual")
+                .counter().count());
+        assertEquals(1.0, registro.get("planilla.variacion.verificadas").tags("tipo", "solidos", "resultado", "distinta")
+                .counter().count());
+        assertEquals(0.0, registro.get("planilla.variacion.verificadas").tags("tipo", "grasa", "resultado", "distinta")
+                .counter().count());
+    }
+
+    @Test
+    void verificarSoloConsultaUnaMuestraDeProveedores() {
+        planillaService.calculoParalelo = true;
+        PlanillaService servicio = spy(planillaService);
+        doReturn(0.0).when(servicio).getPorcentajeVariacionGrasa(any(), any(), anyInt());
+        doReturn(0.0).when(servicio).getPorcentajeVariacionST(any(), any(), anyInt());
+
+        servicio.calcularLaboratorios(laboratorios, datos, lote(new ArrayList<>()), ProgresoCalculo.NINGUNO);
+        verify(servicio, never()).getPorcentajeVariacionGrasa(any(), any(), anyInt());
+        verify(servicio, never()).getPorcentajeVariacionST(any(), any(), anyInt());
+
+        servicio.verificarVariacionCada = 10;
+        Set<String> muestra = laboratorios.stream().map(Laboratorio::getProveedor)
+                .filter(servicio::verificarVariacionRemota).collect(Collectors.toSet());
+        servicio.calcularLaboratorios(laboratorios, datos, lote(new ArrayList<>()), ProgresoCalculo.NINGUNO);
+
+        assertTrue(muestra.size() > 10 && muestra.size() < 60, muestra.toString());
+        for (Laboratorio laboratorio : laboratorios) {
+            int veces = muestra.contains(laboratorio.getProveedor()) ? 1 : 0;
+            verify(servicio, times(veces)).getPorcentajeVariacionGrasa(QUINCENA, laboratorio.getProveedor(),
+                    laboratorio.getPorcentajeGrasa());
+            verify(servicio, times(veces)).getPorcentajeVariacionST(QUINCENA, laboratorio.getProveedor(),
+                    laboratorio.getPorcentajeSolidoTotal());
+        }
+    }
+
+    private static DatosQuincena datosLaboratorio(Laboratorio... laboratorios) {
+        return new DatosQuincena(Map.of(), Map.of(), Map.of(), new IndiceLaboratorio(List.of(laboratorios)), 0, 0);
+    }
+
+    private static Laboratorio laboratorio(String codigo, String quincena, int grasa, int solidos) {
+        return new Laboratorio(codigo, grasa, solidos, quincena);
+    }
+
+    private static LotePlanillas lote(List<Planilla> planillas) {
+        LotePlanillas lote = mock(LotePlanillas.class);
+        doAnswer(invocacion -> {
+            synchronized (planillas) {
+                planillas.add(invocacion.getArgument(0));
+            }
+            return null;
+        }).when(lote).agregar(any());
+        return lote;
+    }
+
+    private static Laboratorio laboratorio(String codigo, String quincena, Random random) {
+        Laboratorio laboratorio = new Laboratorio();
+        laboratorio.setProveedor(codigo);
+        laboratorio.setQuincena(quincena);
+        laboratorio.setPorcentajeGrasa(random.nextInt(60));
+        laboratorio.setPorcentajeSolidoTotal(random.nextInt(50));
+        return laboratorio;
+    }
+
+    private static ResumenAcopios acopios(Random random) {
+        ResumenAcopios resumen = new ResumenAcopios();
+        for (int dia = 1; dia <= 15; dia++) {
+            for (String turno : new String[]{"M", "T"}) {
+                if (random.nextInt(4) > 0) {
+                    resumen.agregar(String.format("2023/05/%02d", dia), turno, random.nextInt(400));
+                }
+            }
+        }
+        return resumen.cerrar();
+    }
+}